@@ -0,0 +1,55 @@
+package io.github.lc.oss.commons.jwt.benchmarks;
+
+import java.util.Set;
+
+import io.github.lc.oss.commons.jwt.JwtHeader;
+import io.github.lc.oss.commons.jwt.JwtService;
+import io.github.lc.oss.commons.signing.Algorithm;
+
+/**
+ * Minimal service that permits exactly one algorithm and serves a fixed key
+ * pair.
+ */
+public class BenchmarkJwtService extends JwtService {
+    public static final String ISSUER = "bench-ca";
+    public static final String AUDIENCE = "bench-app";
+
+    private final Algorithm algorithm;
+    private final BenchmarkKeys keys;
+
+    public BenchmarkJwtService(Algorithm algorithm, BenchmarkKeys keys) {
+        this.algorithm = algorithm;
+        this.keys = keys;
+    }
+
+    @Override
+    public boolean isAlgorithmAllowed(Algorithm alg) {
+        /* algorithm is null while the super constructor checks for mixed algorithms */
+        return alg != null && this.algorithm != null && this.algorithm.getId().equals(alg.getId());
+    }
+
+    @Override
+    public Set<String> getIssuers() {
+        return Set.of(BenchmarkJwtService.ISSUER);
+    }
+
+    @Override
+    public String getAudience() {
+        return BenchmarkJwtService.AUDIENCE;
+    }
+
+    @Override
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    protected byte[] getSignSecret(JwtHeader header, byte[] defaultSecret) {
+        return this.keys.getSignKey();
+    }
+
+    @Override
+    protected byte[] getValidateSecret(JwtHeader header, byte[] defaultSecret) {
+        return this.keys.getValidateKey();
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.lc.oss.commons.jwt.benchmarks;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.spec.ECGenParameterSpec;
+
+import io.github.lc.oss.commons.signing.Algorithm;
+import io.github.lc.oss.commons.signing.Algorithms;
+
+/**
+ * Generates throw away key material for a given algorithm. HMAC algorithms use
+ * the same random secret for signing and validation, key based algorithms sign
+ * with the PKCS#8 encoded private key and validate with the X.509 encoded public
+ * key.
+ */
+public class BenchmarkKeys {
+    private final byte[] signKey;
+    private final byte[] validateKey;
+
+    public static BenchmarkKeys generate(Algorithm alg) {
+        if (Algorithms.hmacAlgorithms().contains(alg)) {
+            byte[] secret = new byte[64];
+            new SecureRandom().nextBytes(secret);
+            return new BenchmarkKeys(secret, secret);
+        }
+
+        KeyPair pair = BenchmarkKeys.generateKeyPair(alg.getId().toUpperCase());
+        return new BenchmarkKeys(pair.getPrivate().getEncoded(), pair.getPublic().getEncoded());
+    }
+
+    private static KeyPair generateKeyPair(String id) {
+        try {
+            KeyPairGenerator generator;
+            if (id.startsWith("RS") || id.startsWith("PS")) {
+                generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(2048);
+            } else if (id.startsWith("ES")) {
+                generator = KeyPairGenerator.getInstance("EC");
+                if (id.endsWith("512")) {
+                    generator.initialize(new ECGenParameterSpec("secp521r1"));
+                } else if (id.endsWith("384")) {
+                    generator.initialize(new ECGenParameterSpec("secp384r1"));
+                } else {
+                    generator.initialize(new ECGenParameterSpec("secp256r1"));
+                }
+            } else if (id.contains("448")) {
+                generator = KeyPairGenerator.getInstance("Ed448");
+            } else if (id.contains("25519")) {
+                generator = KeyPairGenerator.getInstance("Ed25519");
+            } else {
+                throw new IllegalArgumentException("No key generator available for " + id);
+            }
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException ex) {
+            throw new RuntimeException("Error generating keys for " + id, ex);
+        }
+    }
+
+    private BenchmarkKeys(byte[] signKey, byte[] validateKey) {
+        this.signKey = signKey;
+        this.validateKey = validateKey;
+    }
+
+    public byte[] getSignKey() {
+        return this.signKey;
+    }
+
+    public byte[] getValidateKey() {
+        return this.validateKey;
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.lc.oss.commons.jwt.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.github.lc.oss.commons.signing.Algorithm;
+import io.github.lc.oss.commons.signing.Algorithms;
+
+/**
+ * Entry point of the benchmark jar. Accepts the regular JMH command line
+ * options and, unless overridden on the command line, runs the algorithm
+ * parameterized benchmarks against every algorithm published by
+ * {@linkplain Algorithms#hmacAlgorithms()} and
+ * {@linkplain Algorithms#keyAlgorithms()} with the GC profiler enabled so
+ * allocation rates are reported alongside throughput and average time.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions cli = new CommandLineOptions(args);
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if (cli.getIncludes().isEmpty()) {
+            options.include(BenchmarkRunner.class.getPackageName() + ".*");
+        }
+
+        if (!cli.getParameter("algorithm").hasValue()) {
+            options.param("algorithm", BenchmarkRunner.algorithms());
+        }
+
+        if (cli.getProfilers().isEmpty()) {
+            options.addProfiler(GCProfiler.class);
+        }
+
+        new Runner(options.build()).run();
+    }
+
+    static String[] algorithms() {
+        List<String> ids = new ArrayList<>();
+        for (Algorithm a : Algorithms.hmacAlgorithms()) {
+            ids.add(a.getId());
+        }
+        for (Algorithm a : Algorithms.keyAlgorithms()) {
+            ids.add(a.getId());
+        }
+        return ids.toArray(new String[ids.size()]);
+    }
+
+    private BenchmarkRunner() {
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.lc.oss.commons.jwt.benchmarks;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.github.lc.oss.commons.jwt.JwtPayload;
+import io.github.lc.oss.commons.jwt.Util;
+
+/**
+ * Claim access on a decoded payload. The single lookup benchmarks work on a
+ * fresh clone each time, the others repeat lookups on the same payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClaimsBenchmark {
+    private JwtPayload payload;
+
+    @Setup
+    public void setup() {
+        JwtPayload payload = new JwtPayload();
+        payload.setSubject("bench-user");
+        payload.setIssuer(BenchmarkJwtService.ISSUER);
+        payload.setAudience(BenchmarkJwtService.AUDIENCE, "other-audience");
+        payload.setExpirationMillis(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        payload.setPermissions(BenchmarkJwtService.AUDIENCE, Arrays.asList("read", "write", "delete", "admin", "audit"));
+        payload.setPermissions("other-audience", Arrays.asList("read", "write"));
+
+        /* decoded like a received token, collections are lists */
+        this.payload = Util.fromBase64Json(Util.toBase64Json(payload), JwtPayload.class);
+    }
+
+    @Benchmark
+    public Set<String> audience() {
+        return this.payload.getAudience();
+    }
+
+    @Benchmark
+    public Set<String> audienceOnce() {
+        return ((JwtPayload) this.payload.clone()).getAudience();
+    }
+
+    @Benchmark
+    public boolean hasPermission() {
+        return this.payload.hasPermission(BenchmarkJwtService.AUDIENCE, "audit");
+    }
+
+    @Benchmark
+    public boolean hasPermissionAlternating() {
+        return this.payload.hasPermission(BenchmarkJwtService.AUDIENCE, "audit")
+                && this.payload.hasPermission("other-audience", "write") && this.payload.getAudience() != null;
+    }
+
+    @Benchmark
+    public boolean hasPermissionOnce() {
+        return ((JwtPayload) this.payload.clone()).hasPermission(BenchmarkJwtService.AUDIENCE, "audit");
+    }
+
+    @Benchmark
+    public void entries(Blackhole blackhole) {
+        for (Map.Entry<String, Object> e : this.payload.entrySet()) {
+            blackhole.consume(e.getValue());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.lc.oss.commons.jwt.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.jwt.Jwt;
+import io.github.lc.oss.commons.jwt.JwtService;
+import io.github.lc.oss.commons.signing.Algorithm;
+import io.github.lc.oss.commons.signing.Algorithms;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IssueBenchmark {
+    /**
+     * Fallback when run outside of {@linkplain BenchmarkRunner}, the runner uses
+     * every algorithm published by {@linkplain Algorithms}.
+     */
+    @Param({ "HS256" })
+    public String algorithm;
+
+    private Algorithm alg;
+    private JwtService service;
+    private Jwt token;
+
+    @Setup
+    public void setup() {
+        this.alg = Algorithms.get(this.algorithm);
+        if (this.alg == null) {
+            throw new IllegalArgumentException("Unknown algorithm " + this.algorithm);
+        }
+
+        this.service = new BenchmarkJwtService(this.alg, BenchmarkKeys.generate(this.alg));
+        this.token = this.issueToken();
+    }
+
+    private Jwt issueToken() {
+        Jwt jwt = this.service.issue(this.alg, System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1),
+                "bench-user", BenchmarkJwtService.ISSUER, BenchmarkJwtService.AUDIENCE);
+        jwt.getPayload().setDisplayName("Benchmark User");
+        jwt.getPayload().setPermissions(BenchmarkJwtService.AUDIENCE, "read");
+        return jwt;
+    }
+
+    @Benchmark
+    public Jwt issue() {
+        return this.issueToken();
+    }
+
+    @Benchmark
+    public String signAndEncode() {
+        return this.service.signAndEncode(this.token);
+    }
+
+    @Benchmark
+    public String issueAndSignAndEncode() {
+        return this.service.signAndEncode(this.issueToken());
+    }
+}
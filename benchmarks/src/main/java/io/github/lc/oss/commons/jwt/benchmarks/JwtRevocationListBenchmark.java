@@ -0,0 +1,114 @@
+package io.github.lc.oss.commons.jwt.benchmarks;
+
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.jwt.CompactRevocationStore;
+import io.github.lc.oss.commons.jwt.JwtRevocationList;
+import io.github.lc.oss.commons.jwt.MapRevocationStore;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtRevocationListBenchmark {
+    private static final int LOOKUPS = 1024;
+
+    public enum Storage {
+        MAP, COMPACT, OFF_HEAP
+    }
+
+    /**
+     * Number of revoked signatures held in the list.
+     */
+    @Param({ "1000", "100000" })
+    public int size;
+
+    /**
+     * Length of each signature, 342 matches an RS256 signature.
+     */
+    @Param({ "342" })
+    public int signatureLength;
+
+    @Param
+    public Storage storage;
+
+    private JwtRevocationList list;
+    private String[] revoked;
+    private String[] unknown;
+    private int index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        long expires = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+
+        switch (this.storage) {
+            case COMPACT:
+                this.list = new JwtRevocationList(new CompactRevocationStore(this.size, false));
+                break;
+            case OFF_HEAP:
+                this.list = new JwtRevocationList(new CompactRevocationStore(this.size, true));
+                break;
+            default:
+                this.list = new JwtRevocationList(new MapRevocationStore(JwtRevocationList.DEFAULT_BUCKET_MILLIS));
+                break;
+        }
+        this.revoked = new String[JwtRevocationListBenchmark.LOOKUPS];
+        this.unknown = new String[JwtRevocationListBenchmark.LOOKUPS];
+        for (int i = 0; i < this.size; i++) {
+            String signature = this.randomSignature(random);
+            this.list.revoke(signature, expires);
+            if (i < JwtRevocationListBenchmark.LOOKUPS) {
+                this.revoked[i] = signature;
+            }
+        }
+
+        for (int i = 0; i < JwtRevocationListBenchmark.LOOKUPS; i++) {
+            if (this.revoked[i] == null) {
+                this.revoked[i] = this.revoked[i % this.size];
+            }
+            this.unknown[i] = this.randomSignature(random);
+        }
+    }
+
+    private String randomSignature(Random random) {
+        byte[] bytes = new byte[this.signatureLength * 3 / 4 + 1];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes).substring(0, this.signatureLength);
+    }
+
+    private int next() {
+        this.index = (this.index + 1) & (JwtRevocationListBenchmark.LOOKUPS - 1);
+        return this.index;
+    }
+
+    /*
+     * Each lookup uses a fresh copy of the signature to mimic a request thread that
+     * parsed the String from the wire, i.e. no cached String hash code.
+     */
+    @Benchmark
+    public boolean isRevokedHit() {
+        return this.list.isRevoked(new String(this.revoked[this.next()]));
+    }
+
+    @Benchmark
+    public boolean isRevokedMiss() {
+        return this.list.isRevoked(new String(this.unknown[this.next()]));
+    }
+}
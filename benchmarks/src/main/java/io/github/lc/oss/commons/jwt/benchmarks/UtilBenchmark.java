@@ -0,0 +1,79 @@
+package io.github.lc.oss.commons.jwt.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.jwt.Jwt;
+import io.github.lc.oss.commons.jwt.JwtHeader;
+import io.github.lc.oss.commons.jwt.JwtPayload;
+import io.github.lc.oss.commons.jwt.Util;
+import io.github.lc.oss.commons.signing.Algorithms;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UtilBenchmark {
+    private JwtHeader header;
+    private JwtPayload payload;
+    private String encodedHeader;
+    private String encodedPayload;
+
+    @Setup
+    public void setup() {
+        long now = System.currentTimeMillis();
+
+        Jwt token = new Jwt();
+        token.getHeader().put(JwtHeader.Keys.TokenType, "JWT");
+        token.getHeader().setAlgorithm(Algorithms.HS256);
+        token.getHeader().setKeyId("bench-key");
+        token.getPayload().setSubject("bench-user");
+        token.getPayload().setIssuer(BenchmarkJwtService.ISSUER);
+        token.getPayload().setAudience(BenchmarkJwtService.AUDIENCE);
+        token.getPayload().setIssuedAtMillis(now);
+        token.getPayload().setNotBeforeMillis(now);
+        token.getPayload().setExpirationMillis(now + TimeUnit.HOURS.toMillis(1));
+        token.getPayload().setTokenId("5d8c6a1e-8f4b-4d1f-9a63-0f7d3b2c1e90");
+        token.getPayload().setDisplayName("Benchmark User");
+        token.getPayload().setPermissions(BenchmarkJwtService.AUDIENCE,
+                Arrays.asList("read", "write", "delete", "admin", "audit"));
+
+        this.header = token.getHeader();
+        this.payload = token.getPayload();
+        this.encodedHeader = Util.toBase64Json(this.header);
+        this.encodedPayload = Util.toBase64Json(this.payload);
+    }
+
+    @Benchmark
+    public String toBase64JsonHeader() {
+        return Util.toBase64Json(this.header);
+    }
+
+    @Benchmark
+    public String toBase64JsonPayload() {
+        return Util.toBase64Json(this.payload);
+    }
+
+    @Benchmark
+    public JwtHeader fromBase64JsonHeader() {
+        return Util.fromBase64Json(this.encodedHeader, JwtHeader.class);
+    }
+
+    @Benchmark
+    public JwtPayload fromBase64JsonPayload() {
+        return Util.fromBase64Json(this.encodedPayload, JwtPayload.class);
+    }
+}
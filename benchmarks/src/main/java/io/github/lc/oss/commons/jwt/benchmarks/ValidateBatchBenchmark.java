@@ -0,0 +1,78 @@
+package io.github.lc.oss.commons.jwt.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.jwt.Jwt;
+import io.github.lc.oss.commons.jwt.JwtService;
+import io.github.lc.oss.commons.signing.Algorithm;
+import io.github.lc.oss.commons.signing.Algorithms;
+
+/**
+ * Compares validating a batch of distinct tokens one at a time with
+ * {@linkplain JwtService#validateAll(java.util.Collection)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidateBatchBenchmark {
+    /**
+     * Fallback when run outside of {@linkplain BenchmarkRunner}, the runner uses
+     * every algorithm published by {@linkplain Algorithms}.
+     */
+    @Param({ "HS256" })
+    public String algorithm;
+
+    @Param({ "500", "5000" })
+    public int batchSize;
+
+    private JwtService service;
+    private List<String> encoded;
+
+    @Setup
+    public void setup() {
+        Algorithm alg = Algorithms.get(this.algorithm);
+        if (alg == null) {
+            throw new IllegalArgumentException("Unknown algorithm " + this.algorithm);
+        }
+
+        this.service = new BenchmarkJwtService(alg, BenchmarkKeys.generate(alg));
+        this.encoded = new ArrayList<>(this.batchSize);
+        long expires = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        for (int i = 0; i < this.batchSize; i++) {
+            Jwt token = this.service.issue(alg, expires, "bench-user-" + i, BenchmarkJwtService.ISSUER,
+                    BenchmarkJwtService.AUDIENCE);
+            this.encoded.add(this.service.signAndEncode(token));
+        }
+    }
+
+    @Benchmark
+    public List<Jwt> sequential() {
+        List<Jwt> results = new ArrayList<>(this.encoded.size());
+        for (String e : this.encoded) {
+            results.add(this.service.validate(e));
+        }
+        return results;
+    }
+
+    @Benchmark
+    public List<Jwt> validateAll() {
+        return this.service.validateAll(this.encoded);
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.lc.oss.commons.jwt.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.jwt.Jwt;
+import io.github.lc.oss.commons.jwt.JwtService;
+import io.github.lc.oss.commons.jwt.ValidationResult;
+import io.github.lc.oss.commons.signing.Algorithm;
+import io.github.lc.oss.commons.signing.Algorithms;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidateBenchmark {
+    public enum TokenType {
+        VALID, EXPIRED, REVOKED, BAD_SIGNATURE, MALFORMED
+    }
+
+    /**
+     * Fallback when run outside of {@linkplain BenchmarkRunner}, the runner uses
+     * every algorithm published by {@linkplain Algorithms}.
+     */
+    @Param({ "HS256" })
+    public String algorithm;
+
+    @Param({ "VALID", "EXPIRED", "REVOKED", "BAD_SIGNATURE", "MALFORMED" })
+    public TokenType tokenType;
+
+    /**
+     * Rejects expired tokens and tokens with the wrong issuer or audience before
+     * verifying their signature.
+     */
+    @Param({ "false", "true" })
+    public boolean claimPreCheck;
+
+    private JwtService service;
+    private String encoded;
+
+    @Setup
+    public void setup() {
+        Algorithm alg = Algorithms.get(this.algorithm);
+        if (alg == null) {
+            throw new IllegalArgumentException("Unknown algorithm " + this.algorithm);
+        }
+
+        final boolean preCheck = this.claimPreCheck;
+        this.service = new BenchmarkJwtService(alg, BenchmarkKeys.generate(alg)) {
+            @Override
+            protected boolean isClaimPreCheck() {
+                return preCheck;
+            }
+        };
+        this.encoded = this.createToken(alg);
+
+        Jwt result = this.service.validate(this.encoded);
+        if ((this.tokenType == TokenType.VALID) != (result != null)) {
+            throw new IllegalStateException("Token of type " + this.tokenType + " validated to " + result);
+        }
+    }
+
+    private String createToken(Algorithm alg) {
+        long expires = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        Jwt token = this.service.issue(alg, expires, "bench-user", BenchmarkJwtService.ISSUER,
+                BenchmarkJwtService.AUDIENCE);
+        token.getPayload().setDisplayName("Benchmark User");
+        token.getPayload().setPermissions(BenchmarkJwtService.AUDIENCE, "read");
+
+        switch (this.tokenType) {
+            case EXPIRED:
+                long now = System.currentTimeMillis() / 1000;
+                token.getPayload().setIssuedAt(now - 7200);
+                token.getPayload().setNotBefore(now - 7200);
+                token.getPayload().setExpiration(now - 3600);
+                return this.service.signAndEncode(token);
+            case REVOKED:
+                String revoked = this.service.signAndEncode(token);
+                this.service.invalidate(token);
+                return revoked;
+            case BAD_SIGNATURE:
+                String valid = this.service.signAndEncode(token);
+                Jwt other = this.service.issue(alg, expires, "other-user", BenchmarkJwtService.ISSUER,
+                        BenchmarkJwtService.AUDIENCE);
+                this.service.signAndEncode(other);
+                return valid.substring(0, valid.lastIndexOf('.') + 1) + other.getSignature();
+            case MALFORMED:
+                /* well formed compact structure whose segments are not JSON */
+                return "Z2FyYmFnZQ.Z2FyYmFnZQ.Z2FyYmFnZQ";
+            case VALID:
+            default:
+                return this.service.signAndEncode(token);
+        }
+    }
+
+    @Benchmark
+    public Jwt validate() {
+        return this.service.validate(this.encoded);
+    }
+
+    @Benchmark
+    public ValidationResult check() {
+        return this.service.check(this.encoded);
+    }
+}
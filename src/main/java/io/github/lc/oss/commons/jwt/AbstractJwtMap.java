@@ -1,15 +1,335 @@
 package io.github.lc.oss.commons.jwt;
 
-import java.util.Arrays;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
+/**
+ * Map of token claims. Subclasses may keep values derived from the claims (e.g.
+ * typed views), every modification of the map, including modifications through
+ * its views, calls {@linkplain #beforeModification()} first so they can be
+ * discarded. Entries of {@linkplain #entrySet()} are the map's own, iterating
+ * over them counts as a modification. Modifications of nested collections held
+ * as claim values are not detected. <br />
+ * <br />
+ * Sets returned by {@linkplain #getSet(String, boolean)} are immutable. A claim
+ * looked up again is memoized and its set reused until the claim is replaced or
+ * the size of the collection it holds changes.
+ */
 public abstract class AbstractJwtMap extends HashMap<String, Object> {
     private static final long serialVersionUID = -2604762012165449371L;
 
+    /*
+     * Immutable set view of a claim value, reused while the map still holds the
+     * same value under the same key.
+     */
+    static final class SetView {
+        /*
+         * Number of slots of a memo, enough for the few set claims of a token.
+         */
+        static final int SLOTS = 8;
+
+        private final Object key;
+        private final Object source;
+        private final int size;
+        private final Set<?> set;
+
+        SetView(Object key, Object source) {
+            this.key = key;
+            this.source = source;
+            this.size = source instanceof Collection ? ((Collection<?>) source).size() : -1;
+            this.set = SetView.toSet(source);
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T> Set<T> toSet(Object value) {
+            if (value instanceof Collection) {
+                return Collections.unmodifiableSet(new HashSet<>((Collection<T>) value));
+            }
+            return Collections.singleton((T) value);
+        }
+
+        /*
+         * Two-way set associative memo of views, a slot holds either the value
+         * looked up once or the view of a value looked up again. Returns null on
+         * the first lookup, callers use the value itself then.
+         */
+        static SetView memoized(Object[] slots, Object key, Object value) {
+            int h = Objects.hashCode(key);
+            int i = ((h ^ (h >>> 16)) & 0x7fffffff) % slots.length;
+            int free = -1;
+
+            for (int n = 0; n < 2; n++) {
+                int s = (i + n) % slots.length;
+                Object slot = slots[s];
+                if (slot == value) {
+                    SetView view = new SetView(key, value);
+                    slots[s] = view;
+                    return view;
+                }
+
+                if (slot instanceof SetView && ((SetView) slot).isCurrent(key, value)) {
+                    return (SetView) slot;
+                }
+
+                if (free < 0 && (slot == null
+                        || slot instanceof SetView && Objects.equals(((SetView) slot).key, key))) {
+                    /* empty or outdated view of the same claim */
+                    free = s;
+                }
+            }
+
+            slots[free < 0 ? i : free] = value;
+            return null;
+        }
+
+        boolean isCurrent(Object key, Object value) {
+            if (this.source != value || !Objects.equals(this.key, key)) {
+                return false;
+            }
+            return !(value instanceof Collection) || ((Collection<?>) value).size() == this.size;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> Set<T> getSet() {
+            return (Set<T>) this.set;
+        }
+    }
+
+    /*
+     * Plain field and slots, views are immutable and a lost update only costs a
+     * rebuild.
+     */
+    private transient Object[] views;
+
+    /**
+     * Called before any modification of this map. Default implementation does
+     * nothing.
+     */
+    protected void beforeModification() {
+    }
+
+    /*
+     * Package-private for subclasses modifying nested claim values.
+     */
+    void modifying() {
+        this.views = null;
+        this.beforeModification();
+    }
+
+    /**
+     * Adds all entries without calling {@linkplain #beforeModification()}, for
+     * subclasses that populate themselves.
+     */
+    protected void putAllUntracked(Map<? extends String, ? extends Object> m) {
+        super.putAll(m);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        this.modifying();
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends Object> m) {
+        this.modifying();
+        super.putAll(m);
+    }
+
+    @Override
+    public Object putIfAbsent(String key, Object value) {
+        this.modifying();
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        this.modifying();
+        return super.remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        this.modifying();
+        return super.remove(key, value);
+    }
+
+    @Override
+    public void clear() {
+        this.modifying();
+        super.clear();
+    }
+
+    @Override
+    public Object replace(String key, Object value) {
+        this.modifying();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, Object oldValue, Object newValue) {
+        this.modifying();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Object, ? extends Object> function) {
+        this.modifying();
+        super.replaceAll(function);
+    }
+
+    @Override
+    public Object compute(String key,
+            BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+        this.modifying();
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public Object computeIfAbsent(String key, Function<? super String, ? extends Object> mappingFunction) {
+        this.modifying();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public Object computeIfPresent(String key,
+            BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+        this.modifying();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public Object merge(String key, Object value,
+            BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+        this.modifying();
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new TrackedSet<>(super.keySet());
+    }
+
+    @Override
+    public Collection<Object> values() {
+        Collection<Object> values = super.values();
+        return new AbstractCollection<Object>() {
+            @Override
+            public Iterator<Object> iterator() {
+                return new TrackedIterator<>(values.iterator());
+            }
+
+            @Override
+            public int size() {
+                return values.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return values.contains(o);
+            }
+
+            @Override
+            public void clear() {
+                AbstractJwtMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        Set<Map.Entry<String, Object>> entries = super.entrySet();
+        return new TrackedSet<Map.Entry<String, Object>>(entries) {
+            /*
+             * Wrapping every entry to catch setValue would allocate per entry, an
+             * iterator that hands out entries counts as a modification instead.
+             */
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new TrackedIterator<Map.Entry<String, Object>>(entries.iterator()) {
+                    private boolean exposed;
+
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        if (!this.exposed) {
+                            this.exposed = true;
+                            AbstractJwtMap.this.modifying();
+                        }
+                        return super.next();
+                    }
+                };
+            }
+        };
+    }
+
+    private class TrackedSet<E> extends AbstractSet<E> {
+        private final Set<E> set;
+
+        private TrackedSet(Set<E> set) {
+            this.set = set;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new TrackedIterator<>(this.set.iterator());
+        }
+
+        @Override
+        public int size() {
+            return this.set.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return this.set.contains(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            AbstractJwtMap.this.modifying();
+            return this.set.remove(o);
+        }
+
+        @Override
+        public void clear() {
+            AbstractJwtMap.this.clear();
+        }
+    }
+
+    private class TrackedIterator<E> implements Iterator<E> {
+        private final Iterator<E> iterator;
+
+        private TrackedIterator(Iterator<E> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.iterator.hasNext();
+        }
+
+        @Override
+        public E next() {
+            return this.iterator.next();
+        }
+
+        @Override
+        public void remove() {
+            AbstractJwtMap.this.modifying();
+            this.iterator.remove();
+        }
+    }
+
     @SuppressWarnings("unchecked")
     public <K, V> Map<K, V> getMap(String key) {
         Object value = this.get(key);
@@ -23,15 +343,37 @@ public abstract class AbstractJwtMap extends HashMap<String, Object> {
         return this.getSet(key, true);
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Returns the claim as an immutable set. A single value is returned as a set
+     * of one if <code>promoteToSet</code> is <code>true</code>. <br />
+     * <br />
+     * The first lookup builds the set like a copy would, a repeated lookup of the
+     * same claim memoizes it.
+     */
     public <T> Set<T> getSet(String key, boolean promoteToSet) {
         Object value = this.get(key);
-        if (value instanceof Collection) {
-            return new HashSet<>((Collection<T>) value);
-        } else if (value != null && promoteToSet) {
-            return new HashSet<>(Arrays.asList((T) value));
+        if (value == null || (!promoteToSet && !(value instanceof Collection))) {
+            return null;
         }
-        return null;
+
+        Object[] views = this.views;
+        if (views == null) {
+            views = new Object[SetView.SLOTS];
+            this.views = views;
+        }
+
+        SetView view = SetView.memoized(views, key, value);
+        if (view == null) {
+            return SetView.toSet(value);
+        }
+        return view.getSet();
+    }
+
+    @Override
+    public Object clone() {
+        AbstractJwtMap clone = (AbstractJwtMap) super.clone();
+        clone.views = null;
+        return clone;
     }
 
     public String getString(String key) {
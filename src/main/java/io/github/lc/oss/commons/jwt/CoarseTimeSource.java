@@ -0,0 +1,68 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@linkplain TimeSource} that is updated by a background daemon thread every
+ * tick, reading the time is then a single volatile read instead of a call to
+ * the system clock. <br />
+ * <br />
+ * Token claims are in seconds so the default tick of one millisecond is more
+ * than precise enough. Once {@linkplain #close()} has been called the system
+ * clock is read directly.
+ */
+public class CoarseTimeSource implements TimeSource, Closeable {
+    public static final long DEFAULT_TICK_MILLIS = 1;
+
+    private final ScheduledExecutorService executor;
+    private final long tickMillis;
+    private volatile long millis;
+    private volatile boolean closed;
+
+    public CoarseTimeSource() {
+        this(CoarseTimeSource.DEFAULT_TICK_MILLIS);
+    }
+
+    /**
+     * @param tickMillis Time between updates in milliseconds.
+     */
+    public CoarseTimeSource(long tickMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Tick must be positive number but was " + Long.toString(tickMillis));
+        }
+
+        this.tickMillis = tickMillis;
+        this.millis = System.currentTimeMillis();
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "jwt-clock");
+            t.setDaemon(true);
+            return t;
+        });
+        this.executor.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void tick() {
+        this.millis = System.currentTimeMillis();
+    }
+
+    public long getTickMillis() {
+        return this.tickMillis;
+    }
+
+    @Override
+    public long millis() {
+        if (this.closed) {
+            return System.currentTimeMillis();
+        }
+        return this.millis;
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        this.executor.shutdownNow();
+    }
+}
@@ -0,0 +1,281 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * {@linkplain RevocationStore} that keeps each entry as three primitive longs
+ * (digest high, digest low, expiration) in an open addressing hash table with
+ * linear probing. The table can optionally live in a direct buffer outside of
+ * the Java heap where it is never scanned or copied by the garbage
+ * collector. <br />
+ * <br />
+ * Lookups are optimistic reads that only fall back to a read lock if a writer
+ * modified the table at the same time. Removal uses backward shift deletion so
+ * the table never accumulates tombstones.
+ */
+public class CompactRevocationStore implements RevocationStore {
+    private static final int SLOT_SIZE = 3;
+    /* table slots, 24 bytes each so an off heap table stays below 2GB */
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int CLEAN_CHUNK = 4096;
+
+    private static final class Table {
+        private final LongBuffer slots;
+        private final int mask;
+
+        private Table(int capacity, boolean offHeap) {
+            int longs = capacity * CompactRevocationStore.SLOT_SIZE;
+            if (offHeap) {
+                this.slots = ByteBuffer.allocateDirect(longs * Long.BYTES).order(ByteOrder.nativeOrder())
+                        .asLongBuffer();
+            } else {
+                this.slots = LongBuffer.allocate(longs);
+            }
+            this.mask = capacity - 1;
+        }
+
+        private int capacity() {
+            return this.mask + 1;
+        }
+
+        private int home(long high) {
+            return (int) high & this.mask;
+        }
+
+        private long high(int slot) {
+            return this.slots.get(slot * CompactRevocationStore.SLOT_SIZE);
+        }
+
+        private long low(int slot) {
+            return this.slots.get(slot * CompactRevocationStore.SLOT_SIZE + 1);
+        }
+
+        private long expiration(int slot) {
+            return this.slots.get(slot * CompactRevocationStore.SLOT_SIZE + 2);
+        }
+
+        private boolean isEmpty(int slot) {
+            return this.high(slot) == 0 && this.low(slot) == 0;
+        }
+
+        private void set(int slot, long high, long low, long expiration) {
+            int i = slot * CompactRevocationStore.SLOT_SIZE;
+            this.slots.put(i, high);
+            this.slots.put(i + 1, low);
+            this.slots.put(i + 2, expiration);
+        }
+
+        private void setExpiration(int slot, long expiration) {
+            this.slots.put(slot * CompactRevocationStore.SLOT_SIZE + 2, expiration);
+        }
+
+        /*
+         * Probing is bounded by the capacity so an optimistic read racing a writer
+         * always terminates.
+         */
+        private int find(long high, long low) {
+            int slot = this.home(high);
+            for (int n = 0; n <= this.mask; n++) {
+                long h = this.high(slot);
+                long l = this.low(slot);
+                if (h == high && l == low) {
+                    return slot;
+                }
+                if (h == 0 && l == 0) {
+                    return -1 - slot;
+                }
+                slot = (slot + 1) & this.mask;
+            }
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private final boolean offHeap;
+    private volatile Table table;
+    private volatile int size;
+    private int cleanCursor;
+
+    public CompactRevocationStore() {
+        this(CompactRevocationStore.DEFAULT_CAPACITY, false);
+    }
+
+    /**
+     * @param initialCapacity Number of entries the table can hold before it has to
+     *                        grow.
+     * @param offHeap         Place the table in a direct buffer outside of the
+     *                        Java heap.
+     */
+    public CompactRevocationStore(int initialCapacity, boolean offHeap) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("Initial capacity must be positive number but was " + initialCapacity);
+        }
+
+        /* the table is kept at most half full */
+        int entries = Math.min(CompactRevocationStore.MAX_CAPACITY / 2, initialCapacity);
+        int capacity = Integer.highestOneBit(entries * 2 - 1) << 1;
+        this.offHeap = offHeap;
+        this.table = new Table(Math.max(16, capacity), offHeap);
+    }
+
+    public boolean isOffHeap() {
+        return this.offHeap;
+    }
+
+    public int getCapacity() {
+        return this.table.capacity() / 2;
+    }
+
+    @Override
+    public boolean put(RevocationDigest digest, long expiration) {
+        long stamp = this.lock.writeLock();
+        try {
+            Table t = this.table;
+            int slot = t.find(digest.getHigh(), digest.getLow());
+            if (slot >= 0) {
+                if (t.expiration(slot) == expiration) {
+                    return false;
+                }
+                t.setExpiration(slot, expiration);
+                return true;
+            }
+
+            if ((this.size + 1) * 2 > t.capacity()) {
+                t = this.grow(t);
+                slot = t.find(digest.getHigh(), digest.getLow());
+            }
+            t.set(-1 - slot, digest.getHigh(), digest.getLow(), expiration);
+            this.size++;
+            return true;
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    private Table grow(Table current) {
+        if (current.capacity() >= CompactRevocationStore.MAX_CAPACITY) {
+            throw new IllegalStateException("Revocation table is full");
+        }
+
+        Table t = new Table(current.capacity() << 1, this.offHeap);
+        for (int i = 0; i < current.capacity(); i++) {
+            if (!current.isEmpty(i)) {
+                long high = current.high(i);
+                long low = current.low(i);
+                t.set(-1 - t.find(high, low), high, low, current.expiration(i));
+            }
+        }
+        this.table = t;
+        return t;
+    }
+
+    @Override
+    public boolean contains(RevocationDigest digest) {
+        long stamp = this.lock.tryOptimisticRead();
+        boolean found = this.table.find(digest.getHigh(), digest.getLow()) >= 0;
+        if (this.lock.validate(stamp)) {
+            return found;
+        }
+
+        stamp = this.lock.readLock();
+        try {
+            return this.table.find(digest.getHigh(), digest.getLow()) >= 0;
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void clean(long now) {
+        long stamp = this.lock.writeLock();
+        try {
+            Table t = this.table;
+            for (int i = 0; i < t.capacity(); i++) {
+                /* deleting shifts the next entry of the cluster into this slot */
+                while (!t.isEmpty(i) && now >= t.expiration(i)) {
+                    this.delete(t, i);
+                }
+            }
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /*
+     * Cleans the table in chunks of slots, releasing the write lock in between so
+     * lookups and revocations are not blocked for the whole scan.
+     */
+    @Override
+    public boolean clean(long now, long deadline) {
+        while (true) {
+            long stamp = this.lock.writeLock();
+            try {
+                Table t = this.table;
+                int end = Math.min(t.capacity(), this.cleanCursor + CompactRevocationStore.CLEAN_CHUNK);
+                for (int i = this.cleanCursor; i < end; i++) {
+                    while (!t.isEmpty(i) && now >= t.expiration(i)) {
+                        this.delete(t, i);
+                    }
+                }
+                this.cleanCursor = end == t.capacity() ? 0 : end;
+                if (this.cleanCursor == 0) {
+                    return false;
+                }
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+
+            if (System.nanoTime() - deadline >= 0) {
+                return true;
+            }
+        }
+    }
+
+    /*
+     * Backward shift deletion: walk the rest of the cluster and move every entry
+     * whose home slot is not between the hole and its current slot into the hole.
+     */
+    private void delete(Table t, int slot) {
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & t.mask;
+            if (t.isEmpty(next)) {
+                break;
+            }
+
+            int home = t.home(t.high(next));
+            boolean stays = hole < next ? home > hole && home <= next : home > hole || home <= next;
+            if (!stays) {
+                t.set(hole, t.high(next), t.low(next), t.expiration(next));
+                hole = next;
+            }
+        }
+        t.set(hole, 0, 0, 0);
+        this.size--;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public void forEach(EntryConsumer consumer) {
+        long stamp = this.lock.readLock();
+        try {
+            Table t = this.table;
+            for (int i = 0; i < t.capacity(); i++) {
+                if (!t.isEmpty(i)) {
+                    consumer.accept(t.high(i), t.low(i), t.expiration(i));
+                }
+            }
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.lc.oss.commons.jwt;
+
+/**
+ * Segment offsets of a compact serialized token
+ * (<code>header.payload.signature</code>) found with a single scan of the
+ * encoded String. The segments themselves are only copied out on request,
+ * callers that can work with ranges should prefer the offset and length
+ * accessors together with {@linkplain #getSigningInput()}.
+ */
+public final class CompactToken {
+    private final String encoded;
+    private final int headerEnd;
+    private final int payloadEnd;
+    private byte[] signingInput;
+
+    /**
+     * Scans the provided token and returns the segment offsets or
+     * <code>null</code> if the value is not exactly three non-empty segments of
+     * Base64 (standard or URL safe alphabet) characters.
+     */
+    public static CompactToken parse(String encoded) {
+        if (encoded == null) {
+            return null;
+        }
+
+        int first = -1;
+        int second = -1;
+        int length = encoded.length();
+        for (int i = 0; i < length; i++) {
+            char c = encoded.charAt(i);
+            if (c == '.') {
+                if (first < 0) {
+                    first = i;
+                } else if (second < 0) {
+                    second = i;
+                } else {
+                    return null;
+                }
+            } else if (!CompactToken.isBase64(c)) {
+                return null;
+            }
+        }
+
+        if (second < 0 || first == 0 || second == first + 1 || second == length - 1) {
+            return null;
+        }
+        return new CompactToken(encoded, first, second);
+    }
+
+    static boolean isBase64(char c) {
+        return (c >= 'A' && c <= 'Z') || //
+                (c >= 'a' && c <= 'z') || //
+                (c >= '0' && c <= '9') || //
+                c == '-' || c == '_' || c == '+' || c == '/' || c == '=';
+    }
+
+    private CompactToken(String encoded, int headerEnd, int payloadEnd) {
+        this.encoded = encoded;
+        this.headerEnd = headerEnd;
+        this.payloadEnd = payloadEnd;
+    }
+
+    public String getEncoded() {
+        return this.encoded;
+    }
+
+    public int getHeaderLength() {
+        return this.headerEnd;
+    }
+
+    public int getPayloadOffset() {
+        return this.headerEnd + 1;
+    }
+
+    public int getPayloadLength() {
+        return this.payloadEnd - this.headerEnd - 1;
+    }
+
+    public int getSignatureOffset() {
+        return this.payloadEnd + 1;
+    }
+
+    public String getHeader() {
+        return this.encoded.substring(0, this.headerEnd);
+    }
+
+    public String getPayload() {
+        return this.encoded.substring(this.getPayloadOffset(), this.payloadEnd);
+    }
+
+    public String getSignature() {
+        return this.encoded.substring(this.getSignatureOffset());
+    }
+
+    /**
+     * The ASCII bytes of <code>header.payload</code>, i.e. the data covered by
+     * the signature. The header and payload segments can be read directly from
+     * this array using the offset and length accessors. The array is created on
+     * first access and shared afterwards, callers must not modify it.
+     */
+    public byte[] getSigningInput() {
+        if (this.signingInput == null) {
+            byte[] bytes = new byte[this.payloadEnd];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) this.encoded.charAt(i);
+            }
+            this.signingInput = bytes;
+        }
+        return this.signingInput;
+    }
+}
@@ -0,0 +1,152 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@linkplain JwtMetrics} counting accepted tokens and rejected tokens per
+ * {@linkplain JwtMetrics.RejectionReason}. <br />
+ * <br />
+ * Optionally the duration of each {@linkplain JwtMetrics.Stage} is recorded in
+ * a histogram with power of two buckets, bucket <code>n</code> counts
+ * durations of less than <code>2^n</code> nanoseconds (and at least
+ * <code>2^(n-1)</code>).
+ */
+public class CountingJwtMetrics implements JwtMetrics {
+    private static final int BUCKETS = 64;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder[] rejected = new LongAdder[RejectionReason.values().length];
+    private final LongAdder[] totals;
+    private final AtomicLongArray[] histograms;
+    private final boolean timing;
+
+    public CountingJwtMetrics() {
+        this(false);
+    }
+
+    /**
+     * @param timing Whether to record the duration of each stage.
+     */
+    public CountingJwtMetrics(boolean timing) {
+        for (int i = 0; i < this.rejected.length; i++) {
+            this.rejected[i] = new LongAdder();
+        }
+
+        this.timing = timing;
+        int stages = Stage.values().length;
+        this.totals = new LongAdder[stages];
+        this.histograms = new AtomicLongArray[stages];
+        for (int i = 0; i < stages; i++) {
+            this.totals[i] = new LongAdder();
+            this.histograms[i] = new AtomicLongArray(CountingJwtMetrics.BUCKETS);
+        }
+    }
+
+    @Override
+    public void accepted() {
+        this.accepted.increment();
+    }
+
+    @Override
+    public void rejected(RejectionReason reason) {
+        this.rejected[reason.ordinal()].increment();
+    }
+
+    @Override
+    public boolean isTimingEnabled() {
+        return this.timing;
+    }
+
+    @Override
+    public void timing(Stage stage, long nanos) {
+        long n = Math.max(0, nanos);
+        this.totals[stage.ordinal()].add(n);
+        /* the bit length of the duration */
+        this.histograms[stage.ordinal()].incrementAndGet(64 - Long.numberOfLeadingZeros(n));
+    }
+
+    public long getAccepted() {
+        return this.accepted.sum();
+    }
+
+    public long getRejected(RejectionReason reason) {
+        return this.rejected[reason.ordinal()].sum();
+    }
+
+    public long getRejected() {
+        long sum = 0;
+        for (LongAdder r : this.rejected) {
+            sum += r.sum();
+        }
+        return sum;
+    }
+
+    public long getCount(Stage stage) {
+        long sum = 0;
+        for (long count : this.getHistogram(stage)) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    public long getTotalNanos(Stage stage) {
+        return this.totals[stage.ordinal()].sum();
+    }
+
+    /**
+     * @return A copy of the bucket counts of the stage.
+     */
+    public long[] getHistogram(Stage stage) {
+        AtomicLongArray histogram = this.histograms[stage.ordinal()];
+        long[] counts = new long[CountingJwtMetrics.BUCKETS];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = histogram.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Upper bound in nanoseconds of the duration of the provided fraction (e.g.
+     * <code>0.99</code>) of the recorded durations of the stage, or
+     * <code>0</code> if none were recorded.
+     */
+    public long getPercentileNanos(Stage stage, double fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException(
+                    "Fraction must be between 0 and 1 but was " + Double.toString(fraction));
+        }
+
+        long[] counts = this.getHistogram(stage);
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(total * fraction));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return i == CountingJwtMetrics.BUCKETS - 1 ? Long.MAX_VALUE : 1L << i;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public void reset() {
+        this.accepted.reset();
+        for (LongAdder r : this.rejected) {
+            r.reset();
+        }
+        for (int i = 0; i < this.totals.length; i++) {
+            this.totals[i].reset();
+            for (int j = 0; j < CountingJwtMetrics.BUCKETS; j++) {
+                this.histograms[i].set(j, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,494 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import io.github.lc.oss.commons.signing.Algorithm;
+import io.github.lc.oss.commons.signing.Algorithms;
+
+/**
+ * Key source backed by a directory of PEM (<code>.pem</code>) and JWK
+ * (<code>.jwk</code>, <code>.json</code>) files. <br />
+ * <br />
+ * PEM files hold a <code>PUBLIC KEY</code> (validation) and/or a
+ * <code>PRIVATE KEY</code> (signing) block and are indexed by the file name up
+ * to the first dot, e.g. <code>k-1.pub.pem</code> and <code>k-1.key.pem</code>
+ * both hold key id <code>k-1</code>. JWK files hold a single key or a key set,
+ * keys are indexed by their <code>kid</code> or else the file name. Symmetric
+ * (<code>oct</code>) keys are used for both signing and validation, public
+ * <code>RSA</code>, <code>EC</code> and <code>OKP</code> keys are converted to
+ * their X.509 encoding. Hidden files are ignored so keys can be written to a
+ * hidden temporary file and then moved into place. <br />
+ * <br />
+ * {@linkplain #load(String, Algorithm)} only returns symmetric keys for HMAC
+ * algorithms and public keys for key based algorithms, so a public key can
+ * never be used as an HMAC secret. <br />
+ * <br />
+ * Keys are served from an immutable snapshot that is replaced atomically.
+ * When watching is enabled a background thread reparses only the files that
+ * changed. A file that fails to parse, e.g. because it is still being written,
+ * keeps serving its previous keys until it parses again. <br />
+ * <br />
+ * Returned keys are shared and must not be modified.
+ */
+public class FileKeySource implements KeyRing.KeySource, Closeable {
+    private static final long SETTLE_MILLIS = 50;
+    private static final byte[] ED25519_PREFIX = { 0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21,
+            0x00 };
+    private static final byte[] ED448_PREFIX = { 0x30, 0x43, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x71, 0x03, 0x3a,
+            0x00 };
+
+    public static final class KeyEntry {
+        private final String keyId;
+        private final String algorithm;
+        private final byte[] validateKey;
+        private final byte[] signKey;
+        private final boolean symmetric;
+
+        private KeyEntry(String keyId, String algorithm, byte[] validateKey, byte[] signKey, boolean symmetric) {
+            this.keyId = keyId;
+            this.algorithm = algorithm;
+            this.validateKey = validateKey;
+            this.signKey = signKey;
+            this.symmetric = symmetric;
+        }
+
+        private KeyEntry merge(KeyEntry other) {
+            return new KeyEntry(this.keyId, other.algorithm == null ? this.algorithm : other.algorithm,
+                    other.validateKey == null ? this.validateKey : other.validateKey,
+                    other.signKey == null ? this.signKey : other.signKey,
+                    other.validateKey == null ? this.symmetric : other.symmetric);
+        }
+
+        public String getKeyId() {
+            return this.keyId;
+        }
+
+        /**
+         * Algorithm id the key is restricted to or <code>null</code> if the file
+         * does not specify one.
+         */
+        public String getAlgorithm() {
+            return this.algorithm;
+        }
+
+        public byte[] getValidateKey() {
+            return this.validateKey;
+        }
+
+        public byte[] getSignKey() {
+            return this.signKey;
+        }
+
+        /**
+         * <code>true</code> for symmetric (<code>oct</code>) keys,
+         * <code>false</code> for public keys.
+         */
+        public boolean isSymmetric() {
+            return this.symmetric;
+        }
+    }
+
+    private static final class Snapshot {
+        private final Map<Path, List<KeyEntry>> files;
+        private final Map<String, KeyEntry> keys;
+
+        private Snapshot(Map<Path, List<KeyEntry>> files) {
+            /* sorted so that keys defined in several files merge deterministically */
+            this.files = Collections.unmodifiableMap(new TreeMap<>(files));
+            Map<String, KeyEntry> keys = new HashMap<>();
+            for (List<KeyEntry> entries : this.files.values()) {
+                for (KeyEntry e : entries) {
+                    keys.merge(e.keyId, e, KeyEntry::merge);
+                }
+            }
+            this.keys = Collections.unmodifiableMap(keys);
+        }
+    }
+
+    private final Path directory;
+    private final WatchService watcher;
+    private final Thread thread;
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyMap());
+    private volatile long version;
+
+    public FileKeySource(Path directory) {
+        this(directory, false);
+    }
+
+    /**
+     * Loads all keys in the directory.
+     *
+     * @param watch Watch the directory and reload changed files on a daemon
+     *              thread until {@linkplain #close()} is called.
+     */
+    public FileKeySource(Path directory, boolean watch) {
+        if (directory == null || !Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("Directory is required");
+        }
+
+        this.directory = directory;
+        try {
+            if (watch) {
+                /* registered before the initial load so no change is missed */
+                this.watcher = directory.getFileSystem().newWatchService();
+                directory.register(this.watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            } else {
+                this.watcher = null;
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Error watching key directory.", ex);
+        }
+
+        this.reload();
+
+        if (watch) {
+            this.thread = new Thread(this::watch, "jwt-key-watcher");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        } else {
+            this.thread = null;
+        }
+    }
+
+    /**
+     * Default implementation does not log anything. To log a message override this
+     * method.
+     */
+    protected void log(String message, Throwable ex) {
+    }
+
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Incremented every time a new snapshot is published.
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    public Set<String> getKeyIds() {
+        return this.snapshot.keys.keySet();
+    }
+
+    public KeyEntry getKey(String keyId) {
+        return keyId == null ? null : this.snapshot.keys.get(keyId);
+    }
+
+    public byte[] getValidateKey(String keyId) {
+        KeyEntry entry = this.getKey(keyId);
+        return entry == null ? null : entry.validateKey;
+    }
+
+    public byte[] getSignKey(String keyId) {
+        KeyEntry entry = this.getKey(keyId);
+        return entry == null ? null : entry.signKey;
+    }
+
+    /**
+     * Returns the validation key if its type fits the algorithm (symmetric keys
+     * for HMAC algorithms, public keys for key based algorithms) and the key is
+     * not restricted to a different algorithm.
+     */
+    @Override
+    public byte[] load(String keyId, Algorithm algorithm) {
+        KeyEntry entry = this.getKey(keyId);
+        if (entry == null || algorithm == null
+                || (entry.algorithm != null && !entry.algorithm.equals(algorithm.getId()))) {
+            return null;
+        }
+
+        if (entry.symmetric ? !FileKeySource.contains(Algorithms.hmacAlgorithms(), algorithm)
+                : !FileKeySource.contains(Algorithms.keyAlgorithms(), algorithm)) {
+            return null;
+        }
+        return entry.validateKey;
+    }
+
+    private static boolean contains(Set<Algorithm> algorithms, Algorithm algorithm) {
+        for (Algorithm a : algorithms) {
+            if (a.getId().equals(algorithm.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reparses every file in the directory.
+     */
+    public void reload() {
+        List<Path> files = new ArrayList<>(this.snapshot.files.keySet());
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory)) {
+            for (Path p : stream) {
+                files.add(p);
+            }
+        } catch (IOException ex) {
+            this.log("Error listing key directory", ex);
+            return;
+        }
+        this.reload(files);
+    }
+
+    /**
+     * Reparses the provided files and publishes a new snapshot. Files that no
+     * longer exist are removed, files that fail to parse keep their previous
+     * keys.
+     */
+    public synchronized void reload(Collection<Path> files) {
+        Map<Path, List<KeyEntry>> current = new HashMap<>(this.snapshot.files);
+        for (Path file : new HashSet<>(files)) {
+            Path p = this.directory.resolve(file.getFileName());
+            if (!FileKeySource.isKeyFile(p) || !Files.isRegularFile(p)) {
+                current.remove(p);
+                continue;
+            }
+
+            try {
+                current.put(p, FileKeySource.parse(p));
+            } catch (IOException | RuntimeException ex) {
+                this.log("Error loading key file " + p, ex);
+            }
+        }
+
+        this.snapshot = new Snapshot(current);
+        this.version++;
+    }
+
+    private static boolean isKeyFile(Path file) {
+        String name = file.getFileName().toString();
+        return !name.startsWith(".") && (name.endsWith(".pem") || name.endsWith(".jwk") || name.endsWith(".json"));
+    }
+
+    private void watch() {
+        while (true) {
+            try {
+                WatchKey key = this.watcher.take();
+                Set<Path> changed = new HashSet<>();
+                boolean overflow = false;
+                /* changes usually arrive as several events, let them settle */
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                        } else {
+                            changed.add((Path) event.context());
+                        }
+                    }
+                    key.reset();
+                    key = this.watcher.poll(FileKeySource.SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+
+                if (overflow) {
+                    this.reload();
+                } else if (!changed.isEmpty()) {
+                    this.reload(changed);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                /* closed */
+                return;
+            } catch (RuntimeException ex) {
+                /* keep watching, the next change reloads the files again */
+                this.log("Error watching key directory", ex);
+            }
+        }
+    }
+
+    static List<KeyEntry> parse(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        String fileKeyId = name.substring(0, name.indexOf('.'));
+        byte[] content = Files.readAllBytes(file);
+        List<KeyEntry> keys = name.endsWith(".pem") ? FileKeySource.parsePem(fileKeyId, content)
+                : FileKeySource.parseJwk(fileKeyId, content);
+        if (keys.isEmpty()) {
+            throw new RuntimeException("No keys found.");
+        }
+        return keys;
+    }
+
+    private static List<KeyEntry> parsePem(String keyId, byte[] content) {
+        String pem = new String(content, StandardCharsets.US_ASCII);
+        byte[] validateKey = null;
+        byte[] signKey = null;
+        int index = 0;
+        while ((index = pem.indexOf("-----BEGIN ", index)) >= 0) {
+            int typeEnd = pem.indexOf("-----", index + 11);
+            if (typeEnd < 0) {
+                throw new RuntimeException("Invalid PEM block.");
+            }
+            String type = pem.substring(index + 11, typeEnd);
+            String footer = "-----END " + type + "-----";
+            int end = pem.indexOf(footer, typeEnd);
+            if (end < 0) {
+                throw new RuntimeException("Invalid PEM block.");
+            }
+
+            byte[] der = Base64.getMimeDecoder().decode(pem.substring(typeEnd + 5, end));
+            if (type.equals("PUBLIC KEY")) {
+                validateKey = der;
+            } else if (type.equals("PRIVATE KEY")) {
+                signKey = der;
+            }
+            index = end + footer.length();
+        }
+
+        if (validateKey == null && signKey == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(new KeyEntry(keyId, null, validateKey, signKey, false));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<KeyEntry> parseJwk(String fileKeyId, byte[] content) {
+        Map<String, Object> json = Util.fromJson(content, 0, content.length, Map.class);
+        List<Map<String, Object>> jwks;
+        if (json.get("keys") instanceof List) {
+            jwks = (List<Map<String, Object>>) json.get("keys");
+        } else {
+            jwks = Collections.singletonList(json);
+        }
+
+        List<KeyEntry> keys = new ArrayList<>();
+        for (Map<String, Object> jwk : jwks) {
+            String keyId = jwk.get("kid") instanceof String ? (String) jwk.get("kid") : fileKeyId;
+            String alg = jwk.get("alg") instanceof String ? (String) jwk.get("alg") : null;
+            String kty = String.valueOf(jwk.get("kty"));
+            try {
+                switch (kty) {
+                    case "oct":
+                        byte[] secret = FileKeySource.decode(jwk, "k");
+                        keys.add(new KeyEntry(keyId, alg, secret, secret, true));
+                        break;
+                    case "RSA":
+                        RSAPublicKeySpec rsa = new RSAPublicKeySpec(new BigInteger(1, FileKeySource.decode(jwk, "n")),
+                                new BigInteger(1, FileKeySource.decode(jwk, "e")));
+                        keys.add(new KeyEntry(keyId, alg,
+                                KeyFactory.getInstance("RSA").generatePublic(rsa).getEncoded(), null, false));
+                        break;
+                    case "EC":
+                        keys.add(new KeyEntry(keyId, alg, FileKeySource.ecPublicKey(jwk), null, false));
+                        break;
+                    case "OKP":
+                        keys.add(new KeyEntry(keyId, alg, FileKeySource.okpPublicKey(jwk), null, false));
+                        break;
+                    default:
+                        /* unsupported key types are skipped */
+                        break;
+                }
+            } catch (GeneralSecurityException ex) {
+                throw new RuntimeException("Error parsing JWK.", ex);
+            }
+        }
+        return keys;
+    }
+
+    private static byte[] decode(Map<String, Object> jwk, String member) {
+        Object value = jwk.get(member);
+        if (!(value instanceof String)) {
+            throw new RuntimeException("JWK member " + member + " is required.");
+        }
+        return Base64.getUrlDecoder().decode((String) value);
+    }
+
+    private static byte[] ecPublicKey(Map<String, Object> jwk) throws GeneralSecurityException {
+        String curve;
+        switch (String.valueOf(jwk.get("crv"))) {
+            case "P-256":
+                curve = "secp256r1";
+                break;
+            case "P-384":
+                curve = "secp384r1";
+                break;
+            case "P-521":
+                curve = "secp521r1";
+                break;
+            default:
+                throw new RuntimeException("Unsupported curve " + jwk.get("crv") + ".");
+        }
+
+        AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+        parameters.init(new ECGenParameterSpec(curve));
+        ECPoint point = new ECPoint(new BigInteger(1, FileKeySource.decode(jwk, "x")),
+                new BigInteger(1, FileKeySource.decode(jwk, "y")));
+        ECPublicKeySpec spec = new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class));
+        return KeyFactory.getInstance("EC").generatePublic(spec).getEncoded();
+    }
+
+    private static byte[] okpPublicKey(Map<String, Object> jwk) {
+        byte[] prefix;
+        int length;
+        switch (String.valueOf(jwk.get("crv"))) {
+            case "Ed25519":
+                prefix = FileKeySource.ED25519_PREFIX;
+                length = 32;
+                break;
+            case "Ed448":
+                prefix = FileKeySource.ED448_PREFIX;
+                length = 57;
+                break;
+            default:
+                throw new RuntimeException("Unsupported curve " + jwk.get("crv") + ".");
+        }
+
+        byte[] x = FileKeySource.decode(jwk, "x");
+        if (x.length != length) {
+            throw new RuntimeException("Invalid JWK member x.");
+        }
+
+        byte[] encoded = new byte[prefix.length + length];
+        System.arraycopy(prefix, 0, encoded, 0, prefix.length);
+        System.arraycopy(x, 0, encoded, prefix.length, length);
+        return encoded;
+    }
+
+    @Override
+    public void close() {
+        if (this.watcher == null) {
+            return;
+        }
+
+        try {
+            this.watcher.close();
+        } catch (IOException ex) {
+            throw new RuntimeException("Error closing key directory watcher.", ex);
+        }
+
+        try {
+            this.thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
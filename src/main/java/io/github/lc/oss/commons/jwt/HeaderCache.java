@@ -0,0 +1,116 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.lc.oss.commons.signing.Algorithm;
+
+/**
+ * Bounded, thread safe cache from the raw (Base64) header segment of a token to
+ * the parsed header together with its resolved {@linkplain Algorithm} and the
+ * result of {@linkplain JwtService#isAlgorithmAllowed(Algorithm)}. Most deployments only ever see a handful of distinct headers so a lookup
+ * replaces decoding, parsing and resolving the header on every validation.
+ * <br />
+ * <br />
+ * The cache is direct mapped, a header competing for the same slot simply
+ * replaces the previous one. Entries never expire, call {@linkplain #clear()}
+ * when the permitted algorithms change.
+ */
+public class HeaderCache {
+    public static final class Entry {
+        private final String segment;
+        private final int hash;
+        private final JwtHeader header;
+        private final Algorithm algorithm;
+        private final boolean allowed;
+
+        private Entry(String segment, int hash, JwtHeader header, Algorithm algorithm, boolean allowed) {
+            this.segment = segment;
+            this.hash = hash;
+            this.header = ValidationCache.copy(header);
+            this.algorithm = algorithm;
+            this.allowed = allowed;
+        }
+
+        /**
+         * Returns the cached header itself, it is shared by every token with the
+         * same header and must not be modified.
+         */
+        public JwtHeader getHeader() {
+            return this.header;
+        }
+
+        public Algorithm getAlgorithm() {
+            return this.algorithm;
+        }
+
+        public boolean isAllowed() {
+            return this.allowed;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param size Number of slots, rounded up to a power of two.
+     */
+    public HeaderCache(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Size must be positive number but was " + size);
+        }
+
+        this.entries = new AtomicReferenceArray<>(Integer.highestOneBit(Math.min(1 << 20, size) * 2 - 1));
+    }
+
+    /**
+     * Looks up the header segment made of the first <code>length</code>
+     * characters of the encoded token without copying it.
+     */
+    public Entry get(String encoded, int length) {
+        int hash = HeaderCache.hash(encoded, length);
+        Entry entry = this.entries.get(hash & (this.entries.length() - 1));
+        if (entry == null || entry.hash != hash || entry.segment.length() != length
+                || !encoded.regionMatches(0, entry.segment, 0, length)) {
+            this.misses.increment();
+            return null;
+        }
+
+        this.hits.increment();
+        return entry;
+    }
+
+    public Entry put(String segment, JwtHeader header, Algorithm algorithm, boolean allowed) {
+        int hash = HeaderCache.hash(segment, segment.length());
+        Entry entry = new Entry(segment, hash, header, algorithm, allowed);
+        this.entries.set(hash & (this.entries.length() - 1), entry);
+        return entry;
+    }
+
+    private static int hash(String s, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    public void clear() {
+        for (int i = 0; i < this.entries.length(); i++) {
+            this.entries.set(i, null);
+        }
+    }
+
+    public int getSize() {
+        return this.entries.length();
+    }
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+}
@@ -20,6 +20,14 @@ public class Jwt {
     }
 
     public boolean validate(String audience, Set<String> issuers) {
+        return this.validate(audience, issuers, System.currentTimeMillis());
+    }
+
+    /**
+     * @param nowMillis Current time in milliseconds the time claims are checked
+     *                  against.
+     */
+    public boolean validate(String audience, Set<String> issuers, long nowMillis) {
         if (Util.isBlank(this.header) || //
                 Util.isBlank(this.payload) || //
                 Util.isBlank(audience) || //
@@ -47,7 +55,7 @@ public class Jwt {
         notBefore = notBefore - Jwt.TOLERANCE;
         issuedAt = issuedAt - Jwt.TOLERANCE;
 
-        long now = System.currentTimeMillis() / 1000;
+        long now = nowMillis / 1000;
         if (expires <= now || notBefore > now || issuedAt > now) {
             return false;
         }
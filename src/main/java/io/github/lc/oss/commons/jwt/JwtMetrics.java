@@ -0,0 +1,104 @@
+package io.github.lc.oss.commons.jwt;
+
+/**
+ * Receives the outcome of every token validated by a {@linkplain JwtService}
+ * and, if {@linkplain #isTimingEnabled()}, the time spent in each stage of the
+ * validation. Implementations must be thread safe and should return quickly,
+ * they are called on the validating thread. <br />
+ * <br />
+ * All methods default to doing nothing, {@linkplain #NOOP} is used unless
+ * {@linkplain JwtService} is configured otherwise.
+ */
+public interface JwtMetrics {
+    /**
+     * Why a token was rejected.
+     */
+    enum RejectionReason {
+        /**
+         * Not a well formed compact token.
+         */
+        PARSE,
+        /**
+         * The signature has been revoked.
+         */
+        REVOKED,
+        /**
+         * The header is missing or not of type JWT.
+         */
+        TYPE,
+        /**
+         * The algorithm is not allowed.
+         */
+        ALGORITHM,
+        /**
+         * No secret could be located for the token.
+         */
+        SECRET,
+        /**
+         * The signature does not match.
+         */
+        SIGNATURE,
+        /**
+         * The claims failed validation (e.g. expired or wrong audience).
+         */
+        CLAIMS,
+        /**
+         * An unexpected error, most commonly invalid Base64 or JSON.
+         */
+        EXCEPTION
+    }
+
+    /**
+     * Timed stages of a validation.
+     */
+    enum Stage {
+        /**
+         * Locating the segments of the token.
+         */
+        PARSE,
+        /**
+         * Decoding and checking the header.
+         */
+        HEADER,
+        /**
+         * Resolving the validation secret.
+         */
+        KEY_LOOKUP,
+        /**
+         * Checking the claims before the signature is verified.
+         */
+        PRE_CHECK,
+        /**
+         * Verifying the signature.
+         */
+        VERIFY,
+        /**
+         * Decoding the payload.
+         */
+        PAYLOAD,
+        /**
+         * Checking the claims.
+         */
+        CLAIMS
+    }
+
+    JwtMetrics NOOP = new JwtMetrics() {
+    };
+
+    default void accepted() {
+    }
+
+    default void rejected(RejectionReason reason) {
+    }
+
+    /**
+     * When <code>false</code> (the default) stages are not timed at all and
+     * {@linkplain #timing(Stage, long)} is never called.
+     */
+    default boolean isTimingEnabled() {
+        return false;
+    }
+
+    default void timing(Stage stage, long nanos) {
+    }
+}
@@ -1,15 +1,66 @@
 package io.github.lc.oss.commons.jwt;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-
+import java.util.function.BiConsumer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Claims of a token. <br />
+ * <br />
+ * A payload created with {@linkplain #lazy(byte[], int, int)} only extracts the
+ * registered claims with a streaming scan of the JSON and keeps the raw bytes,
+ * the map itself is populated on first access of any other claim.
+ */
 public class JwtPayload extends AbstractJwtMap {
     private static final long serialVersionUID = 8801866891768624394L;
 
+    /*
+     * Typed snapshot of the registered claims, built on first access and dropped
+     * whenever the map is modified.
+     */
+    private static final class Claims {
+        private final String issuer;
+        private final String subject;
+        private final String tokenId;
+        private final Long expiration;
+        private final Long notBefore;
+        private final Long issuedAt;
+
+        /* only known for scanned payloads */
+        private final Set<String> audience;
+
+        private Claims(JwtPayload payload) {
+            this.issuer = payload.getString(Keys.Issuer);
+            this.subject = payload.getString(Keys.Subject);
+            this.tokenId = payload.getString(Keys.JwtId);
+            this.expiration = payload.getLong(Keys.ExpirationDate);
+            this.notBefore = payload.getLong(Keys.NotBefore);
+            this.issuedAt = payload.getLong(Keys.IssuedAt);
+            this.audience = null;
+        }
+
+        private Claims(Map<String, Object> scanned) {
+            this.issuer = (String) scanned.get(Keys.Issuer);
+            this.subject = (String) scanned.get(Keys.Subject);
+            this.tokenId = (String) scanned.get(Keys.JwtId);
+            this.expiration = (Long) scanned.get(Keys.ExpirationDate);
+            this.notBefore = (Long) scanned.get(Keys.NotBefore);
+            this.issuedAt = (Long) scanned.get(Keys.IssuedAt);
+            @SuppressWarnings("unchecked")
+            Set<String> aud = (Set<String>) scanned.get(Keys.Audience);
+            this.audience = aud;
+        }
+    }
+
     public static class Keys {
         public static final String Issuer = "iss";
         public static final String Subject = "sub";
@@ -26,7 +77,252 @@ public class JwtPayload extends AbstractJwtMap {
         }
     }
 
+    private transient volatile Claims claims;
+    private transient Object[] permissionViews;
+    private transient volatile byte[] pending;
+    private transient int pendingOffset;
+    private transient int pendingLength;
+
+    /**
+     * Creates a payload from UTF-8 JSON that only extracts the registered claims
+     * up front. The JSON is validated completely, the other claims are parsed on
+     * first access. The array must not be modified afterwards.
+     */
+    public static JwtPayload lazy(byte[] json, int offset, int length) {
+        JwtPayload payload = JwtPayload.scanned(json, offset, length);
+        if (payload == null) {
+            /* unusual structure, let the full parser decide */
+            return Util.fromJson(json, offset, length, JwtPayload.class);
+        }
+        return payload;
+    }
+
+    /*
+     * Same as lazy but returns null instead of falling back to the full parser,
+     * never throws.
+     */
+    static JwtPayload scanned(byte[] json, int offset, int length) {
+        Map<String, Object> scanned = JwtPayload.scan(json, offset, length);
+        if (scanned == null) {
+            return null;
+        }
+
+        JwtPayload payload = new JwtPayload();
+        payload.claims = new Claims(scanned);
+        payload.pendingOffset = offset;
+        payload.pendingLength = length;
+        payload.pending = json;
+        return payload;
+    }
+
+    /*
+     * Streaming scan of the registered claims with the same rules as getString
+     * and getLong. Returns null if the document is not an object or the audience
+     * is neither a String nor an array of Strings.
+     */
+    private static Map<String, Object> scan(byte[] json, int offset, int length) {
+        Map<String, Object> claims = new HashMap<>();
+        try (JsonParser parser = Util.createParser(json, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (name) {
+                    case Keys.Issuer:
+                    case Keys.Subject:
+                    case Keys.JwtId:
+                        claims.put(name, value == JsonToken.VALUE_STRING ? JwtPayload.trimToNull(parser.getText()) : null);
+                        break;
+                    case Keys.ExpirationDate:
+                    case Keys.NotBefore:
+                    case Keys.IssuedAt:
+                        claims.put(name, value.isNumeric() ? JwtPayload.positive(parser.getNumberValue()) : null);
+                        break;
+                    case Keys.Audience:
+                        if (value == JsonToken.VALUE_NULL) {
+                            claims.remove(name);
+                        } else if (value == JsonToken.VALUE_STRING) {
+                            claims.put(name, Collections.singleton(parser.getText()));
+                        } else if (value == JsonToken.START_ARRAY) {
+                            Set<String> audience = new HashSet<>();
+                            while (parser.nextToken() == JsonToken.VALUE_STRING) {
+                                audience.add(parser.getText());
+                            }
+                            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                                return null;
+                            }
+                            claims.put(name, Collections.unmodifiableSet(audience));
+                        } else {
+                            return null;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                parser.skipChildren();
+            }
+
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                return null;
+            }
+        } catch (IOException ex) {
+            return null;
+        }
+        return claims;
+    }
+
+    private static String trimToNull(String value) {
+        String s = value.trim();
+        return s.equals("") ? null : s;
+    }
+
+    private static Long positive(Number value) {
+        long l = value.longValue();
+        return l < 0 ? null : l;
+    }
+
+    /**
+     * <code>false</code> while a payload created by
+     * {@linkplain #lazy(byte[], int, int)} has not been fully parsed yet.
+     */
+    public boolean isInflated() {
+        return this.pending == null;
+    }
+
+    private void inflate() {
+        if (this.pending == null) {
+            return;
+        }
+
+        synchronized (this) {
+            byte[] json = this.pending;
+            if (json == null) {
+                return;
+            }
+
+            this.putAllUntracked(Util.fromJson(json, this.pendingOffset, this.pendingLength, JwtPayload.class));
+            this.pending = null;
+        }
+    }
+
+    private Claims getClaims() {
+        Claims c = this.claims;
+        if (c == null) {
+            c = new Claims(this);
+            this.claims = c;
+        }
+        return c;
+    }
+
+    @Override
+    protected void beforeModification() {
+        this.inflate();
+        super.beforeModification();
+        this.claims = null;
+        this.permissionViews = null;
+    }
+
+    @Override
+    public Object get(Object key) {
+        this.inflate();
+        return super.get(key);
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        this.inflate();
+        return super.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        this.inflate();
+        return super.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        this.inflate();
+        return super.containsValue(value);
+    }
+
+    @Override
+    public int size() {
+        this.inflate();
+        return super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        this.inflate();
+        return super.isEmpty();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        this.inflate();
+        return super.keySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        this.inflate();
+        return super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        this.inflate();
+        return super.entrySet();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        this.inflate();
+        super.forEach(action);
+    }
+
+    @Override
+    public Object clone() {
+        this.inflate();
+        JwtPayload clone = (JwtPayload) super.clone();
+        clone.permissionViews = null;
+        return clone;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        this.inflate();
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        this.inflate();
+        return super.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        this.inflate();
+        return super.toString();
+    }
+
+    /*
+     * HashMap serializes its table directly, make sure it is populated first.
+     */
+    protected Object writeReplace() {
+        this.inflate();
+        return this;
+    }
+
     public Set<String> getAudience() {
+        if (this.pending != null) {
+            return this.getClaims().audience;
+        }
         return this.getSet(Keys.Audience);
     }
 
@@ -39,14 +335,15 @@ public class JwtPayload extends AbstractJwtMap {
     }
 
     public Long getExpiration() {
-        return this.getLong(Keys.ExpirationDate);
+        return this.getClaims().expiration;
     }
 
     public Long getExpirationMillis() {
-        if (this.getExpiration() == null) {
+        Long expiration = this.getExpiration();
+        if (expiration == null) {
             return null;
         }
-        return this.getExpiration() * 1000;
+        return expiration * 1000;
     }
 
     public void setExpiration(long seconds) {
@@ -58,7 +355,7 @@ public class JwtPayload extends AbstractJwtMap {
     }
 
     public Long getIssuedAt() {
-        return this.getLong(Keys.IssuedAt);
+        return this.getClaims().issuedAt;
     }
 
     public void setIssuedAt(long seconds) {
@@ -70,7 +367,7 @@ public class JwtPayload extends AbstractJwtMap {
     }
 
     public Long getNotBefore() {
-        return this.getLong(Keys.NotBefore);
+        return this.getClaims().notBefore;
     }
 
     public void setNotBefore(long seconds) {
@@ -82,7 +379,7 @@ public class JwtPayload extends AbstractJwtMap {
     }
 
     public String getIssuer() {
-        return this.getString(Keys.Issuer);
+        return this.getClaims().issuer;
     }
 
     public void setIssuer(String issuer) {
@@ -90,7 +387,7 @@ public class JwtPayload extends AbstractJwtMap {
     }
 
     public String getSubject() {
-        return this.getString(Keys.Subject);
+        return this.getClaims().subject;
     }
 
     public void setSubject(String subject) {
@@ -98,7 +395,7 @@ public class JwtPayload extends AbstractJwtMap {
     }
 
     public String getTokenId() {
-        return this.getString(Keys.JwtId);
+        return this.getClaims().tokenId;
     }
 
     public void setTokenId(String tokenId) {
@@ -114,13 +411,41 @@ public class JwtPayload extends AbstractJwtMap {
     }
 
     public boolean hasPermission(String audience, String permission) {
-        Collection<String> permissions = this.getPermissions(audience);
+        Collection<?> permissions = this.getPermissionLookup(audience);
         if (permissions == null) {
             return false;
         }
         return permissions.contains(permission);
     }
 
+    /*
+     * Permissions are usually decoded as lists. The first check of an audience
+     * searches the list, repeated checks use a memoized set of it instead.
+     */
+    private Collection<?> getPermissionLookup(String audience) {
+        Map<String, Object> permissions = this.getMap(Keys.Permissions);
+        if (permissions == null) {
+            return null;
+        }
+
+        Object value = permissions.get(audience);
+        if (!(value instanceof Collection)) {
+            return null;
+        }
+
+        Object[] views = this.permissionViews;
+        if (views == null) {
+            views = new Object[SetView.SLOTS];
+            this.permissionViews = views;
+        }
+
+        SetView view = SetView.memoized(views, audience, value);
+        if (view == null) {
+            return (Collection<?>) value;
+        }
+        return view.getSet();
+    }
+
     public Collection<String> getPermissions(String audience) {
         Map<String, Collection<String>> permissions = this.getPermissions();
         if (permissions == null) {
@@ -144,6 +469,7 @@ public class JwtPayload extends AbstractJwtMap {
             this.setPermissions(perms);
         }
 
+        this.modifying();
         perms.put(audience, new HashSet<>(permissions));
     }
 
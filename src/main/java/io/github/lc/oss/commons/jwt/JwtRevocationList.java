@@ -1,25 +1,252 @@
 package io.github.lc.oss.commons.jwt;
 
-import java.util.HashMap;
-import java.util.Map;
+/**
+ * Thread safe list of revoked tokens. Tokens are identified by the
+ * {@linkplain RevocationDigest} of their signature and held in a
+ * {@linkplain RevocationStore}, by default a {@linkplain MapRevocationStore}
+ * with time bucketed expiration. {@linkplain CompactRevocationStore} keeps the
+ * same data as primitives, optionally outside of the Java heap. <br />
+ * <br />
+ * Optionally a {@linkplain RevocationFilter} can be placed in front of the store
+ * so that the common case of a signature that was never revoked is answered
+ * with a few bit checks. The filter is rebuilt from the store when it has filled
+ * up or when enough of its entries have expired. <br />
+ * <br />
+ * Revocations can be persisted across restarts with a
+ * {@linkplain RevocationJournal}, the list then loads the journal on creation
+ * and compacts it during maintenance when the log is half full. Revocations
+ * arriving while the log is full are only held in memory until the next
+ * compaction. <br />
+ * <br />
+ * Revocations are shared with other nodes by attaching a
+ * {@linkplain RevocationReplicator}. <br />
+ * <br />
+ * Expiration is checked against the {@linkplain TimeSource} of the list, by
+ * default the system clock.
+ */
+public class JwtRevocationList implements MaintenanceTask {
+    /**
+     * Default width of an expiration bucket in milliseconds.
+     */
+    public static final long DEFAULT_BUCKET_MILLIS = 60000;
 
-public class JwtRevocationList {
-    private final Map<String, Long> map = new HashMap<>();
+    private final RevocationStore store;
+    private final int expectedRevocations;
+    private final double falsePositiveRate;
+    private final RevocationJournal journal;
+    private volatile RevocationFilter filter;
+    private volatile RevocationFilter nextFilter;
+    private volatile RevocationReplicator replicator;
+    private volatile TimeSource timeSource = TimeSource.SYSTEM;
+
+    public JwtRevocationList() {
+        this(JwtRevocationList.DEFAULT_BUCKET_MILLIS);
+    }
+
+    public JwtRevocationList(long bucketMillis) {
+        this(bucketMillis, 0, 0);
+    }
+
+    /**
+     * @param bucketMillis        Width of an expiration bucket in milliseconds.
+     * @param expectedRevocations Expected number of concurrently revoked tokens
+     *                            used to size the filter, 0 disables the filter.
+     * @param falsePositiveRate   Target false positive rate of the filter.
+     */
+    public JwtRevocationList(long bucketMillis, int expectedRevocations, double falsePositiveRate) {
+        this(new MapRevocationStore(bucketMillis), expectedRevocations, falsePositiveRate);
+    }
+
+    public JwtRevocationList(RevocationStore store) {
+        this(store, 0, 0);
+    }
+
+    public JwtRevocationList(RevocationStore store, int expectedRevocations, double falsePositiveRate) {
+        this(store, expectedRevocations, falsePositiveRate, null);
+    }
+
+    /**
+     * @param journal Optional journal, all entries it holds that have not expired
+     *                yet are loaded into the store.
+     */
+    public JwtRevocationList(RevocationStore store, int expectedRevocations, double falsePositiveRate,
+            RevocationJournal journal) {
+        if (store == null) {
+            throw new IllegalArgumentException("Store is required");
+        }
+
+        this.store = store;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        if (expectedRevocations > 0) {
+            this.filter = new RevocationFilter(expectedRevocations, falsePositiveRate);
+        }
+
+        this.journal = journal;
+        if (journal != null) {
+            final RevocationFilter f = this.filter;
+            journal.load((high, low, expiration) -> {
+                RevocationDigest digest = new RevocationDigest(high, low);
+                if (store.put(digest, expiration) && f != null) {
+                    f.add(digest);
+                }
+            }, this.timeSource.millis());
+        }
+    }
 
     public void revoke(Jwt token) {
         this.revoke(token.getSignature(), token.getExpiration() * 1000 + 10000);
     }
 
+    /**
+     * Tokens that have not been signed yet (<code>null</code> signature) cannot be
+     * presented for validation and are ignored.
+     */
     public void revoke(String signature, long expiration) {
-        this.map.put(signature, expiration);
+        if (signature == null) {
+            return;
+        }
+
+        this.revoke(RevocationDigest.of(signature), expiration);
+    }
+
+    public void revoke(RevocationDigest digest, long expiration) {
+        if (this.add(digest, expiration)) {
+            RevocationReplicator r = this.replicator;
+            if (r != null) {
+                r.record(digest, expiration);
+            }
+        }
+    }
+
+    /**
+     * Applies revocations received from another node, they are not replicated
+     * again.
+     */
+    public void apply(RevocationDelta delta) {
+        for (int i = 0; i < delta.size(); i++) {
+            this.add(new RevocationDigest(delta.getHigh(i), delta.getLow(i)), delta.getExpiration(i));
+        }
+    }
+
+    private boolean add(RevocationDigest digest, long expiration) {
+        if (!this.store.put(digest, expiration)) {
+            return false;
+        }
+
+        /*
+         * Store first, then the filter being built (if any), then the live filter. A
+         * rebuild either sees this entry in the store or publishes a filter we have
+         * already added it to.
+         */
+        RevocationFilter f = this.nextFilter;
+        if (f != null) {
+            f.add(digest);
+        }
+        f = this.filter;
+        if (f != null) {
+            f.add(digest);
+        }
+
+        /* a full log is compacted by the next maintenance, the store holds this entry */
+        if (this.journal != null) {
+            this.journal.append(digest, expiration);
+        }
+        return true;
     }
 
+    /**
+     * Removes expired entries, compacts the journal and flushes pending
+     * replication batches.
+     */
     public void clean() {
-        final long now = System.currentTimeMillis();
-        this.map.values().removeIf(i -> now >= i);
+        long now = this.timeSource.millis();
+        this.store.clean(now);
+        this.afterClean(now);
+    }
+
+    /**
+     * Incremental {@linkplain #clean()} for a {@linkplain MaintenanceScheduler}.
+     */
+    @Override
+    public boolean maintain(long deadline) {
+        long now = this.timeSource.millis();
+        if (this.store.clean(now, deadline)) {
+            return true;
+        }
+        this.afterClean(now);
+        return false;
+    }
+
+    private void afterClean(long now) {
+        RevocationReplicator r = this.replicator;
+        if (r != null) {
+            r.flush();
+        }
+
+        RevocationJournal j = this.journal;
+        if (j != null && (j.hasOverflowed() || j.getLogSize() * 2 >= j.getLogCapacity())) {
+            j.compact(this.store, now);
+        }
+
+        RevocationFilter f = this.filter;
+        if (f != null) {
+            int size = this.store.size();
+            int stale = f.getInsertions() - size;
+            if (size > f.getExpectedInsertions() || stale > f.getExpectedInsertions() / 2) {
+                this.rebuildFilter(Math.max(this.expectedRevocations, size * 2));
+            }
+        }
+    }
+
+    private synchronized void rebuildFilter(int expectedInsertions) {
+        RevocationFilter f = new RevocationFilter(expectedInsertions, this.falsePositiveRate);
+        this.nextFilter = f;
+        this.store.forEach((high, low, expiration) -> f.add(high, low));
+        this.filter = f;
+        this.nextFilter = null;
     }
 
     public boolean isRevoked(String signature) {
-        return this.map.containsKey(signature);
+        if (signature == null) {
+            return false;
+        }
+        return this.isRevoked(RevocationDigest.of(signature));
+    }
+
+    public boolean isRevoked(RevocationDigest digest) {
+        RevocationFilter f = this.filter;
+        if (f != null && !f.mightContain(digest)) {
+            return false;
+        }
+        return this.store.contains(digest);
+    }
+
+    /**
+     * Called by {@linkplain RevocationReplicator} when it is attached to this
+     * list.
+     */
+    void setReplicator(RevocationReplicator replicator) {
+        this.replicator = replicator;
+    }
+
+    public RevocationReplicator getReplicator() {
+        return this.replicator;
+    }
+
+    public void setTimeSource(TimeSource timeSource) {
+        if (timeSource == null) {
+            throw new IllegalArgumentException("Time source is required");
+        }
+
+        this.timeSource = timeSource;
+    }
+
+    public TimeSource getTimeSource() {
+        return this.timeSource;
+    }
+
+    public int size() {
+        return this.store.size();
     }
 }
@@ -1,17 +1,87 @@
 package io.github.lc.oss.commons.jwt;
 
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 
 import io.github.lc.oss.commons.signing.Algorithm;
 import io.github.lc.oss.commons.signing.Algorithms;
 
 public abstract class JwtService {
+    /*
+     * Number of signatures verified by one task of validateAll.
+     */
+    private static final int BATCH_CHUNK_SIZE = 16;
+
+    /*
+     * Longest encoded payload whose claims are checked before the signature.
+     */
+    private static final int MAX_PRE_CHECK_LENGTH = 8192;
+
+    /*
+     * Header of a token together with everything needed to verify its signature,
+     * or the reason the token was rejected while resolving it.
+     */
+    private static final class ResolvedHeader {
+        private static final ResolvedHeader[] REJECTED;
+
+        static {
+            JwtMetrics.RejectionReason[] reasons = JwtMetrics.RejectionReason.values();
+            REJECTED = new ResolvedHeader[reasons.length];
+            for (JwtMetrics.RejectionReason reason : reasons) {
+                ResolvedHeader.REJECTED[reason.ordinal()] = new ResolvedHeader(ValidationResult.rejected(reason));
+            }
+        }
+
+        private static ResolvedHeader rejected(ValidationResult rejection) {
+            return ResolvedHeader.REJECTED[rejection.getReason().ordinal()];
+        }
+
+        private final JwtHeader header;
+        /* the header is the cached instance and copied for the validated token */
+        private final boolean shared;
+        private final Algorithm algorithm;
+        private final byte[] secret;
+        private final ValidationResult rejection;
+
+        private ResolvedHeader(JwtHeader header, boolean shared, Algorithm algorithm, byte[] secret) {
+            this.header = header;
+            this.shared = shared;
+            this.algorithm = algorithm;
+            this.secret = secret;
+            this.rejection = null;
+        }
+
+        private ResolvedHeader(ValidationResult rejection) {
+            this.header = null;
+            this.shared = false;
+            this.algorithm = null;
+            this.secret = null;
+            this.rejection = rejection;
+        }
+
+        private ResolvedHeader withSecret(byte[] secret) {
+            return new ResolvedHeader(this.header, this.shared, this.algorithm, secret);
+        }
+    }
+
+    private static final TokenIdGenerator DEFAULT_TOKEN_IDS = new RandomTokenIdGenerator();
+
     private final JwtRevocationList revocationList = new JwtRevocationList();
 
     public JwtService() {
         this.assertNotMixedAlgorithms();
+        this.revocationList.setTimeSource(() -> this.getTimeSource().millis());
     }
 
     /**
@@ -29,7 +99,15 @@ public abstract class JwtService {
 
     public abstract String getAudience();
 
-    protected abstract long now();
+    /**
+     * Current time used to {@linkplain #refresh(Jwt, long, long) refresh} tokens.
+     * Default implementation reads {@linkplain #getTimeSource()}, the clock tokens
+     * are issued and validated against. Override {@linkplain #getTimeSource()}
+     * instead to change the time used everywhere.
+     */
+    protected long now() {
+        return this.getTimeSource().millis();
+    }
 
     /**
      * Default implementation does not log anything. To log a message override the
@@ -41,15 +119,175 @@ public abstract class JwtService {
 
     /**
      * Default implementation does not log anything. To log a message override this
-     * method.
+     * method, and {@linkplain #isLogEnabled()} to also receive messages built from
+     * rejected tokens.
      */
     protected void log(String message, Throwable ex) {
     }
 
+    /**
+     * When <code>false</code> log messages that would have to be built from the
+     * rejected token (e.g. naming its algorithm) are neither built nor logged.
+     * Default implementation returns <code>false</code> as the default log methods
+     * do not log anything, implementations overriding
+     * {@linkplain #log(String, Throwable)} should return <code>true</code>.
+     */
+    protected boolean isLogEnabled() {
+        return false;
+    }
+
+    /**
+     * Clock used to issue, refresh and validate tokens, to expire entries of the
+     * {@linkplain #getValidationCache()} and of the default revocation list.
+     * Default implementation returns {@linkplain TimeSource#SYSTEM}, a shared
+     * {@linkplain CoarseTimeSource} reduces reading the time to a volatile read.
+     * <br />
+     * <br />
+     * Only the default revocation list is given this clock. Implementations that
+     * override {@linkplain #getRevocationList()}, {@linkplain #getValidationCache()}
+     * or {@linkplain #getKeyRing()} must pass the same clock to the instances they
+     * return (see {@linkplain JwtRevocationList#setTimeSource(TimeSource)},
+     * {@linkplain ValidationCache#setTimeSource(TimeSource)} and
+     * {@linkplain KeyRing#setTimeSource(TimeSource)}).
+     */
+    protected TimeSource getTimeSource() {
+        return TimeSource.SYSTEM;
+    }
+
+    /**
+     * Receives the outcome and optionally the stage timings of every validated
+     * token. Default implementation returns {@linkplain JwtMetrics#NOOP}, to
+     * record metrics override this method and return the same instance (e.g. a
+     * {@linkplain CountingJwtMetrics}) on each call. Tokens validated by
+     * {@linkplain #validateAll(byte[], Collection, String)} are recorded once per
+     * distinct token.
+     */
+    protected JwtMetrics getMetrics() {
+        return JwtMetrics.NOOP;
+    }
+
+    /**
+     * Default implementation returns a list that uses
+     * {@linkplain #getTimeSource()}. Implementations returning their own list must
+     * give it the same clock.
+     */
     protected JwtRevocationList getRevocationList() {
         return this.revocationList;
     }
 
+    /**
+     * Optional cache of successful validations. Default implementation returns
+     * <code>null</code> which disables caching, to enable it override this method
+     * and return the same {@linkplain ValidationCache} instance on each call.
+     * Revocation, the permitted algorithms and the token claims are still checked
+     * on every cache hit. The cache expires entries in the background against its
+     * own {@linkplain ValidationCache#setTimeSource(TimeSource) time source}, which
+     * should be {@linkplain #getTimeSource()}.
+     */
+    protected ValidationCache getValidationCache() {
+        return null;
+    }
+
+    /**
+     * Optional cache of parsed and resolved token headers. Default implementation
+     * returns <code>null</code> which disables caching, to enable it override this
+     * method and return the same {@linkplain HeaderCache} instance on each call.
+     * Note that the result of {@linkplain #isAlgorithmAllowed(Algorithm)} is
+     * cached as well and that the header passed to
+     * {@linkplain #getValidateSecret(JwtHeader, byte[])} may be the cached one,
+     * which must not be modified.
+     */
+    protected HeaderCache getHeaderCache() {
+        return null;
+    }
+
+    /**
+     * When <code>true</code> the payload of a token is only scanned for the
+     * registered claims during validation, any other claim is parsed on first
+     * access (see {@linkplain JwtPayload#lazy(byte[], int, int)}). Default
+     * implementation returns <code>false</code>. A
+     * {@linkplain #getValidationCache()} copies the tokens it caches which parses
+     * the payload completely.
+     */
+    protected boolean isLazyPayload() {
+        return false;
+    }
+
+    /**
+     * When <code>true</code> the registered claims are scanned from the payload
+     * before the signature is verified and tokens that would fail the claim
+     * validation anyway (e.g. expired, wrong issuer or audience) are rejected
+     * without verifying their signature. Tokens are still only accepted with a
+     * valid signature and their claims are checked again afterwards. Default
+     * implementation returns <code>false</code>. Worthwhile for key based
+     * algorithms where verifying a signature is expensive.
+     */
+    protected boolean isClaimPreCheck() {
+        return false;
+    }
+
+    /**
+     * Generator of the token ids of issued and refreshed tokens. Default
+     * implementation returns a shared {@linkplain RandomTokenIdGenerator} that
+     * produces random UUIDs.
+     */
+    protected TokenIdGenerator getTokenIdGenerator() {
+        return JwtService.DEFAULT_TOKEN_IDS;
+    }
+
+    /**
+     * Optional cache of validation keys. Default implementation returns
+     * <code>null</code>, to enable it override this method and return the same
+     * {@linkplain KeyRing} instance on each call. The default implementations of
+     * {@linkplain #getValidateSecret(JwtHeader, byte[])} and
+     * {@linkplain #getValidateSecretAsync(JwtHeader, byte[])} then resolve tokens
+     * with a key id through the ring. The ring expires keys against its own
+     * {@linkplain KeyRing#setTimeSource(TimeSource) time source}, which should be
+     * {@linkplain #getTimeSource()}.
+     */
+    protected KeyRing getKeyRing() {
+        return null;
+    }
+
+    /**
+     * Optional pool of initialized HMAC engines used to sign and verify tokens
+     * with the algorithms it supports. Default implementation returns
+     * <code>null</code> which leaves all signatures to the algorithm, to enable it
+     * override this method and return the same {@linkplain MacPool} instance on
+     * each call.
+     */
+    protected MacPool getMacPool() {
+        return null;
+    }
+
+    /**
+     * Executor {@linkplain #validateAll(byte[], Collection, String)} and
+     * {@linkplain #validateAsync(byte[], String, String)} verify signatures on.
+     * Default implementation returns the common {@linkplain ForkJoinPool}, return
+     * <code>null</code> to verify on the calling thread. Any other executor (e.g.
+     * one running virtual threads) must be returned as the same instance on each
+     * call.
+     */
+    protected Executor getValidationExecutor() {
+        return ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Registers the revocation list and, if enabled, the validation cache and key
+     * ring with the provided scheduler so they are cleaned in the background.
+     */
+    public void registerMaintenance(MaintenanceScheduler scheduler) {
+        scheduler.register(this.getRevocationList());
+        ValidationCache cache = this.getValidationCache();
+        if (cache != null) {
+            scheduler.register(cache);
+        }
+        KeyRing ring = this.getKeyRing();
+        if (ring != null) {
+            scheduler.register(ring);
+        }
+    }
+
     public void invalidate(Jwt token) {
         if (token == null) {
             return;
@@ -92,7 +330,7 @@ public abstract class JwtService {
                 Util.isBlank(audience)) {
             throw new IllegalArgumentException("All parameters are required");
         }
-        Long now = System.currentTimeMillis() / 1000l;
+        Long now = this.getTimeSource().millis() / 1000l;
         Long expires = expirationMillis / 1000l;
         Long notBefore = notBeforeMillis == null ? now : notBeforeMillis / 1000l;
 
@@ -111,7 +349,7 @@ public abstract class JwtService {
         t.getPayload().setIssuedAt(now);
         t.getPayload().setNotBefore(notBefore);
         t.getPayload().setExpiration(expires);
-        t.getPayload().setTokenId(UUID.randomUUID().toString());
+        t.getPayload().setTokenId(this.getTokenIdGenerator().next());
         t.getPayload().setIssuer(issuer);
         t.getPayload().setAudience(audience);
         return t;
@@ -128,7 +366,7 @@ public abstract class JwtService {
             expires = max;
         }
         token.setExpirationMillis(expires);
-        token.getPayload().setTokenId(UUID.randomUUID().toString());
+        token.getPayload().setTokenId(this.getTokenIdGenerator().next());
 
         return token;
     }
@@ -142,9 +380,15 @@ public abstract class JwtService {
         if (s == null) {
             throw new RuntimeException("Secret cannot be null");
         }
-        token.setSignature(
-                token.getAlgorithm().getSignature(s, Util.toJsonNoSignature(token).getBytes(StandardCharsets.UTF_8)));
-        return Util.toJson(token);
+        byte[] signingInput = Util.toSigningInput(token);
+        Algorithm algorithm = token.getAlgorithm();
+        MacPool pool = this.getMacPool();
+        if (pool != null && pool.isSupported(algorithm)) {
+            token.setSignature(pool.getSignature(algorithm, s, signingInput));
+        } else {
+            token.setSignature(algorithm.getSignature(s, signingInput));
+        }
+        return Util.toJson(signingInput, token.getSignature());
     }
 
     public Jwt validate(String encoded) {
@@ -156,97 +400,575 @@ public abstract class JwtService {
     }
 
     public Jwt validate(byte[] secret, String encoded, String audience) {
-        String[] parts = this.parseToken(encoded);
-        if (parts == null) {
-            this.log("Token parsed to null");
-            return null;
+        return this.check(secret, encoded, audience).getToken();
+    }
+
+    public ValidationResult check(String encoded) {
+        return this.check(encoded, null);
+    }
+
+    public ValidationResult check(String encoded, String audience) {
+        return this.check(null, encoded, audience);
+    }
+
+    /**
+     * Same validation as {@linkplain #validate(byte[], String, String)} but
+     * returns the reason a token was rejected instead of <code>null</code>.
+     * Malformed tokens (structure, Base64 or JSON) are rejected by scanning them,
+     * without throwing an exception, and every rejection returns a shared
+     * {@linkplain ValidationResult}.
+     */
+    public ValidationResult check(byte[] secret, String encoded, String audience) {
+        CompactToken token = this.scan(encoded);
+        ValidationResult rejected = this.checkToken(token);
+        if (rejected != null) {
+            return rejected;
         }
 
-        if (this.getRevocationList().isRevoked(parts[2])) {
-            this.log("Token is revoked by signature");
-            return null;
+        ValidationCache cache = this.getValidationCache();
+        if (cache != null) {
+            Jwt cached = cache.get(encoded, secret, this.getTimeSource().millis());
+            if (cached != null) {
+                return this.validateCached(cached, audience);
+            }
+        }
+
+        ResolvedHeader resolved = this.resolveHeader(token, secret);
+        if (resolved.rejection != null) {
+            return resolved.rejection;
+        }
+        return this.verify(token, resolved, false, secret, audience, cache);
+    }
+
+    public CompletionStage<Jwt> validateAsync(String encoded) {
+        return this.validateAsync(encoded, null);
+    }
+
+    public CompletionStage<Jwt> validateAsync(String encoded, String audience) {
+        return this.validateAsync(null, encoded, audience);
+    }
+
+    /**
+     * Non-blocking variant of {@linkplain #validate(byte[], String, String)} with
+     * the same result. Only the structure, revocation and header of the token
+     * are checked on the calling thread, the secret is resolved with
+     * {@linkplain #getValidateSecretAsync(JwtHeader, byte[])} and the signature
+     * verified on the {@linkplain #getValidationExecutor()}. The returned stage
+     * never completes exceptionally, invalid tokens complete with
+     * <code>null</code>.
+     */
+    public CompletionStage<Jwt> validateAsync(byte[] secret, String encoded, String audience) {
+        CompactToken token = this.scan(encoded);
+        if (this.checkToken(token) != null) {
+            return CompletableFuture.completedFuture(null);
         }
 
+        ValidationCache cache = this.getValidationCache();
+        if (cache != null) {
+            Jwt cached = cache.get(encoded, secret, this.getTimeSource().millis());
+            if (cached != null) {
+                return CompletableFuture.completedFuture(this.validateCached(cached, audience).getToken());
+            }
+        }
+
+        ResolvedHeader header = this.parseHeader(token);
+        if (header.rejection != null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        JwtMetrics metrics = this.getMetrics();
+        long start = this.startTiming(metrics);
+        CompletionStage<byte[]> s;
         try {
-            JwtHeader header = this.fromBase64Json(parts[0], JwtHeader.class);
-            if (header == null || !"JWT".equals(header.getTokenType())) {
-                this.log("Not a JWT token");
-                return null;
+            s = this.getValidateSecretAsync(header.header, secret);
+        } catch (RuntimeException ex) {
+            this.stopTiming(metrics, JwtMetrics.Stage.KEY_LOOKUP, start);
+            this.reject(JwtMetrics.RejectionReason.EXCEPTION, "Error validating token", ex);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (s == null) {
+            /* same as a stage completing without a secret */
+            this.stopTiming(metrics, JwtMetrics.Stage.KEY_LOOKUP, start);
+            this.reject(JwtMetrics.RejectionReason.SECRET, "Unable to locate token secret");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Executor executor = this.getValidationExecutor();
+        CompletableFuture<Jwt> result = new CompletableFuture<>();
+        s.whenComplete((key, ex) -> {
+            this.stopTiming(metrics, JwtMetrics.Stage.KEY_LOOKUP, start);
+            if (ex != null) {
+                this.reject(JwtMetrics.RejectionReason.EXCEPTION, "Error validating token", ex);
+                result.complete(null);
+            } else if (key == null) {
+                this.reject(JwtMetrics.RejectionReason.SECRET, "Unable to locate token secret");
+                result.complete(null);
+            } else {
+                Runnable task = () -> result.complete(
+                        this.verify(token, header.withSecret(key), false, secret, audience, cache).getToken());
+                if (executor == null) {
+                    task.run();
+                } else {
+                    try {
+                        executor.execute(task);
+                    } catch (RejectedExecutionException rex) {
+                        this.log("Validation executor rejected task, verifying on calling thread", rex);
+                        task.run();
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    public List<Jwt> validateAll(Collection<String> encoded) {
+        return this.validateAll(encoded, null);
+    }
+
+    public List<Jwt> validateAll(Collection<String> encoded, String audience) {
+        return this.validateAll(null, encoded, audience);
+    }
+
+    /**
+     * Validates a batch of tokens with the same result as calling
+     * {@linkplain #validate(byte[], String, String)} for each of them. The
+     * returned list holds the validated token, or <code>null</code>, at the
+     * position of the encoded token. <br />
+     * <br />
+     * Identical tokens are only validated once (each position still receives its
+     * own copy) and the header of tokens sharing the same header segment is only
+     * parsed, checked and resolved to a secret once. Signatures are verified in
+     * parallel on the {@linkplain #getValidationExecutor()}.
+     */
+    public List<Jwt> validateAll(byte[] secret, Collection<String> encoded, String audience) {
+        int[] slots = new int[encoded.size()];
+        Map<String, Integer> unique = new HashMap<>();
+        List<String> distinct = new ArrayList<>();
+        int i = 0;
+        for (String e : encoded) {
+            Integer slot = unique.get(e);
+            if (slot == null) {
+                slot = distinct.size();
+                unique.put(e, slot);
+                distinct.add(e);
+            }
+            slots[i++] = slot;
+        }
+
+        Jwt[] validated = new Jwt[distinct.size()];
+        CompactToken[] tokens = new CompactToken[distinct.size()];
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        ValidationCache cache = this.getValidationCache();
+        for (int j = 0; j < distinct.size(); j++) {
+            CompactToken token = this.scan(distinct.get(j));
+            if (this.checkToken(token) != null) {
+                continue;
+            }
+
+            if (cache != null) {
+                Jwt cached = cache.get(token.getEncoded(), secret, this.getTimeSource().millis());
+                if (cached != null) {
+                    validated[j] = this.validateCached(cached, audience).getToken();
+                    continue;
+                }
+            }
+
+            tokens[j] = token;
+            groups.computeIfAbsent(token.getHeader(), k -> new ArrayList<>()).add(j);
+        }
+
+        ResolvedHeader[] resolved = new ResolvedHeader[distinct.size()];
+        List<Integer> pending = new ArrayList<>();
+        JwtMetrics metrics = this.getMetrics();
+        for (List<Integer> group : groups.values()) {
+            ResolvedHeader r = this.resolveHeader(tokens[group.get(0)], secret);
+            if (r.rejection == null) {
+                for (Integer j : group) {
+                    resolved[j] = r;
+                    pending.add(j);
+                }
+            } else {
+                /* the rest of the group shares the rejection of the first token */
+                for (int k = 1; k < group.size(); k++) {
+                    metrics.rejected(r.rejection.getReason());
+                }
             }
+        }
 
-            if (!this.isAlgorithmAllowed(header.getAlgorithm())) {
-                this.log(header.getAlgorithm() + " algorithm is not allowed");
-                return null;
+        Executor executor = this.getValidationExecutor();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < pending.size(); start += JwtService.BATCH_CHUNK_SIZE) {
+            List<Integer> chunk = pending.subList(start,
+                    Math.min(pending.size(), start + JwtService.BATCH_CHUNK_SIZE));
+            Runnable task = () -> {
+                for (Integer j : chunk) {
+                    /* tokens sharing a header must not share the header instance */
+                    validated[j] = this.verify(tokens[j], resolved[j], true, secret, audience, cache).getToken();
+                }
+            };
+
+            if (executor == null || pending.size() <= JwtService.BATCH_CHUNK_SIZE) {
+                task.run();
+            } else {
+                try {
+                    tasks.add(CompletableFuture.runAsync(task, executor));
+                } catch (RejectedExecutionException ex) {
+                    this.log("Validation executor rejected task, verifying on calling thread", ex);
+                    task.run();
+                }
             }
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[tasks.size()])).join();
+
+        List<Jwt> results = new ArrayList<>(slots.length);
+        boolean[] returned = new boolean[validated.length];
+        for (int slot : slots) {
+            Jwt t = validated[slot];
+            if (t != null && returned[slot]) {
+                t = ValidationCache.copy(t);
+            }
+            returned[slot] = true;
+            results.add(t);
+        }
+        return results;
+    }
+
+    private CompactToken scan(String encoded) {
+        JwtMetrics metrics = this.getMetrics();
+        long start = this.startTiming(metrics);
+        CompactToken token = this.scanToken(encoded);
+        this.stopTiming(metrics, JwtMetrics.Stage.PARSE, start);
+        return token;
+    }
+
+    /*
+     * Structural and revocation checks shared by all validation paths, returns
+     * null if the token passed them.
+     */
+    private ValidationResult checkToken(CompactToken token) {
+        if (token == null) {
+            return this.reject(JwtMetrics.RejectionReason.PARSE, "Token parsed to null");
+        }
+
+        if (this.getRevocationList().isRevoked(token.getSignature())) {
+            return this.reject(JwtMetrics.RejectionReason.REVOKED, "Token is revoked by signature");
+        }
+        return null;
+    }
+
+    private ValidationResult validateCached(Jwt cached, String audience) {
+        if (!this.isAlgorithmAllowed(cached.getAlgorithm())) {
+            return this.reject(JwtMetrics.RejectionReason.ALGORITHM,
+                    this.isLogEnabled() ? cached.getAlgorithm() + " algorithm is not allowed" : null);
+        }
+
+        return this.validateClaims(cached, audience);
+    }
+
+    private ResolvedHeader resolveHeader(CompactToken token, byte[] secret) {
+        ResolvedHeader resolved = this.parseHeader(token);
+        if (resolved.rejection != null) {
+            return resolved;
+        }
 
-            byte[] s = this.getValidateSecret(header, secret);
+        JwtMetrics metrics = this.getMetrics();
+        long start = this.startTiming(metrics);
+        try {
+            byte[] s = this.getValidateSecret(resolved.header, secret);
             if (s == null) {
-                this.log("Unable to locate token secret");
-                return null;
+                return ResolvedHeader
+                        .rejected(this.reject(JwtMetrics.RejectionReason.SECRET, "Unable to locate token secret"));
+            }
+            return resolved.withSecret(s);
+        } catch (RuntimeException ex) {
+            return ResolvedHeader
+                    .rejected(this.reject(JwtMetrics.RejectionReason.EXCEPTION, "Error validating token", ex));
+        } finally {
+            this.stopTiming(metrics, JwtMetrics.Stage.KEY_LOOKUP, start);
+        }
+    }
+
+    /*
+     * Parses and checks the header, the returned value does not have a secret
+     * yet.
+     */
+    private ResolvedHeader parseHeader(CompactToken token) {
+        JwtMetrics metrics = this.getMetrics();
+        long start = this.startTiming(metrics);
+        try {
+            HeaderCache headers = this.getHeaderCache();
+            HeaderCache.Entry cached = headers == null ? null
+                    : headers.get(token.getEncoded(), token.getHeaderLength());
+
+            JwtHeader header;
+            Algorithm algorithm;
+            boolean allowed;
+            boolean shared = cached != null;
+            if (cached == null) {
+                header = this.fromBase64Json(token.getSigningInput(), 0, token.getHeaderLength(), JwtHeader.class);
+                if (header == null) {
+                    return ResolvedHeader
+                            .rejected(this.reject(JwtMetrics.RejectionReason.PARSE, "Token header is not valid"));
+                }
+
+                if (!"JWT".equals(header.getTokenType())) {
+                    return ResolvedHeader.rejected(this.reject(JwtMetrics.RejectionReason.TYPE, "Not a JWT token"));
+                }
+
+                algorithm = header.getAlgorithm();
+                allowed = this.isAlgorithmAllowed(algorithm);
+                if (headers != null) {
+                    headers.put(token.getHeader(), header, algorithm, allowed);
+                }
+            } else {
+                header = cached.getHeader();
+                algorithm = cached.getAlgorithm();
+                allowed = cached.isAllowed();
             }
 
-            String tokenData = encoded.substring(0, encoded.lastIndexOf('.'));
-            String expected = encoded.substring(encoded.lastIndexOf('.') + 1);
-            if (!header.getAlgorithm().isSignatureValid(s, tokenData.getBytes(StandardCharsets.UTF_8), expected)) {
-                this.log("Token signature is not valid");
-                return null;
+            if (!allowed) {
+                return ResolvedHeader.rejected(this.reject(JwtMetrics.RejectionReason.ALGORITHM,
+                        this.isLogEnabled() ? algorithm + " algorithm is not allowed" : null));
             }
+            return new ResolvedHeader(header, shared, algorithm, null);
+        } catch (RuntimeException ex) {
+            /*
+             * Most commonly a parsing error in the Base64 String, in any case the token is
+             * not valid.
+             */
+            return ResolvedHeader
+                    .rejected(this.reject(JwtMetrics.RejectionReason.EXCEPTION, "Error validating token", ex));
+        } finally {
+            this.stopTiming(metrics, JwtMetrics.Stage.HEADER, start);
+        }
+    }
 
-            JwtPayload payload = this.fromBase64Json(parts[1], JwtPayload.class);
+    private ValidationResult verify(CompactToken token, ResolvedHeader resolved, boolean copyHeader, byte[] secret,
+            String audience, ValidationCache cache) {
+        JwtMetrics metrics = this.getMetrics();
+        JwtHeader header = resolved.header;
+        try {
+            byte[] signingInput = token.getSigningInput();
+            String signature = token.getSignature();
+            JwtPayload unverified = null;
+            if (this.isClaimPreCheck() && token.getPayloadLength() <= JwtService.MAX_PRE_CHECK_LENGTH) {
+                long start = this.startTiming(metrics);
+                unverified = this.scanPayload(token);
+                boolean plausible = true;
+                if (unverified != null) {
+                    Jwt t = new Jwt();
+                    t.setHeader(header);
+                    t.setPayload(unverified);
+                    plausible = this.isValid(t, audience);
+                }
+                this.stopTiming(metrics, JwtMetrics.Stage.PRE_CHECK, start);
+                if (!plausible) {
+                    return this.reject(JwtMetrics.RejectionReason.CLAIMS, "Token failed data validation");
+                }
+            }
+
+            MacPool pool = this.getMacPool();
+            long start = this.startTiming(metrics);
+            boolean valid = pool != null && pool.isSupported(resolved.algorithm)
+                    ? pool.isSignatureValid(resolved.algorithm, resolved.secret, signingInput, signature)
+                    : resolved.algorithm.isSignatureValid(resolved.secret, signingInput, signature);
+            this.stopTiming(metrics, JwtMetrics.Stage.VERIFY, start);
+            if (!valid) {
+                return this.reject(JwtMetrics.RejectionReason.SIGNATURE, "Token signature is not valid");
+            }
+
+            start = this.startTiming(metrics);
+            JwtPayload payload = null;
+            if (this.isLazyPayload()) {
+                /* the scanned bytes are the ones the signature covers */
+                payload = unverified != null ? unverified : this.scanPayload(token);
+            }
+            if (payload == null) {
+                /* not lazy or an unusual structure, the full parser decides */
+                payload = this.fromBase64Json(signingInput, token.getPayloadOffset(), token.getPayloadLength(),
+                        JwtPayload.class);
+            }
+            this.stopTiming(metrics, JwtMetrics.Stage.PAYLOAD, start);
+            if (payload == null) {
+                return this.reject(JwtMetrics.RejectionReason.PARSE, "Token payload is not valid");
+            }
 
             Jwt t = new Jwt();
-            t.setHeader(header);
+            t.setHeader(copyHeader || resolved.shared ? ValidationCache.copy(header) : header);
             t.setPayload(payload);
-            t.setSignature(parts[2]);
+            t.setSignature(signature);
 
-            String aud = audience == null ? this.getAudience() : audience;
-            if (!t.validate(aud, this.getIssuers())) {
-                this.log("Token failed data validation");
-                return null;
+            ValidationResult result = this.validateClaims(t, audience);
+            if (result.isValid() && cache != null) {
+                cache.put(token.getEncoded(), secret, t, this.getTimeSource().millis());
             }
-
-            return t;
+            return result;
         } catch (RuntimeException ex) {
             /*
              * Most commonly a parsing error in the Base64 String, in any case the token is
              * not valid.
              */
-            this.log("Error validating token", ex);
-            return null;
+            return this.reject(JwtMetrics.RejectionReason.EXCEPTION, "Error validating token", ex);
         }
     }
 
-    protected String[] parseToken(String encoded) {
-        if (encoded == null) {
+    /*
+     * Registered claims of the payload or null if it cannot be scanned, never
+     * throws.
+     */
+    private JwtPayload scanPayload(CompactToken token) {
+        ByteBuffer json = Util.decodeBase64(token.getSigningInput(), token.getPayloadOffset(),
+                token.getPayloadLength());
+        if (json == null) {
             return null;
         }
 
-        String[] parts = encoded.split("\\.");
-        if (parts.length != 3) {
+        int offset = json.arrayOffset() + json.position();
+        if (!Util.isJsonObject(json.array(), offset, json.remaining())) {
             return null;
         }
+        return JwtPayload.scanned(json.array(), offset, json.remaining());
+    }
 
-        for (String part : parts) {
-            if (Util.isBlank(part)) {
-                return null;
-            }
+    private boolean isValid(Jwt token, String audience) {
+        String aud = audience == null ? this.getAudience() : audience;
+        return token.validate(aud, this.getIssuers(), this.getTimeSource().millis());
+    }
+
+    private ValidationResult validateClaims(Jwt token, String audience) {
+        JwtMetrics metrics = this.getMetrics();
+        long start = this.startTiming(metrics);
+        boolean valid = this.isValid(token, audience);
+        this.stopTiming(metrics, JwtMetrics.Stage.CLAIMS, start);
+        if (!valid) {
+            return this.reject(JwtMetrics.RejectionReason.CLAIMS, "Token failed data validation");
+        }
+        metrics.accepted();
+        return ValidationResult.valid(token);
+    }
+
+    private ValidationResult reject(JwtMetrics.RejectionReason reason, String message) {
+        return this.reject(reason, message, null);
+    }
+
+    /*
+     * Messages that have to be built are passed as null unless logging is
+     * enabled, they are not logged then.
+     */
+    private ValidationResult reject(JwtMetrics.RejectionReason reason, String message, Throwable ex) {
+        this.getMetrics().rejected(reason);
+        if (message == null) {
+            return ValidationResult.rejected(reason);
+        }
+
+        if (ex == null) {
+            this.log(message);
+        } else {
+            this.log(message, ex);
         }
+        return ValidationResult.rejected(reason);
+    }
+
+    private long startTiming(JwtMetrics metrics) {
+        return metrics.isTimingEnabled() ? System.nanoTime() : 0l;
+    }
 
-        return parts;
+    private void stopTiming(JwtMetrics metrics, JwtMetrics.Stage stage, long start) {
+        if (metrics.isTimingEnabled()) {
+            metrics.timing(stage, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Locates the segments of an encoded token in a single pass without copying
+     * them. Returns <code>null</code> if the value is not a well formed compact
+     * token.
+     */
+    protected CompactToken scanToken(String encoded) {
+        return CompactToken.parse(encoded);
+    }
+
+    /**
+     * Splits an encoded token into its header, payload and signature.<br />
+     * <br />
+     * Validation no longer calls this method, overriding it has no effect on how
+     * tokens are parsed. Override {@linkplain #scanToken(String)} instead.
+     *
+     * @deprecated replaced by {@linkplain #scanToken(String)}
+     */
+    @Deprecated
+    protected String[] parseToken(String encoded) {
+        CompactToken token = this.scanToken(encoded);
+        if (token == null) {
+            return null;
+        }
+
+        return new String[] { token.getHeader(), token.getPayload(), token.getSignature() };
     }
 
     protected byte[] getSignSecret(JwtHeader header, byte[] defaultSecret) {
         return defaultSecret;
     }
 
+    /**
+     * Default implementation resolves tokens with a key id through the
+     * {@linkplain #getKeyRing()} if one is configured and otherwise returns the
+     * provided default secret.
+     */
     protected byte[] getValidateSecret(JwtHeader header, byte[] defaultSecret) {
+        KeyRing ring = this.getKeyRing();
+        if (ring != null && header != null && header.getKeyId() != null) {
+            return ring.get(header.getKeyId(), header.getAlgorithm());
+        }
         return defaultSecret;
     }
 
+    /**
+     * Asynchronous variant of {@linkplain #getValidateSecret(JwtHeader, byte[])}
+     * used by {@linkplain #validateAsync(byte[], String, String)}. Default
+     * implementation resolves tokens with a key id through the
+     * {@linkplain #getKeyRing()} if one is configured and otherwise calls the
+     * synchronous method on the {@linkplain #getValidationExecutor()}. Implementations that load secrets
+     * with blocking I/O should either override this method with a non-blocking
+     * lookup or provide an executor that tolerates blocking. Returning
+     * <code>null</code> or a stage completing with <code>null</code> or
+     * exceptionally fails the validation.
+     */
+    protected CompletionStage<byte[]> getValidateSecretAsync(JwtHeader header, byte[] defaultSecret) {
+        KeyRing ring = this.getKeyRing();
+        if (ring != null && header != null && header.getKeyId() != null) {
+            return ring.getAsync(header.getKeyId(), header.getAlgorithm());
+        }
+
+        Executor executor = this.getValidationExecutor();
+        if (executor == null) {
+            return CompletableFuture.completedFuture(this.getValidateSecret(header, defaultSecret));
+        }
+        return CompletableFuture.supplyAsync(() -> this.getValidateSecret(header, defaultSecret), executor);
+    }
+
+    /**
+     * Validation no longer calls this method, overriding it has no effect on how
+     * token segments are decoded. Override
+     * {@linkplain #fromBase64Json(byte[], int, int, Class)} instead.
+     *
+     * @deprecated replaced by {@linkplain #fromBase64Json(byte[], int, int, Class)}
+     */
+    @Deprecated
     protected <T> T fromBase64Json(String json, Class<T> clazz) {
         return Util.fromBase64Json(json, clazz);
     }
 
+    /**
+     * Decodes the Base64 encoded JSON between <code>offset</code> and
+     * <code>offset + length</code>. Used for the header and, unless it is decoded
+     * lazily, the payload of every validated token.
+     */
+    protected <T> T fromBase64Json(byte[] base64, int offset, int length, Class<T> clazz) {
+        return Util.fromBase64Json(base64, offset, length, clazz);
+    }
+
     /**
      * This method will test the {@linkplain #isAlgorithmAllowed(Algorithm)} method
      * to check if both HMAC and key based algorithms are permitted and if so it
@@ -0,0 +1,591 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.lc.oss.commons.signing.Algorithm;
+
+/**
+ * Thread safe cache of validation keys indexed by key id (<code>kid</code>) and
+ * algorithm, loaded from a {@linkplain KeySource}. <br />
+ * <br />
+ * Concurrent lookups of a key that is not cached share a single load and at
+ * most the configured number of loads run at the same time. Further loads wait
+ * until a running one finishes, up to as many as the ring holds keys, lookups
+ * beyond that and refreshes of cached keys are shed. Keys the source does not
+ * know, or fails to
+ * load, are remembered in a small fixed size table for the negative time to
+ * live so a flood of tokens with the same unknown key id only reaches the
+ * source once. Once a key is within the refresh ahead window of its expiration
+ * it is reloaded in the background while the current key keeps being served. A
+ * failed refresh keeps the current key until it expires, a refresh that finds
+ * the key withdrawn removes it. When the ring is full the oldest key is
+ * evicted. <br />
+ * <br />
+ * Keys expire against the {@linkplain TimeSource} of the ring, by default the
+ * system clock. Returned keys are shared and must not be modified.
+ */
+public class KeyRing implements MaintenanceTask {
+    public static final int DEFAULT_MAX_UNKNOWN = 256;
+    public static final int DEFAULT_MAX_CONCURRENT_LOADS = 16;
+
+    /*
+     * Number of queued entries a lookup inspects to make room or to drop stale
+     * queue entries.
+     */
+    private static final int EVICT_SCAN = 8;
+    /*
+     * Number of queued entries checked by maintain between deadline checks.
+     */
+    private static final int CLEAN_CHUNK = 256;
+
+    public interface KeySource {
+        /**
+         * Returns the encoded key for the provided key id and algorithm or
+         * <code>null</code> if there is no such key.
+         */
+        byte[] load(String keyId, Algorithm algorithm);
+    }
+
+    private static final class Key {
+        private final String keyId;
+        private final Algorithm algorithm;
+
+        private Key(String keyId, Algorithm algorithm) {
+            this.keyId = keyId;
+            this.algorithm = algorithm;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.keyId.hashCode() * 31 + this.algorithm.getId().hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+            return this.keyId.equals(other.keyId) && this.algorithm.getId().equals(other.algorithm.getId());
+        }
+    }
+
+    private static final class Entry {
+        private final Key key;
+        private final CompletableFuture<byte[]> value = new CompletableFuture<>();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        /* pending entries never expire */
+        private volatile long expires = Long.MAX_VALUE;
+        private volatile long refreshAt = Long.MAX_VALUE;
+
+        private Entry(Key key) {
+            this.key = key;
+        }
+
+        private boolean isExpired(long now) {
+            return this.expires <= now;
+        }
+    }
+
+    private static final class Unknown {
+        private final Key key;
+        private final long expires;
+
+        private Unknown(Key key, long expires) {
+            this.key = key;
+            this.expires = expires;
+        }
+    }
+
+    private final Map<Key, Entry> map = new ConcurrentHashMap<>();
+    /*
+     * Entries in the order they were added, may still hold entries that have
+     * since been replaced or removed.
+     */
+    private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    /*
+     * Entries whose load waits for a permit.
+     */
+    private final Queue<Entry> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+    private final AtomicReferenceArray<Unknown> unknown;
+    private final Semaphore loadPermits;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final KeySource source;
+    private final int maxSize;
+    private final long timeToLive;
+    private final long refreshAhead;
+    private final long negativeTimeToLive;
+    private final Executor executor;
+    private volatile TimeSource timeSource = TimeSource.SYSTEM;
+    private Iterator<Entry> cleanCursor;
+
+    /**
+     * Caches up to 1024 keys, refreshes them in the last fifth of their time to
+     * live on the common {@linkplain ForkJoinPool} and remembers unknown keys for
+     * up to 30 seconds.
+     */
+    public KeyRing(KeySource source, long timeToLive) {
+        this(source, 1024, timeToLive, timeToLive / 5, Math.min(timeToLive, 30000), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Remembers up to {@value #DEFAULT_MAX_UNKNOWN} unknown keys and runs up to
+     * {@value #DEFAULT_MAX_CONCURRENT_LOADS} loads at the same time.
+     *
+     * @see #KeyRing(KeySource, int, int, int, long, long, long, Executor)
+     */
+    public KeyRing(KeySource source, int maxSize, long timeToLive, long refreshAhead, long negativeTimeToLive,
+            Executor executor) {
+        this(source, maxSize, KeyRing.DEFAULT_MAX_UNKNOWN, KeyRing.DEFAULT_MAX_CONCURRENT_LOADS, timeToLive,
+                refreshAhead, negativeTimeToLive, executor);
+    }
+
+    /**
+     * @param source             Source keys are loaded from.
+     * @param maxSize            Maximum number of cached keys.
+     * @param maxUnknown         Maximum number of unknown keys remembered.
+     * @param maxConcurrentLoads Maximum number of loads, including background
+     *                           refreshes, running at the same time.
+     * @param timeToLive         Time in milliseconds a loaded key is served for.
+     * @param refreshAhead       Time in milliseconds before the expiration of a
+     *                           key at which it is reloaded in the background, 0
+     *                           disables refreshing.
+     * @param negativeTimeToLive Time in milliseconds unknown keys and failed loads
+     *                           are remembered for.
+     * @param executor           Executor background and asynchronous loads run
+     *                           on, <code>null</code> to load on the calling
+     *                           thread.
+     */
+    public KeyRing(KeySource source, int maxSize, int maxUnknown, int maxConcurrentLoads, long timeToLive,
+            long refreshAhead, long negativeTimeToLive, Executor executor) {
+        if (source == null) {
+            throw new IllegalArgumentException("Source is required");
+        }
+
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max size must be positive number but was " + maxSize);
+        }
+
+        if (maxUnknown < 1) {
+            throw new IllegalArgumentException("Max unknown must be positive number but was " + maxUnknown);
+        }
+
+        if (maxConcurrentLoads < 1) {
+            throw new IllegalArgumentException(
+                    "Max concurrent loads must be positive number but was " + maxConcurrentLoads);
+        }
+
+        if (timeToLive < 1) {
+            throw new IllegalArgumentException(
+                    "Time to live must be positive number but was " + Long.toString(timeToLive));
+        }
+
+        if (refreshAhead < 0 || refreshAhead >= timeToLive) {
+            throw new IllegalArgumentException(
+                    "Refresh ahead must be between 0 and time to live but was " + Long.toString(refreshAhead));
+        }
+
+        if (negativeTimeToLive < 1) {
+            throw new IllegalArgumentException(
+                    "Negative time to live must be positive number but was " + Long.toString(negativeTimeToLive));
+        }
+
+        this.source = source;
+        this.maxSize = maxSize;
+        this.unknown = new AtomicReferenceArray<>(maxUnknown);
+        this.loadPermits = new Semaphore(maxConcurrentLoads);
+        this.timeToLive = timeToLive;
+        this.refreshAhead = refreshAhead;
+        this.negativeTimeToLive = negativeTimeToLive;
+        this.executor = executor;
+    }
+
+    protected long now() {
+        return this.timeSource.millis();
+    }
+
+    /**
+     * Returns the key or <code>null</code> if it is unknown, blocks while the key
+     * is loaded.
+     */
+    public byte[] get(String keyId, Algorithm algorithm) {
+        Entry entry = this.entry(keyId, algorithm, false);
+        return entry == null ? null : entry.value.join();
+    }
+
+    /**
+     * Non-blocking variant of {@linkplain #get(String, Algorithm)}, a key that is
+     * not cached yet is loaded on the executor.
+     */
+    public CompletionStage<byte[]> getAsync(String keyId, Algorithm algorithm) {
+        Entry entry = this.entry(keyId, algorithm, true);
+        if (entry == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        /* callers must not be able to complete the shared future */
+        return entry.value.thenApply(v -> v);
+    }
+
+    private Entry entry(String keyId, Algorithm algorithm, boolean async) {
+        if (keyId == null || algorithm == null) {
+            return null;
+        }
+
+        Key key = new Key(keyId, algorithm);
+        long now = this.now();
+        Entry entry = this.map.get(key);
+        if (entry != null && !entry.isExpired(now)) {
+            this.hits.increment();
+            if (now >= entry.refreshAt && entry.refreshing.compareAndSet(false, true)) {
+                this.run(() -> this.refresh(entry));
+            }
+            return entry;
+        }
+
+        if (this.isUnknown(key, now)) {
+            this.hits.increment();
+            return null;
+        }
+
+        this.misses.increment();
+        if (entry == null && this.map.size() >= this.maxSize && !this.evict(now)) {
+            return null;
+        }
+
+        Entry created = new Entry(key);
+        Entry current = this.map.compute(key, (k, e) -> e != null && !e.isExpired(now) ? e : created);
+        if (current != created) {
+            return current;
+        }
+
+        this.enqueue(created);
+        if (!this.loadPermits.tryAcquire()) {
+            return this.await(created, now) ? created : null;
+        }
+
+        if (async) {
+            this.run(() -> this.loadAndDrain(created));
+        } else {
+            this.loadAndDrain(created);
+        }
+        return created;
+    }
+
+    /*
+     * Queues the load of the entry until a permit is available, lookups of the
+     * same key share it meanwhile. Returns false if too many loads are waiting
+     * already.
+     */
+    private boolean await(Entry entry, long now) {
+        if (this.waitingCount.incrementAndGet() > this.maxSize) {
+            this.waitingCount.decrementAndGet();
+            this.throttled.increment();
+            entry.expires = now;
+            this.map.remove(entry.key, entry);
+            entry.value.complete(null);
+            return false;
+        }
+
+        this.waiting.offer(entry);
+        /* a permit may have been released before the entry was queued */
+        this.drain();
+        return true;
+    }
+
+    /*
+     * Starts waiting loads while permits are available.
+     */
+    private void drain() {
+        while (this.waitingCount.get() > 0 && this.loadPermits.tryAcquire()) {
+            Entry entry = this.waiting.poll();
+            if (entry == null) {
+                /* counted but not offered yet, the caller of await drains it */
+                this.loadPermits.release();
+                return;
+            }
+
+            this.waitingCount.decrementAndGet();
+            if (this.executor == null) {
+                this.load(entry);
+            } else {
+                this.run(() -> this.loadAndDrain(entry));
+            }
+        }
+    }
+
+    private void loadAndDrain(Entry entry) {
+        this.load(entry);
+        this.drain();
+    }
+
+    private void run(Runnable task) {
+        if (this.executor == null) {
+            task.run();
+            return;
+        }
+
+        try {
+            this.executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            task.run();
+        }
+    }
+
+    /*
+     * Completes the entry and releases the load permit the caller acquired,
+     * returns false if the source failed.
+     */
+    private boolean load(Entry entry) {
+        this.loads.increment();
+        byte[] value = null;
+        boolean loaded = true;
+        try {
+            value = this.source.load(entry.key.keyId, entry.key.algorithm);
+        } catch (RuntimeException ex) {
+            this.failures.increment();
+            loaded = false;
+        } finally {
+            this.loadPermits.release();
+        }
+
+        long now = this.now();
+        if (value == null) {
+            entry.expires = now;
+            this.map.remove(entry.key, entry);
+            this.unknown.set(this.slot(entry.key), new Unknown(entry.key, now + this.negativeTimeToLive));
+        } else {
+            entry.expires = now + this.timeToLive;
+            if (this.refreshAhead > 0) {
+                entry.refreshAt = entry.expires - this.refreshAhead;
+            }
+        }
+        entry.value.complete(value);
+        return loaded;
+    }
+
+    private void refresh(Entry current) {
+        if (!this.loadPermits.tryAcquire()) {
+            /* retried by the next lookup */
+            this.throttled.increment();
+            current.refreshing.set(false);
+            return;
+        }
+
+        Entry fresh = new Entry(current.key);
+        boolean loaded = this.load(fresh);
+        this.drain();
+        if (!loaded) {
+            /* retry once the negative time to live has passed */
+            current.refreshAt = this.now() + this.negativeTimeToLive;
+            current.refreshing.set(false);
+        } else if (fresh.value.getNow(null) == null) {
+            this.map.remove(current.key, current);
+        } else if (this.map.replace(current.key, current, fresh)) {
+            this.enqueue(fresh);
+        }
+    }
+
+    private boolean isUnknown(Key key, long now) {
+        Unknown u = this.unknown.get(this.slot(key));
+        return u != null && u.expires > now && u.key.equals(key);
+    }
+
+    private int slot(Key key) {
+        int h = key.hashCode();
+        return ((h ^ (h >>> 16)) & 0x7fffffff) % this.unknown.length();
+    }
+
+    /*
+     * Once the queue holds twice as many entries as the ring, some of the oldest
+     * ones are checked so replaced entries do not pile up between cleanups.
+     */
+    private void enqueue(Entry entry) {
+        this.order.offer(entry);
+        if (this.queued.incrementAndGet() <= 2l * this.maxSize) {
+            return;
+        }
+
+        for (int i = 0; i < KeyRing.EVICT_SCAN; i++) {
+            Entry e = this.order.poll();
+            if (e == null) {
+                return;
+            }
+
+            if (this.map.get(e.key) == e) {
+                /* still current, keep it */
+                this.order.offer(e);
+            } else {
+                this.queued.decrementAndGet();
+            }
+        }
+    }
+
+    /*
+     * Removes the oldest current entry, returns true if there is room for
+     * another entry.
+     */
+    private boolean evict(long now) {
+        for (int i = 0; i < KeyRing.EVICT_SCAN && this.map.size() >= this.maxSize; i++) {
+            Entry e = this.order.poll();
+            if (e == null) {
+                break;
+            }
+
+            this.queued.decrementAndGet();
+            if (this.map.remove(e.key, e) && !e.isExpired(now)) {
+                this.evictions.increment();
+            }
+        }
+        return this.map.size() < this.maxSize;
+    }
+
+    public void clean() {
+        this.clean(this.now());
+    }
+
+    /**
+     * Removes expired keys and drops queued entries that are no longer current.
+     */
+    public void clean(long now) {
+        Iterator<Entry> entries = this.order.iterator();
+        while (entries.hasNext()) {
+            this.clean(entries, now);
+        }
+    }
+
+    /**
+     * Incremental {@linkplain #clean()}, every call continues where the previous
+     * one stopped.
+     */
+    @Override
+    public synchronized boolean maintain(long deadline) {
+        long now = this.now();
+        if (this.cleanCursor == null) {
+            this.cleanCursor = this.order.iterator();
+        }
+
+        while (true) {
+            for (int i = 0; i < KeyRing.CLEAN_CHUNK; i++) {
+                if (!this.cleanCursor.hasNext()) {
+                    this.cleanCursor = null;
+                    return false;
+                }
+                this.clean(this.cleanCursor, now);
+            }
+
+            if (System.nanoTime() - deadline >= 0) {
+                return true;
+            }
+        }
+    }
+
+    private void clean(Iterator<Entry> entries, long now) {
+        Entry e = entries.next();
+        if (this.map.get(e.key) != e || e.isExpired(now) && this.map.remove(e.key, e)) {
+            entries.remove();
+            this.queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * Removes the key with the provided id for all algorithms, the next lookup
+     * loads it again.
+     */
+    public void invalidate(String keyId) {
+        this.map.keySet().removeIf(k -> k.keyId.equals(keyId));
+        for (int i = 0; i < this.unknown.length(); i++) {
+            Unknown u = this.unknown.get(i);
+            if (u != null && u.key.keyId.equals(keyId)) {
+                this.unknown.compareAndSet(i, u, null);
+            }
+        }
+    }
+
+    public void setTimeSource(TimeSource timeSource) {
+        if (timeSource == null) {
+            throw new IllegalArgumentException("Time source is required");
+        }
+
+        this.timeSource = timeSource;
+    }
+
+    public TimeSource getTimeSource() {
+        return this.timeSource;
+    }
+
+    public void clear() {
+        this.map.clear();
+        for (int i = 0; i < this.unknown.length(); i++) {
+            this.unknown.set(i, null);
+        }
+    }
+
+    /**
+     * Number of cached keys, including keys that are being loaded. Unknown keys
+     * are not counted.
+     */
+    public int size() {
+        return this.map.size();
+    }
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Number of calls to the {@linkplain KeySource}, including background
+     * refreshes.
+     */
+    public long getLoads() {
+        return this.loads.sum();
+    }
+
+    /**
+     * Number of loads that failed with an exception.
+     */
+    public long getFailures() {
+        return this.failures.sum();
+    }
+
+    /**
+     * Number of lookups and refreshes that did not load a key because the maximum
+     * number of concurrent and waiting loads was reached.
+     */
+    public long getThrottled() {
+        return this.throttled.sum();
+    }
+
+    /**
+     * Number of keys removed before their expiration to make room for another
+     * key.
+     */
+    public long getEvictions() {
+        return this.evictions.sum();
+    }
+}
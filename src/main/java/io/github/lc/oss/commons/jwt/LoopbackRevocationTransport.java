@@ -0,0 +1,26 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In process {@linkplain RevocationTransport} that synchronously delivers every
+ * published batch to all subscribers of the same instance. Intended for tests
+ * and for sharing revocations between several lists in one JVM.
+ */
+public class LoopbackRevocationTransport implements RevocationTransport {
+    private final List<Consumer<RevocationDelta>> consumers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(RevocationDelta delta) {
+        for (Consumer<RevocationDelta> consumer : this.consumers) {
+            consumer.accept(delta);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<RevocationDelta> consumer) {
+        this.consumers.add(consumer);
+    }
+}
@@ -0,0 +1,239 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.security.GeneralSecurityException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import io.github.lc.oss.commons.signing.Algorithm;
+
+/**
+ * Thread safe pool of initialized HMAC engines per algorithm and key. Engines
+ * are borrowed for a single computation and returned afterwards, they are not
+ * bound to a thread so the pool works the same with platform and virtual
+ * threads. New engines are cloned from an initialized prototype, the provider
+ * lookup and key setup only happen once per key. <br />
+ * <br />
+ * Only the HMAC algorithms (HS256, HS384 and HS512) are supported, signatures
+ * are the unpadded Base64 URL encoding of the MAC as required for JWS. Before an
+ * algorithm is reported as supported a probe is signed by the pool and by the
+ * algorithm itself, if the signatures differ the algorithm is left to sign and
+ * verify on its own.
+ */
+public class MacPool {
+    private static final Map<String, String> JCA_NAMES = new HashMap<>();
+    private static final byte[] PROBE_SECRET = new byte[64];
+    private static final byte[] PROBE_DATA = "e30.e30".getBytes(StandardCharsets.US_ASCII);
+
+    static {
+        MacPool.JCA_NAMES.put("HS256", "HmacSHA256");
+        MacPool.JCA_NAMES.put("HS384", "HmacSHA384");
+        MacPool.JCA_NAMES.put("HS512", "HmacSHA512");
+    }
+
+    private static final class Key {
+        private final String algorithm;
+        private final byte[] secret;
+        private final int hash;
+
+        private Key(String algorithm, byte[] secret) {
+            this.algorithm = algorithm;
+            this.secret = secret;
+            this.hash = algorithm.hashCode() * 31 + Arrays.hashCode(secret);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+            return this.algorithm.equals(other.algorithm) && Arrays.equals(this.secret, other.secret);
+        }
+    }
+
+    private final class Engines {
+        private final String jcaName;
+        private final byte[] secret;
+        private final Mac prototype;
+        private final Queue<Mac> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+
+        private Engines(String jcaName, byte[] secret) {
+            this.jcaName = jcaName;
+            this.secret = secret;
+            this.prototype = this.create();
+        }
+
+        private Mac create() {
+            try {
+                Mac mac = Mac.getInstance(this.jcaName);
+                mac.init(new SecretKeySpec(this.secret, this.jcaName));
+                MacPool.this.created.increment();
+                return mac;
+            } catch (GeneralSecurityException ex) {
+                throw new RuntimeException("Error creating MAC engine.", ex);
+            }
+        }
+
+        private Mac acquire() {
+            Mac mac = this.idle.poll();
+            if (mac != null) {
+                this.idleCount.decrementAndGet();
+                return mac;
+            }
+
+            try {
+                synchronized (this.prototype) {
+                    mac = (Mac) this.prototype.clone();
+                }
+                MacPool.this.created.increment();
+                return mac;
+            } catch (CloneNotSupportedException ex) {
+                return this.create();
+            }
+        }
+
+        private void release(Mac mac) {
+            if (this.idleCount.incrementAndGet() <= MacPool.this.maxIdle) {
+                this.idle.offer(mac);
+            } else {
+                this.idleCount.decrementAndGet();
+            }
+        }
+    }
+
+    private final Map<Key, Engines> engines = new ConcurrentHashMap<>();
+    private final Map<Algorithm, Boolean> compatible = new ConcurrentHashMap<>();
+    private final LongAdder created = new LongAdder();
+    private final int maxKeys;
+    private final int maxIdle;
+
+    public MacPool() {
+        this(64, 16);
+    }
+
+    /**
+     * @param maxKeys Maximum number of algorithm and key combinations engines are
+     *                kept for, once exceeded all engines are discarded.
+     * @param maxIdle Maximum number of idle engines kept per key.
+     */
+    public MacPool(int maxKeys, int maxIdle) {
+        if (maxKeys < 1) {
+            throw new IllegalArgumentException("Max keys must be positive number but was " + maxKeys);
+        }
+
+        if (maxIdle < 1) {
+            throw new IllegalArgumentException("Max idle must be positive number but was " + maxIdle);
+        }
+
+        this.maxKeys = maxKeys;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Returns <code>true</code> for HMAC algorithms whose own signatures match the
+     * ones produced by this pool.
+     */
+    public boolean isSupported(Algorithm algorithm) {
+        if (algorithm == null || !MacPool.JCA_NAMES.containsKey(algorithm.getId())) {
+            return false;
+        }
+        return this.compatible.computeIfAbsent(algorithm, this::matches);
+    }
+
+    private boolean matches(Algorithm algorithm) {
+        String jcaName = MacPool.JCA_NAMES.get(algorithm.getId());
+        try {
+            Mac mac = Mac.getInstance(jcaName);
+            mac.init(new SecretKeySpec(MacPool.PROBE_SECRET, jcaName));
+            String signature = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(mac.doFinal(MacPool.PROBE_DATA));
+            return signature.equals(algorithm.getSignature(MacPool.PROBE_SECRET, MacPool.PROBE_DATA));
+        } catch (GeneralSecurityException | RuntimeException ex) {
+            return false;
+        }
+    }
+
+    public String getSignature(Algorithm algorithm, byte[] secret, byte[] data) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(this.mac(algorithm, secret, data));
+    }
+
+    /**
+     * Compares the encoded signature in constant time. Only the exact encoding
+     * produced by {@linkplain #getSignature(Algorithm, byte[], byte[])} is valid,
+     * padded or otherwise non-canonical encodings of the same MAC are not, the
+     * signature string identifies the token (e.g. for revocation).
+     */
+    public boolean isSignatureValid(Algorithm algorithm, byte[] secret, byte[] data, String signature) {
+        if (signature == null) {
+            return false;
+        }
+
+        byte[] expected = this.getSignature(algorithm, secret, data).getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private byte[] mac(Algorithm algorithm, byte[] secret, byte[] data) {
+        String jcaName = algorithm == null ? null : MacPool.JCA_NAMES.get(algorithm.getId());
+        if (jcaName == null) {
+            throw new IllegalArgumentException("Unsupported algorithm " + algorithm);
+        }
+
+        if (secret == null || secret.length * 8 < algorithm.getMinBitLength()) {
+            throw new IllegalArgumentException("Secret must be at least " + algorithm.getMinBitLength() + " bits");
+        }
+
+        Engines e = this.engines.get(new Key(algorithm.getId(), secret));
+        if (e == null) {
+            if (this.engines.size() >= this.maxKeys) {
+                this.engines.clear();
+            }
+            byte[] copy = secret.clone();
+            e = this.engines.computeIfAbsent(new Key(algorithm.getId(), copy), k -> new Engines(jcaName, copy));
+        }
+
+        Mac mac = e.acquire();
+        try {
+            /* doFinal resets the engine for the next use */
+            return mac.doFinal(data);
+        } finally {
+            e.release(mac);
+        }
+    }
+
+    /**
+     * Number of algorithm and key combinations engines are currently kept for.
+     */
+    public int size() {
+        return this.engines.size();
+    }
+
+    /**
+     * Number of engines created, including the prototype of each key.
+     */
+    public long getCreated() {
+        return this.created.sum();
+    }
+
+    public void clear() {
+        this.engines.clear();
+    }
+}
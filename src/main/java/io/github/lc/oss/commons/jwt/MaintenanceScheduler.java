@@ -0,0 +1,197 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs registered {@linkplain MaintenanceTask}s (e.g. cleaning the
+ * {@linkplain JwtRevocationList} or a {@linkplain UserCache}) on a background
+ * thread so cleanup never runs on a request thread. <br />
+ * <br />
+ * Every regular run gives each task one time boxed slice. Tasks that report
+ * remaining work form the backlog, only they are run again after a pause of one
+ * slice instead of waiting for the next regular run, so large cleanups are
+ * spread out instead of holding locks for a long time. <br />
+ * <br />
+ * By default a single daemon thread is used, a different
+ * {@linkplain ThreadFactory} (e.g. for virtual threads) can be provided.
+ */
+public class MaintenanceScheduler implements Closeable {
+    public static final long DEFAULT_CADENCE_MILLIS = 10000;
+    public static final long DEFAULT_SLICE_MILLIS = 5;
+
+    private final List<MaintenanceTask> tasks = new CopyOnWriteArrayList<>();
+    private final Set<MaintenanceTask> backlog = ConcurrentHashMap.newKeySet();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder slices = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final ScheduledExecutorService executor;
+    private final long cadenceMillis;
+    private final long sliceMillis;
+    private volatile long nextRunNanos;
+
+    public MaintenanceScheduler() {
+        this(MaintenanceScheduler.DEFAULT_CADENCE_MILLIS, MaintenanceScheduler.DEFAULT_SLICE_MILLIS, null);
+    }
+
+    /**
+     * @param cadenceMillis Time between regular runs in milliseconds.
+     * @param sliceMillis   Time budget of one task per run in milliseconds.
+     * @param threadFactory Optional factory of the maintenance thread, defaults to
+     *                      a daemon thread.
+     */
+    public MaintenanceScheduler(long cadenceMillis, long sliceMillis, ThreadFactory threadFactory) {
+        if (cadenceMillis < 1) {
+            throw new IllegalArgumentException(
+                    "Cadence must be positive number but was " + Long.toString(cadenceMillis));
+        }
+
+        if (sliceMillis < 1) {
+            throw new IllegalArgumentException(
+                    "Slice must be positive number but was " + Long.toString(sliceMillis));
+        }
+
+        this.cadenceMillis = cadenceMillis;
+        this.sliceMillis = sliceMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(threadFactory == null ? r -> {
+            Thread t = new Thread(r, "jwt-maintenance");
+            t.setDaemon(true);
+            return t;
+        } : threadFactory);
+        this.nextRunNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cadenceMillis);
+        this.schedule(this::run, cadenceMillis);
+    }
+
+    public void register(MaintenanceTask task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task is required");
+        }
+
+        if (!this.tasks.contains(task)) {
+            this.tasks.add(task);
+        }
+    }
+
+    public void unregister(MaintenanceTask task) {
+        this.tasks.remove(task);
+        this.backlog.remove(task);
+    }
+
+    private void schedule(Runnable run, long delayMillis) {
+        try {
+            this.executor.schedule(run, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            /* closed */
+        }
+    }
+
+    /*
+     * Rescheduling happens in finally blocks, an Error thrown by a task must not
+     * end maintenance.
+     */
+    private void scheduleNext() {
+        long delay = TimeUnit.NANOSECONDS.toMillis(this.nextRunNanos - System.nanoTime());
+        if (!this.backlog.isEmpty() && delay > this.sliceMillis) {
+            this.schedule(this::runBacklog, this.sliceMillis);
+        } else {
+            this.schedule(this::run, Math.max(0, delay));
+        }
+    }
+
+    /*
+     * Regular run of all tasks.
+     */
+    void run() {
+        this.nextRunNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.cadenceMillis);
+        try {
+            this.maintain(this.tasks);
+        } finally {
+            this.scheduleNext();
+        }
+    }
+
+    /*
+     * Run of the tasks with remaining work only.
+     */
+    void runBacklog() {
+        try {
+            this.maintain(this.backlog);
+        } finally {
+            this.scheduleNext();
+        }
+    }
+
+    private void maintain(Iterable<MaintenanceTask> tasks) {
+        long sliceNanos = TimeUnit.MILLISECONDS.toNanos(this.sliceMillis);
+        for (MaintenanceTask task : tasks) {
+            boolean more;
+            try {
+                more = task.maintain(System.nanoTime() + sliceNanos);
+            } catch (RuntimeException ex) {
+                this.failures.increment();
+                this.log("Error running maintenance task", ex);
+                more = false;
+            }
+            this.slices.increment();
+
+            if (more && this.tasks.contains(task)) {
+                this.backlog.add(task);
+            } else {
+                this.backlog.remove(task);
+            }
+        }
+        this.runs.increment();
+    }
+
+    /**
+     * Default implementation does not log anything. To log a message override this
+     * method.
+     */
+    protected void log(String message, Throwable ex) {
+    }
+
+    public long getCadenceMillis() {
+        return this.cadenceMillis;
+    }
+
+    public long getSliceMillis() {
+        return this.sliceMillis;
+    }
+
+    public int getTaskCount() {
+        return this.tasks.size();
+    }
+
+    /**
+     * Number of tasks that reported remaining work after their last slice.
+     */
+    public int getBacklog() {
+        return this.backlog.size();
+    }
+
+    public long getRuns() {
+        return this.runs.sum();
+    }
+
+    public long getSlices() {
+        return this.slices.sum();
+    }
+
+    public long getFailures() {
+        return this.failures.sum();
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+}
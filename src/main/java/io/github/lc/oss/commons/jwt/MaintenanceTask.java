@@ -0,0 +1,16 @@
+package io.github.lc.oss.commons.jwt;
+
+/**
+ * Incremental background work run by a {@linkplain MaintenanceScheduler}.
+ */
+@FunctionalInterface
+public interface MaintenanceTask {
+    /**
+     * Performs one slice of work and returns as soon as possible once
+     * {@linkplain System#nanoTime()} has reached <code>deadline</code>.
+     *
+     * @return <code>true</code> if work is left and the task should be called
+     *         again without waiting for the next regular run.
+     */
+    boolean maintain(long deadline);
+}
@@ -0,0 +1,125 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Default {@linkplain RevocationStore}. Lookups are lock free reads of a
+ * {@linkplain ConcurrentHashMap}. Entries are additionally grouped into fixed
+ * width expiration buckets so {@linkplain #clean(long)} can drop every bucket
+ * that ended in the past as a whole and only has to inspect the individual
+ * entries of the bucket that is currently expiring.
+ */
+public class MapRevocationStore implements RevocationStore {
+    private final Map<RevocationDigest, Long> map = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Set<RevocationDigest>> buckets = new ConcurrentSkipListMap<>();
+    private final long bucketMillis;
+
+    public MapRevocationStore(long bucketMillis) {
+        if (bucketMillis < 1) {
+            throw new IllegalArgumentException(
+                    "Bucket size must be positive number but was " + Long.toString(bucketMillis));
+        }
+
+        this.bucketMillis = bucketMillis;
+    }
+
+    @Override
+    public boolean put(RevocationDigest digest, long expiration) {
+        Long previous = this.map.put(digest, expiration);
+        if (previous != null && previous == expiration) {
+            return false;
+        }
+
+        Long bucket = this.getBucket(expiration);
+        while (true) {
+            Set<RevocationDigest> set = this.buckets.computeIfAbsent(bucket, k -> ConcurrentHashMap.newKeySet());
+            set.add(digest);
+            if (this.buckets.get(bucket) == set) {
+                return true;
+            }
+            /* bucket was dropped by a concurrent clean, add to a fresh one */
+        }
+    }
+
+    @Override
+    public boolean contains(RevocationDigest digest) {
+        return this.map.containsKey(digest);
+    }
+
+    @Override
+    public void clean(long now) {
+        this.clean(now, false, 0);
+    }
+
+    @Override
+    public boolean clean(long now, long deadline) {
+        return this.clean(now, true, deadline);
+    }
+
+    private boolean clean(long now, boolean timed, long deadline) {
+        final long current = this.getBucket(now);
+
+        Map.Entry<Long, Set<RevocationDigest>> expired = this.buckets.firstEntry();
+        while (expired != null && expired.getKey() < current) {
+            if (this.buckets.remove(expired.getKey(), expired.getValue())) {
+                Iterator<RevocationDigest> digests = expired.getValue().iterator();
+                while (digests.hasNext()) {
+                    this.removeIfExpired(digests.next(), now);
+                    digests.remove();
+                    if (timed && digests.hasNext() && System.nanoTime() - deadline >= 0) {
+                        /* put the rest back for the next slice */
+                        this.buckets.computeIfAbsent(expired.getKey(), k -> ConcurrentHashMap.newKeySet())
+                                .addAll(expired.getValue());
+                        return true;
+                    }
+                }
+            }
+            expired = this.buckets.firstEntry();
+        }
+
+        Set<RevocationDigest> expiring = this.buckets.get(current);
+        if (expiring != null) {
+            expiring.removeIf(digest -> {
+                Long expiration = this.map.get(digest);
+                if (expiration == null || this.getBucket(expiration) != current) {
+                    /* removed or revoked again with a different expiration */
+                    return true;
+                }
+                return this.removeIfExpired(digest, now);
+            });
+        }
+        return false;
+    }
+
+    /*
+     * Conditional removal so a concurrent revoke with a later expiration is never
+     * lost.
+     */
+    private boolean removeIfExpired(RevocationDigest digest, long now) {
+        Long expiration = this.map.get(digest);
+        if (expiration != null && now >= expiration) {
+            return this.map.remove(digest, expiration);
+        }
+        return false;
+    }
+
+    private long getBucket(long expiration) {
+        return Math.floorDiv(expiration, this.bucketMillis);
+    }
+
+    @Override
+    public int size() {
+        return this.map.size();
+    }
+
+    @Override
+    public void forEach(EntryConsumer consumer) {
+        for (Map.Entry<RevocationDigest, Long> e : this.map.entrySet()) {
+            consumer.accept(e.getKey().getHigh(), e.getKey().getLow(), e.getValue());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.security.SecureRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Default {@linkplain TokenIdGenerator} producing 128 bit random ids. <br />
+ * <br />
+ * Random bytes come from several independent {@linkplain SecureRandom}
+ * stripes that are refilled in bulk, so concurrent callers rarely wait on each
+ * other and only hold a lock for the copy of 16 bytes. The stripes are guarded
+ * by locks rather than monitors so virtual threads are never pinned. <br />
+ * <br />
+ * Ids are formatted as a random (version 4) UUID, the same format
+ * {@linkplain java.util.UUID#randomUUID()} produces, or as a ULID whose first
+ * 48 bits are the time in milliseconds followed by 80 random bits. ULIDs sort
+ * by creation time which keeps indexes of issued tokens local.
+ */
+public class RandomTokenIdGenerator implements TokenIdGenerator {
+    public enum Format {
+        UUID, ULID
+    }
+
+    private static final int ID_BYTES = 16;
+    private static final int BUFFER_IDS = 64;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final SecureRandom random = new SecureRandom();
+        private final byte[] buffer = new byte[RandomTokenIdGenerator.ID_BYTES * RandomTokenIdGenerator.BUFFER_IDS];
+        private int position = this.buffer.length;
+
+        private void next(byte[] id) {
+            if (this.position >= this.buffer.length) {
+                this.random.nextBytes(this.buffer);
+                this.position = 0;
+            }
+            System.arraycopy(this.buffer, this.position, id, 0, RandomTokenIdGenerator.ID_BYTES);
+            /* consumed bytes are not kept around */
+            for (int i = 0; i < RandomTokenIdGenerator.ID_BYTES; i++) {
+                this.buffer[this.position + i] = 0;
+            }
+            this.position += RandomTokenIdGenerator.ID_BYTES;
+        }
+    }
+
+    private final Format format;
+    private final Stripe[] stripes;
+    private final int mask;
+
+    public RandomTokenIdGenerator() {
+        this(Format.UUID);
+    }
+
+    public RandomTokenIdGenerator(Format format) {
+        this(format, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param format  Format of the generated ids.
+     * @param stripes Number of independent random sources, rounded up to the
+     *                next power of two.
+     */
+    public RandomTokenIdGenerator(Format format, int stripes) {
+        if (format == null) {
+            throw new IllegalArgumentException("Format is required");
+        }
+
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Stripes must be positive number but was " + stripes);
+        }
+
+        int count = Integer.highestOneBit(Math.min(stripes, 1 << 16) * 2 - 1);
+        this.format = format;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = count - 1;
+    }
+
+    public Format getFormat() {
+        return this.format;
+    }
+
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public String next() {
+        byte[] id = new byte[RandomTokenIdGenerator.ID_BYTES];
+        this.random(id);
+        if (this.format == Format.ULID) {
+            return RandomTokenIdGenerator.ulid(this.now(), id);
+        }
+        return RandomTokenIdGenerator.uuid(id);
+    }
+
+    /*
+     * Starts at the stripe of the current thread and takes the first one that is
+     * not in use, waiting only if all of them are.
+     */
+    private void random(byte[] id) {
+        int start = (int) RandomTokenIdGenerator.mix(Thread.currentThread().getId()) & this.mask;
+        for (int i = 0; i <= this.mask; i++) {
+            Stripe stripe = this.stripes[(start + i) & this.mask];
+            if (stripe.lock.tryLock()) {
+                try {
+                    stripe.next(id);
+                    return;
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        }
+
+        Stripe stripe = this.stripes[start];
+        stripe.lock.lock();
+        try {
+            stripe.next(id);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    static String uuid(byte[] id) {
+        /* version 4, IETF variant */
+        id[6] = (byte) ((id[6] & 0x0f) | 0x40);
+        id[8] = (byte) ((id[8] & 0x3f) | 0x80);
+
+        char[] chars = new char[36];
+        int c = 0;
+        for (int i = 0; i < RandomTokenIdGenerator.ID_BYTES; i++) {
+            if (i == 4 || i == 6 || i == 8 || i == 10) {
+                chars[c++] = '-';
+            }
+            chars[c++] = RandomTokenIdGenerator.HEX[(id[i] >> 4) & 0x0f];
+            chars[c++] = RandomTokenIdGenerator.HEX[id[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    static String ulid(long time, byte[] id) {
+        /* 48 bit time followed by the last 80 random bits */
+        long high = (time & 0xffffffffffffL) << 16 | (id[6] & 0xffL) << 8 | (id[7] & 0xffL);
+        long low = 0;
+        for (int i = 8; i < RandomTokenIdGenerator.ID_BYTES; i++) {
+            low = low << 8 | (id[i] & 0xffL);
+        }
+
+        /* 26 characters of 5 bits each, the first one only holds 3 bits */
+        char[] chars = new char[26];
+        for (int i = 25; i >= 0; i--) {
+            chars[i] = RandomTokenIdGenerator.CROCKFORD[(int) (low & 0x1f)];
+            low = low >>> 5 | (high & 0x1f) << 59;
+            high >>>= 5;
+        }
+        return new String(chars);
+    }
+}
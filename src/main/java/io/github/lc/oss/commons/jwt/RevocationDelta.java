@@ -0,0 +1,118 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Immutable batch of revocations (digest and expiration) published by one node.
+ * Sequence numbers are assigned per source node and increase by one for every
+ * batch so receivers can detect duplicates and gaps. The epoch identifies the
+ * incarnation of the source, a node that restarts publishes under a new epoch
+ * and starts its sequence over. <br />
+ * <br />
+ * {@linkplain #toBytes()} and {@linkplain #fromBytes(byte[])} provide a compact
+ * binary form for transports that cross process boundaries.
+ */
+public final class RevocationDelta {
+    private static final int VERSION = 1;
+    private static final int MAX_SOURCE_BYTES = 0xffff;
+    private static final int ENTRY_BYTES = 3 * Long.BYTES;
+
+    private final String source;
+    private final long epoch;
+    private final long sequence;
+    private final long[] entries;
+
+    /**
+     * @param source  Id of the source node, at most 65535 bytes in UTF-8.
+     * @param epoch   Incarnation of the source node.
+     * @param entries Revocations as consecutive (digest high, digest low,
+     *                expiration) triples.
+     */
+    public RevocationDelta(String source, long epoch, long sequence, long[] entries) {
+        if (source == null || entries == null || entries.length % 3 != 0) {
+            throw new IllegalArgumentException("Source and entry triples are required");
+        }
+
+        int length = source.getBytes(StandardCharsets.UTF_8).length;
+        if (length > RevocationDelta.MAX_SOURCE_BYTES) {
+            throw new IllegalArgumentException(
+                    "Source must be at most " + RevocationDelta.MAX_SOURCE_BYTES + " bytes but was " + length);
+        }
+
+        this.source = source;
+        this.epoch = epoch;
+        this.sequence = sequence;
+        this.entries = entries.clone();
+    }
+
+    public static RevocationDelta fromBytes(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            int version = buffer.getInt();
+            if (version != RevocationDelta.VERSION) {
+                throw new IllegalArgumentException("Unsupported revocation delta version");
+            }
+
+            byte[] source = new byte[buffer.getShort() & 0xffff];
+            buffer.get(source);
+            long epoch = buffer.getLong();
+            long sequence = buffer.getLong();
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / RevocationDelta.ENTRY_BYTES) {
+                throw new IllegalArgumentException("Entry count does not match the data");
+            }
+
+            long[] entries = new long[count * 3];
+            buffer.asLongBuffer().get(entries);
+            return new RevocationDelta(new String(source, StandardCharsets.UTF_8), epoch, sequence, entries);
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid revocation delta", ex);
+        }
+    }
+
+    public byte[] toBytes() {
+        byte[] source = this.source.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Short.BYTES + source.length + Long.BYTES
+                + Long.BYTES + Integer.BYTES + this.entries.length * Long.BYTES);
+        buffer.putInt(RevocationDelta.VERSION);
+        buffer.putShort((short) source.length);
+        buffer.put(source);
+        buffer.putLong(this.epoch);
+        buffer.putLong(this.sequence);
+        buffer.putInt(this.size());
+        buffer.asLongBuffer().put(this.entries);
+        return buffer.array();
+    }
+
+    public String getSource() {
+        return this.source;
+    }
+
+    public long getEpoch() {
+        return this.epoch;
+    }
+
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * Number of revocations in this batch.
+     */
+    public int size() {
+        return this.entries.length / 3;
+    }
+
+    public long getHigh(int index) {
+        return this.entries[index * 3];
+    }
+
+    public long getLow(int index) {
+        return this.entries[index * 3 + 1];
+    }
+
+    public long getExpiration(int index) {
+        return this.entries[index * 3 + 2];
+    }
+}
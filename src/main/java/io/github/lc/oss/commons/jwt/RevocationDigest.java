@@ -0,0 +1,132 @@
+package io.github.lc.oss.commons.jwt;
+
+/**
+ * Fixed width (128 bit) digest of a token signature used as the key of revoked
+ * tokens instead of the full Base64 signature. <br />
+ * <br />
+ * The digest is a MurmurHash3 (x64, 128 bit) style hash of the UTF-16 code
+ * units of the signature. It is not a cryptographic hash, a collision can only
+ * cause a token to be treated as revoked and never the other way around.
+ * Digests are persisted and exchanged between nodes so the algorithm must never
+ * change.
+ */
+public final class RevocationDigest {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final long high;
+    private final long low;
+
+    public static RevocationDigest of(String signature) {
+        long h1 = 0;
+        long h2 = 0;
+        int length = signature.length();
+
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            long k1 = RevocationDigest.pack(signature, i, 4);
+            long k2 = RevocationDigest.pack(signature, i + 4, 4);
+
+            h1 ^= RevocationDigest.mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= RevocationDigest.mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        int remaining = length - i;
+        if (remaining > 4) {
+            h2 ^= RevocationDigest.mixK2(RevocationDigest.pack(signature, i + 4, remaining - 4));
+        }
+        if (remaining > 0) {
+            h1 ^= RevocationDigest.mixK1(RevocationDigest.pack(signature, i, Math.min(4, remaining)));
+        }
+
+        h1 ^= length * 2L;
+        h2 ^= length * 2L;
+        h1 += h2;
+        h2 += h1;
+        h1 = RevocationDigest.fmix(h1);
+        h2 = RevocationDigest.fmix(h2);
+        h1 += h2;
+        h2 += h1;
+
+        return new RevocationDigest(h1, h2);
+    }
+
+    private static long pack(String s, int offset, int count) {
+        long k = 0;
+        for (int j = 0; j < count; j++) {
+            k |= (long) s.charAt(offset + j) << (16 * j);
+        }
+        return k;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= RevocationDigest.C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= RevocationDigest.C2;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= RevocationDigest.C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= RevocationDigest.C1;
+        return k2;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * The all zero digest is reserved to mark empty slots in
+     * {@linkplain CompactRevocationStore} and is mapped to <code>(0, 1)</code>.
+     */
+    public RevocationDigest(long high, long low) {
+        this.high = high;
+        this.low = high == 0 && low == 0 ? 1 : low;
+    }
+
+    public long getHigh() {
+        return this.high;
+    }
+
+    public long getLow() {
+        return this.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (this.high ^ (this.high >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (!(obj instanceof RevocationDigest)) {
+            return false;
+        }
+
+        RevocationDigest other = (RevocationDigest) obj;
+        return this.high == other.high && this.low == other.low;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", this.high, this.low);
+    }
+}
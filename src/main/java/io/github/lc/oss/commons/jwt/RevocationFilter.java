@@ -0,0 +1,88 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe Bloom filter of revoked signatures. A negative answer is exact, a
+ * positive answer only means the signature may have been revoked and must be
+ * confirmed against the revocation list. Entries can not be removed, the owner
+ * is expected to replace the filter with a freshly built one once enough
+ * entries have expired.
+ */
+public class RevocationFilter {
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray bits;
+    private final AtomicInteger insertions = new AtomicInteger();
+    private final int expectedInsertions;
+    private final long mask;
+    private final int hashes;
+
+    public RevocationFilter(int expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException(
+                    "Expected insertions must be positive number but was " + expectedInsertions);
+        }
+
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException(
+                    "False positive rate must be between 0 and 1 but was " + falsePositiveRate);
+        }
+
+        double ln2Squared = RevocationFilter.LN2 * RevocationFilter.LN2;
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / ln2Squared);
+        long bitCount = Long.highestOneBit(Math.max(64, optimalBits - 1)) << 1;
+
+        this.bits = new AtomicLongArray((int) Math.min(1L << 30, bitCount >>> 6));
+        this.mask = ((long) this.bits.length() << 6) - 1;
+        this.hashes = Math.max(1, (int) Math.round((double) optimalBits / expectedInsertions * RevocationFilter.LN2));
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    public void add(RevocationDigest digest) {
+        this.add(digest.getHigh(), digest.getLow());
+    }
+
+    /*
+     * The digest is already well mixed, its two halves are used directly as the
+     * double hashing seeds.
+     */
+    void add(long high, long low) {
+        long step = low | 1;
+        for (int i = 0; i < this.hashes; i++) {
+            long bit = (high + i * step) & this.mask;
+            int index = (int) (bit >>> 6);
+            long value = 1L << bit;
+            long current = this.bits.get(index);
+            while ((current & value) == 0 && !this.bits.compareAndSet(index, current, current | value)) {
+                current = this.bits.get(index);
+            }
+        }
+        this.insertions.incrementAndGet();
+    }
+
+    public boolean mightContain(RevocationDigest digest) {
+        long high = digest.getHigh();
+        long step = digest.getLow() | 1;
+        for (int i = 0; i < this.hashes; i++) {
+            long bit = (high + i * step) & this.mask;
+            if ((this.bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getExpectedInsertions() {
+        return this.expectedInsertions;
+    }
+
+    /**
+     * Number of {@linkplain #add(RevocationDigest)} calls, including duplicates and entries
+     * that have since expired from the revocation list.
+     */
+    public int getInsertions() {
+        return this.insertions.get();
+    }
+}
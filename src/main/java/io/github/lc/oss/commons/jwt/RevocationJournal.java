@@ -0,0 +1,288 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Local file persistence for a {@linkplain JwtRevocationList}. Every revocation
+ * is appended to a memory mapped log of fixed size records (digest high, digest
+ * low, expiration). The log is periodically compacted into a snapshot that only
+ * contains the entries that have not expired yet, after which the log starts
+ * over. Appends continue while the snapshot is written, records appended
+ * meanwhile are kept in the log. <br />
+ * <br />
+ * On startup the snapshot is mapped and the log replayed up to the first record
+ * without an expiration, which is written last and marks the record complete.
+ * A crash between writing the snapshot and resetting the log only causes some
+ * entries to be loaded twice. <br />
+ * <br />
+ * Writes go to the operating system page cache and survive a crash of the JVM.
+ * Use <code>sync</code> to also force every record to the storage device.
+ */
+public class RevocationJournal implements Closeable {
+    public static final String SNAPSHOT_FILE = "revocations.snapshot";
+    public static final String LOG_FILE = "revocations.log";
+    public static final int DEFAULT_LOG_CAPACITY = 65536;
+
+    private static final int RECORD_SIZE = 3 * Long.BYTES;
+    private static final int SNAPSHOT_MAGIC = 0x4a575452;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES;
+
+    private final Path directory;
+    private final int logCapacity;
+    private final boolean sync;
+    private final FileChannel logChannel;
+    private final MappedByteBuffer log;
+    private int logSize;
+    private boolean overflowed;
+    private boolean compacting;
+
+    public RevocationJournal(Path directory) {
+        this(directory, RevocationJournal.DEFAULT_LOG_CAPACITY, false);
+    }
+
+    /**
+     * @param directory   Directory holding the snapshot and log files, created if
+     *                    missing.
+     * @param logCapacity Number of records the log holds before it is compacted.
+     * @param sync        Force every appended record to the storage device.
+     */
+    public RevocationJournal(Path directory, int logCapacity, boolean sync) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory is required");
+        }
+
+        if (logCapacity < 1) {
+            throw new IllegalArgumentException("Log capacity must be positive number but was " + logCapacity);
+        }
+
+        this.directory = directory;
+        this.logCapacity = logCapacity;
+        this.sync = sync;
+        try {
+            Files.createDirectories(directory);
+            this.logChannel = FileChannel.open(directory.resolve(RevocationJournal.LOG_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.log = this.logChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    (long) logCapacity * RevocationJournal.RECORD_SIZE);
+            this.log.order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error opening revocation journal.", ex);
+        }
+
+        while (this.logSize < logCapacity && !this.isEmpty(this.logSize)) {
+            this.logSize++;
+        }
+    }
+
+    private boolean isEmpty(int record) {
+        return this.log.getLong(record * RevocationJournal.RECORD_SIZE + 2 * Long.BYTES) == 0;
+    }
+
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    public int getLogCapacity() {
+        return this.logCapacity;
+    }
+
+    /**
+     * Number of records currently in the log.
+     */
+    public synchronized int getLogSize() {
+        return this.logSize;
+    }
+
+    /**
+     * Passes every persisted entry, snapshot first and then the log, to the
+     * consumer. Entries that have expired before <code>now</code> are skipped.
+     */
+    public synchronized void load(RevocationStore.EntryConsumer consumer, long now) {
+        Path snapshot = this.directory.resolve(RevocationJournal.SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                this.loadSnapshot(buffer, consumer, now);
+            } catch (IOException ex) {
+                throw new RuntimeException("Error reading revocation snapshot.", ex);
+            }
+        }
+
+        for (int i = 0; i < this.logSize; i++) {
+            int offset = i * RevocationJournal.RECORD_SIZE;
+            RevocationJournal.accept(this.log, offset, consumer, now);
+        }
+    }
+
+    private void loadSnapshot(ByteBuffer buffer, RevocationStore.EntryConsumer consumer, long now) {
+        if (buffer.limit() < RevocationJournal.SNAPSHOT_HEADER_SIZE || //
+                buffer.getInt(0) != RevocationJournal.SNAPSHOT_MAGIC || //
+                buffer.getInt(Integer.BYTES) != RevocationJournal.SNAPSHOT_VERSION) {
+            throw new RuntimeException("Invalid revocation snapshot.");
+        }
+
+        long count = buffer.getLong(2 * Integer.BYTES);
+        if (buffer.limit() != RevocationJournal.SNAPSHOT_HEADER_SIZE + count * RevocationJournal.RECORD_SIZE) {
+            throw new RuntimeException("Invalid revocation snapshot.");
+        }
+
+        for (int i = 0; i < count; i++) {
+            int offset = RevocationJournal.SNAPSHOT_HEADER_SIZE + i * RevocationJournal.RECORD_SIZE;
+            RevocationJournal.accept(buffer, offset, consumer, now);
+        }
+    }
+
+    private static void accept(ByteBuffer buffer, int offset, RevocationStore.EntryConsumer consumer, long now) {
+        long expiration = buffer.getLong(offset + 2 * Long.BYTES);
+        if (expiration > now) {
+            consumer.accept(buffer.getLong(offset), buffer.getLong(offset + Long.BYTES), expiration);
+        }
+    }
+
+    /**
+     * Whether an append found the log full since the last compaction started.
+     * Such entries are only persisted by the next compaction.
+     */
+    public synchronized boolean hasOverflowed() {
+        return this.overflowed;
+    }
+
+    /**
+     * Appends an entry to the log. Returns <code>false</code> if the log is full
+     * and has to be compacted first.
+     */
+    public synchronized boolean append(RevocationDigest digest, long expiration) {
+        if (expiration <= 0) {
+            /* already expired and 0 marks the end of the log */
+            return true;
+        }
+
+        if (this.logSize >= this.logCapacity) {
+            this.overflowed = true;
+            return false;
+        }
+
+        int offset = this.logSize * RevocationJournal.RECORD_SIZE;
+        this.log.putLong(offset, digest.getHigh());
+        this.log.putLong(offset + Long.BYTES, digest.getLow());
+        this.log.putLong(offset + 2 * Long.BYTES, expiration);
+        this.logSize++;
+        if (this.sync) {
+            this.log.force();
+        }
+        return true;
+    }
+
+    /**
+     * Writes every entry of the store that has not expired before
+     * <code>now</code> to a new snapshot and removes the records it covers from
+     * the log. Callers must add entries to the store before appending them to
+     * this journal, otherwise an entry appended while the snapshot is written may
+     * be lost. Does nothing if another compaction is running.
+     */
+    public void compact(RevocationStore store, long now) {
+        int covered;
+        synchronized (this) {
+            if (this.compacting) {
+                return;
+            }
+            /* every record up to here is already in the store */
+            covered = this.logSize;
+            this.overflowed = false;
+            this.compacting = true;
+        }
+
+        try {
+            Path snapshot = this.directory.resolve(RevocationJournal.SNAPSHOT_FILE);
+            Path temp = this.directory.resolve(RevocationJournal.SNAPSHOT_FILE + ".tmp");
+            try {
+                this.writeSnapshot(temp, store, now);
+                Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                throw new RuntimeException("Error writing revocation snapshot.", ex);
+            }
+
+            synchronized (this) {
+                this.truncate(covered);
+            }
+        } finally {
+            synchronized (this) {
+                this.compacting = false;
+            }
+        }
+    }
+
+    /*
+     * Moves the records appended during a compaction to the start of the log. A
+     * record is only overwritten after it has been copied, so a crash leaves
+     * every record in the log or the snapshot.
+     */
+    private void truncate(int covered) {
+        int remaining = (this.logSize - covered) * RevocationJournal.RECORD_SIZE;
+        int from = covered * RevocationJournal.RECORD_SIZE;
+        for (int i = 0; i < remaining; i += Long.BYTES) {
+            this.log.putLong(i, this.log.getLong(from + i));
+        }
+        for (int i = remaining; i < this.logSize * RevocationJournal.RECORD_SIZE; i += Long.BYTES) {
+            this.log.putLong(i, 0);
+        }
+        this.logSize -= covered;
+        this.log.force();
+    }
+
+    private void writeSnapshot(Path file, RevocationStore store, long now) throws IOException {
+        long[] count = new long[1];
+        /* the store may grow while it is written, the buffer grows with it */
+        ByteBuffer[] buffer = { ByteBuffer.allocate(RevocationJournal.SNAPSHOT_HEADER_SIZE
+                + Math.max(16, store.size()) * RevocationJournal.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN) };
+        buffer[0].position(RevocationJournal.SNAPSHOT_HEADER_SIZE);
+        store.forEach((high, low, expiration) -> {
+            if (expiration <= now) {
+                return;
+            }
+            if (buffer[0].remaining() < RevocationJournal.RECORD_SIZE) {
+                ByteBuffer larger = ByteBuffer.allocate(buffer[0].capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+                buffer[0].flip();
+                larger.put(buffer[0]);
+                buffer[0] = larger;
+            }
+            buffer[0].putLong(high).putLong(low).putLong(expiration);
+            count[0]++;
+        });
+
+        ByteBuffer b = buffer[0];
+        b.putInt(0, RevocationJournal.SNAPSHOT_MAGIC);
+        b.putInt(Integer.BYTES, RevocationJournal.SNAPSHOT_VERSION);
+        b.putLong(2 * Integer.BYTES, count[0]);
+        b.flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (b.hasRemaining()) {
+                channel.write(b);
+            }
+            channel.force(true);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        this.log.force();
+        try {
+            this.logChannel.close();
+        } catch (IOException ex) {
+            throw new RuntimeException("Error closing revocation journal.", ex);
+        }
+    }
+}
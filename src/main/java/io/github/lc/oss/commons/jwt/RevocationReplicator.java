@@ -0,0 +1,199 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replicates the revocations of a {@linkplain JwtRevocationList} to the other
+ * nodes of a cluster through a {@linkplain RevocationTransport}. <br />
+ * <br />
+ * Local revocations are buffered and published as one
+ * {@linkplain RevocationDelta} once the batch is full or when
+ * {@linkplain #flush()} is called, which {@linkplain JwtRevocationList#clean()}
+ * does. Received batches are applied to the list without being published
+ * again. Batches from a source that are not newer than the last one applied are
+ * ignored, missing sequence numbers are counted as gaps. <br />
+ * <br />
+ * Every replicator publishes under a random epoch. A node that restarts gets a
+ * new epoch and starts its sequence over, receivers treat the first batch of a
+ * different epoch as a reset of that source instead of ignoring it.
+ */
+public class RevocationReplicator {
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+    /*
+     * Epoch and sequence of the last batch applied from a source.
+     */
+    private static final class Position {
+        private final long epoch;
+        private final long sequence;
+
+        private Position(long epoch, long sequence) {
+            this.epoch = epoch;
+            this.sequence = sequence;
+        }
+    }
+
+    private final String nodeId;
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+    private final JwtRevocationList list;
+    private final RevocationTransport transport;
+    private final int maxBatchSize;
+    private final Map<String, Position> applied = new ConcurrentHashMap<>();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder ignored = new LongAdder();
+    private final LongAdder gaps = new LongAdder();
+    private final LongAdder resets = new LongAdder();
+    private long[] pending;
+    private int pendingSize;
+    private long sequence;
+
+    public RevocationReplicator(String nodeId, JwtRevocationList list, RevocationTransport transport) {
+        this(nodeId, list, transport, RevocationReplicator.DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Subscribes to the transport and starts recording revocations of the list.
+     *
+     * @param nodeId       Unique id of this node, used as the source of published
+     *                     batches.
+     * @param maxBatchSize Number of revocations after which a batch is published
+     *                     immediately.
+     */
+    public RevocationReplicator(String nodeId, JwtRevocationList list, RevocationTransport transport,
+            int maxBatchSize) {
+        if (nodeId == null || list == null || transport == null) {
+            throw new IllegalArgumentException("Node id, list and transport are required");
+        }
+
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be positive number but was " + maxBatchSize);
+        }
+
+        this.nodeId = nodeId;
+        this.list = list;
+        this.transport = transport;
+        this.maxBatchSize = maxBatchSize;
+        this.pending = new long[Math.min(maxBatchSize, 64) * 3];
+        transport.subscribe(this::receive);
+        list.setReplicator(this);
+    }
+
+    public String getNodeId() {
+        return this.nodeId;
+    }
+
+    /**
+     * Incarnation of this node, published with every batch.
+     */
+    public long getEpoch() {
+        return this.epoch;
+    }
+
+    void record(RevocationDigest digest, long expiration) {
+        synchronized (this) {
+            if (this.pendingSize == this.pending.length) {
+                this.pending = Arrays.copyOf(this.pending, Math.min(this.maxBatchSize * 3, this.pending.length * 2));
+            }
+            this.pending[this.pendingSize++] = digest.getHigh();
+            this.pending[this.pendingSize++] = digest.getLow();
+            this.pending[this.pendingSize++] = expiration;
+            if (this.pendingSize < this.maxBatchSize * 3) {
+                return;
+            }
+        }
+        this.flush();
+    }
+
+    /**
+     * Publishes the buffered revocations, if any.
+     */
+    public synchronized void flush() {
+        if (this.pendingSize == 0) {
+            return;
+        }
+
+        /* publishing while holding the lock keeps the batches of this node in order */
+        RevocationDelta delta = new RevocationDelta(this.nodeId, this.epoch, ++this.sequence,
+                Arrays.copyOf(this.pending, this.pendingSize));
+        this.pendingSize = 0;
+        this.transport.publish(delta);
+        this.published.increment();
+    }
+
+    void receive(RevocationDelta delta) {
+        if (this.nodeId.equals(delta.getSource())) {
+            return;
+        }
+
+        synchronized (this.applied) {
+            Position last = this.applied.get(delta.getSource());
+            if (last != null && last.epoch == delta.getEpoch()) {
+                if (delta.getSequence() <= last.sequence) {
+                    this.ignored.increment();
+                    return;
+                }
+
+                if (delta.getSequence() > last.sequence + 1) {
+                    this.gaps.add(delta.getSequence() - last.sequence - 1);
+                }
+            } else if (last != null) {
+                /* the source restarted, applying a stale batch again is harmless */
+                this.resets.increment();
+            }
+            this.list.apply(delta);
+            this.applied.put(delta.getSource(), new Position(delta.getEpoch(), delta.getSequence()));
+        }
+        this.received.increment();
+    }
+
+    /**
+     * Sequence number of the last batch applied from the given node or
+     * <code>null</code> if none was received yet.
+     */
+    public Long getLastApplied(String source) {
+        Position last = this.applied.get(source);
+        return last == null ? null : last.sequence;
+    }
+
+    public synchronized int getPending() {
+        return this.pendingSize / 3;
+    }
+
+    public long getPublished() {
+        return this.published.sum();
+    }
+
+    public long getReceived() {
+        return this.received.sum();
+    }
+
+    /**
+     * Number of batches ignored because a batch with the same or a newer sequence
+     * number had already been applied.
+     */
+    public long getIgnored() {
+        return this.ignored.sum();
+    }
+
+    /**
+     * Number of batches that were never received because a newer one arrived
+     * first.
+     */
+    public long getGaps() {
+        return this.gaps.sum();
+    }
+
+    /**
+     * Number of batches that were applied because their source published them
+     * under a different epoch than the last applied batch, usually after a
+     * restart.
+     */
+    public long getResets() {
+        return this.resets.sum();
+    }
+}
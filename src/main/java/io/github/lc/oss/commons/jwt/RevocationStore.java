@@ -0,0 +1,48 @@
+package io.github.lc.oss.commons.jwt;
+
+/**
+ * Storage of revoked token digests and their expiration (epoch milliseconds)
+ * backing a {@linkplain JwtRevocationList}. Implementations must be thread safe
+ * and should not block {@linkplain #contains(RevocationDigest)}.
+ */
+public interface RevocationStore {
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(long high, long low, long expiration);
+    }
+
+    /**
+     * Adds or replaces an entry.
+     *
+     * @return <code>false</code> if the digest was already stored with the same
+     *         expiration.
+     */
+    boolean put(RevocationDigest digest, long expiration);
+
+    boolean contains(RevocationDigest digest);
+
+    /**
+     * Removes all entries that expired at or before <code>now</code>.
+     */
+    void clean(long now);
+
+    /**
+     * Incremental variant of {@linkplain #clean(long)} that stops once
+     * {@linkplain System#nanoTime()} has reached <code>deadline</code>. The
+     * default implementation cleans everything at once.
+     *
+     * @return <code>true</code> if expired entries may remain.
+     */
+    default boolean clean(long now, long deadline) {
+        this.clean(now);
+        return false;
+    }
+
+    int size();
+
+    /**
+     * Visits every entry currently stored. Entries added or removed concurrently
+     * may or may not be visited.
+     */
+    void forEach(EntryConsumer consumer);
+}
@@ -0,0 +1,19 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.function.Consumer;
+
+/**
+ * Delivers {@linkplain RevocationDelta} batches between the
+ * {@linkplain RevocationReplicator}s of a cluster. Implementations are expected
+ * to deliver the batches of one source in order, duplicates and gaps are
+ * tolerated by the receiver.
+ */
+public interface RevocationTransport {
+    void publish(RevocationDelta delta);
+
+    /**
+     * Registers a consumer for batches published by any node, including the
+     * subscribing node itself.
+     */
+    void subscribe(Consumer<RevocationDelta> consumer);
+}
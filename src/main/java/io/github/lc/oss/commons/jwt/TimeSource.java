@@ -0,0 +1,18 @@
+package io.github.lc.oss.commons.jwt;
+
+/**
+ * Source of the current time used to issue and validate tokens and to expire
+ * cached and revoked entries. Implementations must be thread safe.
+ */
+@FunctionalInterface
+public interface TimeSource {
+    /**
+     * Reads {@linkplain System#currentTimeMillis()} on every call.
+     */
+    TimeSource SYSTEM = System::currentTimeMillis;
+
+    /**
+     * @return The current time in milliseconds since the epoch.
+     */
+    long millis();
+}
@@ -0,0 +1,9 @@
+package io.github.lc.oss.commons.jwt;
+
+/**
+ * Source of token ids (<code>jti</code>) for issued and refreshed tokens.
+ * Implementations must be thread safe and return unpredictable, unique values.
+ */
+public interface TokenIdGenerator {
+    String next();
+}
@@ -1,6 +1,6 @@
 package io.github.lc.oss.commons.jwt;
 
-public interface UserCache<T> {
+public interface UserCache<T> extends MaintenanceTask {
     void add(T user, long expires);
 
     void add(T user, String key, long expires);
@@ -9,6 +9,15 @@ public interface UserCache<T> {
 
     void clean();
 
+    /**
+     * Default implementation runs {@linkplain #clean()} as a single slice.
+     */
+    @Override
+    default boolean maintain(long deadline) {
+        this.clean();
+        return false;
+    }
+
     void clear();
 
     void remove(String key);
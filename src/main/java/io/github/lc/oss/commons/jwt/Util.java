@@ -1,28 +1,223 @@
 package io.github.lc.oss.commons.jwt;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 
 public class Util {
     private static final ObjectReader JSON_READER = new ObjectMapper().reader();
+    private static final Map<Class<?>, ObjectReader> TYPED_READERS = new ConcurrentHashMap<>();
     private static final ObjectWriter JSON_WRITER = new ObjectMapper().writer();
+    private static final byte[] BASE64_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final boolean[] BASE64_CHARS = new boolean[256];
+    private static final int MAX_JSON_DEPTH = 64;
+
+    static {
+        for (byte b : Util.BASE64_ALPHABET) {
+            Util.BASE64_CHARS[b] = true;
+        }
+    }
 
     public static String toJsonNoSignature(Jwt token) {
-        return String.format("%s.%s", Util.toBase64Json(token.getHeader()), Util.toBase64Json(token.getPayload()));
+        return new String(Util.toSigningInput(token), StandardCharsets.US_ASCII);
     }
 
     public static String toJson(Jwt token) {
-        return String.format("%s.%s.%s", Util.toBase64Json(token.getHeader()), Util.toBase64Json(token.getPayload()),
-                token.getSignature());
+        return Util.toJson(Util.toSigningInput(token), token.getSignature());
+    }
+
+    /**
+     * Joins the output of {@linkplain #toSigningInput(Jwt)} and the signature.
+     */
+    public static String toJson(byte[] signingInput, String signature) {
+        return new String(signingInput, StandardCharsets.US_ASCII) + "." + signature;
+    }
+
+    /**
+     * The ASCII bytes of the Base64 encoded <code>header.payload</code>, i.e. the
+     * data covered by the signature. Header and payload are serialized once and
+     * encoded directly into the returned array.
+     */
+    public static byte[] toSigningInput(Jwt token) {
+        byte[] header = Util.toJsonBytes(token.getHeader());
+        byte[] payload = Util.toJsonBytes(token.getPayload());
+        int headerLength = Util.base64Length(header.length);
+
+        byte[] input = new byte[headerLength + 1 + Util.base64Length(payload.length)];
+        Util.toBase64(header, input, 0);
+        input[headerLength] = '.';
+        Util.toBase64(payload, input, headerLength + 1);
+        return input;
+    }
+
+    private static int base64Length(int length) {
+        return (length * 4 + 2) / 3;
+    }
+
+    /*
+     * Same output as the unpadded standard encoder but written at an offset of an
+     * existing array.
+     */
+    private static void toBase64(byte[] src, byte[] dst, int offset) {
+        byte[] alphabet = Util.BASE64_ALPHABET;
+        int d = offset;
+        int end = src.length - src.length % 3;
+        for (int s = 0; s < end; s += 3) {
+            int bits = (src[s] & 0xff) << 16 | (src[s + 1] & 0xff) << 8 | (src[s + 2] & 0xff);
+            dst[d++] = alphabet[bits >>> 18];
+            dst[d++] = alphabet[(bits >>> 12) & 0x3f];
+            dst[d++] = alphabet[(bits >>> 6) & 0x3f];
+            dst[d++] = alphabet[bits & 0x3f];
+        }
+
+        int remaining = src.length - end;
+        if (remaining > 0) {
+            int bits = (src[end] & 0xff) << 16 | (remaining == 2 ? (src[end + 1] & 0xff) << 8 : 0);
+            dst[d++] = alphabet[bits >>> 18];
+            dst[d++] = alphabet[(bits >>> 12) & 0x3f];
+            if (remaining == 2) {
+                dst[d] = alphabet[(bits >>> 6) & 0x3f];
+            }
+        }
     }
 
     public static <T> T fromBase64Json(String base64, Class<T> clazz) {
-        return Util.fromJson(Util.fromBase64(base64), clazz);
+        byte[] json;
+        try {
+            json = java.util.Base64.getDecoder().decode(base64.trim());
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+        return Util.fromJson(json, 0, json.length, clazz);
+    }
+
+    /**
+     * Decodes <code>length</code> Base64 bytes starting at <code>offset</code>
+     * without copying the encoded range first. The decoded bytes are parsed as is,
+     * no intermediate String is created. <br />
+     * <br />
+     * Returns <code>null</code> if the range is not valid Base64 or does not
+     * decode to a structurally valid JSON object, both are checked by scanning
+     * the bytes so malformed input does not cause an exception.
+     */
+    public static <T> T fromBase64Json(byte[] base64, int offset, int length, Class<T> clazz) {
+        ByteBuffer json = Util.decodeBase64(base64, offset, length);
+        if (json == null || !Util.isJsonObject(json.array(), json.arrayOffset() + json.position(), json.remaining())) {
+            return null;
+        }
+        return Util.fromJson(json.array(), json.arrayOffset() + json.position(), json.remaining(), clazz);
+    }
+
+    /**
+     * Decodes <code>length</code> Base64 bytes starting at <code>offset</code>
+     * into a heap buffer or returns <code>null</code> if the range is not valid
+     * Base64.
+     */
+    public static ByteBuffer decodeBase64(byte[] base64, int offset, int length) {
+        if (!Util.isBase64(base64, offset, length)) {
+            return null;
+        }
+
+        try {
+            return java.util.Base64.getDecoder().decode(ByteBuffer.wrap(base64, offset, length));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /*
+     * Whether the standard decoder accepts the range: only characters of the
+     * alphabet, optionally padded to a multiple of four and never a single
+     * character left over.
+     */
+    static boolean isBase64(byte[] data, int offset, int length) {
+        int end = offset + length;
+        int padding = 0;
+        while (padding < 2 && end - padding > offset && data[end - padding - 1] == '=') {
+            padding++;
+        }
+
+        int chars = length - padding;
+        if ((padding > 0 && length % 4 != 0) || chars % 4 == 1) {
+            return false;
+        }
+
+        for (int i = offset; i < offset + chars; i++) {
+            if (!Util.BASE64_CHARS[data[i] & 0xff]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Bounded structural check of a JSON object: balanced braces and brackets
+     * outside of strings, terminated strings without control characters and
+     * nothing but whitespace around the object. Values themselves are left to
+     * the parser.
+     */
+    static boolean isJsonObject(byte[] json, int offset, int length) {
+        int end = offset + length;
+        int i = Util.skipWhitespace(json, offset, end);
+        if (i == end || json[i] != '{') {
+            return false;
+        }
+
+        /* one bit per nesting level, set for objects */
+        long nesting = 0;
+        int depth = 0;
+        boolean string = false;
+        for (; i < end; i++) {
+            byte b = json[i];
+            if (string) {
+                if (b == '\\') {
+                    i++;
+                } else if (b == '"') {
+                    string = false;
+                } else if ((b & 0xff) < 0x20) {
+                    return false;
+                }
+            } else if (b == '"') {
+                string = true;
+            } else if (b == '{' || b == '[') {
+                if (depth == Util.MAX_JSON_DEPTH) {
+                    return false;
+                }
+                nesting = nesting << 1 | (b == '{' ? 1 : 0);
+                depth++;
+            } else if (b == '}' || b == ']') {
+                if ((nesting & 1) != (b == '}' ? 1 : 0)) {
+                    return false;
+                }
+                nesting >>>= 1;
+                depth--;
+                if (depth == 0) {
+                    return Util.skipWhitespace(json, i + 1, end) == end;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int skipWhitespace(byte[] json, int offset, int end) {
+        int i = offset;
+        while (i < end && (json[i] == ' ' || json[i] == '\t' || json[i] == '\n' || json[i] == '\r')) {
+            i++;
+        }
+        return i;
+    }
+
+    static JsonParser createParser(byte[] json, int offset, int length) throws IOException {
+        return Util.JSON_READER.getFactory().createParser(json, offset, length);
     }
 
     public static boolean isBlank(Object o) {
@@ -58,6 +253,17 @@ public class Util {
         }
     }
 
+    public static String fromBase64(byte[] data, int offset, int length) {
+        try {
+            ByteBuffer decoded = java.util.Base64.getDecoder(). //
+                    decode(ByteBuffer.wrap(data, offset, length));
+            return new String(decoded.array(), decoded.arrayOffset() + decoded.position(), decoded.remaining(),
+                    StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
     public static String toBase64Json(AbstractJwtMap map) {
         return Util.toBase64(Util.toJson(map));
     }
@@ -70,17 +276,44 @@ public class Util {
         }
     }
 
+    public static byte[] toJsonBytes(AbstractJwtMap map) {
+        try {
+            return Util.JSON_WRITER.writeValueAsBytes(map);
+        } catch (Exception ex) {
+            throw new RuntimeException("Error serializing object.", ex);
+        }
+    }
+
     public static <T> T fromJson(String json, Class<T> clazz) {
         try {
             if (json == null) {
                 return null;
             }
-            return Util.JSON_READER.readValue(json, clazz);
+            return Util.reader(clazz).readValue(json);
         } catch (IOException ex) {
             throw new RuntimeException("Error deserialzing object.", ex);
         }
     }
 
+    /**
+     * Parses UTF-8 encoded JSON directly from the provided range.
+     */
+    public static <T> T fromJson(byte[] json, int offset, int length, Class<T> clazz) {
+        try {
+            return Util.reader(clazz).readValue(json, offset, length);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error deserialzing object.", ex);
+        }
+    }
+
+    /*
+     * Readers are immutable, one per target type avoids resolving the type on every
+     * call.
+     */
+    private static ObjectReader reader(Class<?> clazz) {
+        return Util.TYPED_READERS.computeIfAbsent(clazz, Util.JSON_READER::forType);
+    }
+
     private Util() {
     }
 }
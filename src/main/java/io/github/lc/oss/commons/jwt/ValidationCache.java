@@ -0,0 +1,317 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread safe cache of successfully validated tokens keyed by the
+ * encoded token. Entries expire at the earlier of the token's expiration and
+ * the configured time to live. <br />
+ * <br />
+ * A cache hit only skips signature verification and decoding, callers are still
+ * responsible for checking revocation, the permitted algorithms and the token
+ * claims. Key rotation is observed once the time to live has elapsed, so keep
+ * it short when keys can be withdrawn. <br />
+ * <br />
+ * {@linkplain #clean()} and {@linkplain #maintain(long)} expire entries against
+ * the {@linkplain TimeSource} of the cache, by default the system clock. A full
+ * cache makes room by evicting its oldest entries, expired entries are only
+ * swept by these methods.
+ */
+public class ValidationCache implements MaintenanceTask {
+    /*
+     * Number of entries checked by maintain between deadline checks.
+     */
+    private static final int CLEAN_CHUNK = 256;
+    /*
+     * Number of queued entries a put inspects to make room or to drop stale
+     * queue entries.
+     */
+    private static final int EVICT_SCAN = 8;
+
+    private static class Entry {
+        private final String key;
+        private final JwtHeader header;
+        private final JwtPayload payload;
+        private final String signature;
+        private final byte[] secret;
+        private final long expires;
+
+        private Entry(String key, Jwt token, byte[] secret, long expires) {
+            this.key = key;
+            this.header = ValidationCache.copy(token.getHeader());
+            this.payload = ValidationCache.copy(token.getPayload());
+            this.signature = token.getSignature();
+            this.secret = secret == null ? null : secret.clone();
+            this.expires = expires;
+        }
+
+        private Jwt toJwt() {
+            Jwt token = new Jwt();
+            token.setHeader(ValidationCache.copy(this.header));
+            token.setPayload(ValidationCache.copy(this.payload));
+            token.setSignature(this.signature);
+            return token;
+        }
+    }
+
+    private final Map<String, Entry> map = new ConcurrentHashMap<>();
+    /*
+     * Entries in the order they were added, may still hold entries that have
+     * since been replaced or removed.
+     */
+    private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final int maxSize;
+    private final long timeToLive;
+    private volatile TimeSource timeSource = TimeSource.SYSTEM;
+    private Iterator<Entry> cleanCursor;
+
+    /**
+     * @param maxSize    Maximum number of cached tokens.
+     * @param timeToLive Maximum time in milliseconds a validation result is
+     *                   reused for.
+     */
+    public ValidationCache(int maxSize, long timeToLive) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max size must be positive number but was " + maxSize);
+        }
+
+        if (timeToLive < 1) {
+            throw new IllegalArgumentException(
+                    "Time to live must be positive number but was " + Long.toString(timeToLive));
+        }
+
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Returns a new copy of the cached token or <code>null</code> if the token is
+     * not cached, the cached entry has expired or it was validated with a
+     * different default secret.
+     */
+    public Jwt get(String encoded, byte[] secret, long now) {
+        Entry entry = this.map.get(encoded);
+        if (entry == null) {
+            this.misses.increment();
+            return null;
+        }
+
+        if (entry.expires <= now) {
+            this.map.remove(encoded, entry);
+            this.misses.increment();
+            return null;
+        }
+
+        if (!Arrays.equals(entry.secret, secret)) {
+            this.misses.increment();
+            return null;
+        }
+
+        this.hits.increment();
+        return entry.toJwt();
+    }
+
+    public void put(String encoded, byte[] secret, Jwt token, long now) {
+        Long expiration = token.getExpirationMillis();
+        if (expiration == null) {
+            return;
+        }
+
+        long expires = Math.min(expiration, now + this.timeToLive);
+        if (expires <= now) {
+            return;
+        }
+
+        if (this.map.size() >= this.maxSize && !this.evict()) {
+            return;
+        }
+
+        Entry entry = new Entry(encoded, token, secret, expires);
+        this.map.put(encoded, entry);
+        this.enqueue(entry);
+    }
+
+    /*
+     * Once the queue holds twice as many entries as the cache, some of the
+     * oldest ones are checked so replaced entries do not pile up between
+     * cleanups.
+     */
+    private void enqueue(Entry entry) {
+        this.order.offer(entry);
+        if (this.queued.incrementAndGet() <= 2l * this.maxSize) {
+            return;
+        }
+
+        for (int i = 0; i < ValidationCache.EVICT_SCAN; i++) {
+            Entry e = this.order.poll();
+            if (e == null) {
+                return;
+            }
+
+            if (this.map.get(e.key) == e) {
+                /* still current, keep it */
+                this.order.offer(e);
+            } else {
+                this.queued.decrementAndGet();
+            }
+        }
+    }
+
+    /*
+     * Removes the oldest entries, returns true if there is room for another
+     * entry.
+     */
+    private boolean evict() {
+        for (int i = 0; i < ValidationCache.EVICT_SCAN && this.map.size() >= this.maxSize; i++) {
+            Entry e = this.order.poll();
+            if (e == null) {
+                break;
+            }
+
+            this.queued.decrementAndGet();
+            this.map.remove(e.key, e);
+        }
+        return this.map.size() < this.maxSize;
+    }
+
+    public void clean() {
+        this.clean(this.timeSource.millis());
+    }
+
+    /**
+     * Removes expired entries and drops queued entries that are no longer
+     * current.
+     */
+    public void clean(long now) {
+        Iterator<Entry> entries = this.order.iterator();
+        while (entries.hasNext()) {
+            this.clean(entries, now);
+        }
+    }
+
+    /**
+     * Incremental {@linkplain #clean()}, every call continues where the previous
+     * one stopped.
+     */
+    @Override
+    public synchronized boolean maintain(long deadline) {
+        long now = this.timeSource.millis();
+        if (this.cleanCursor == null) {
+            this.cleanCursor = this.order.iterator();
+        }
+
+        while (true) {
+            for (int i = 0; i < ValidationCache.CLEAN_CHUNK; i++) {
+                if (!this.cleanCursor.hasNext()) {
+                    this.cleanCursor = null;
+                    return false;
+                }
+                this.clean(this.cleanCursor, now);
+            }
+
+            if (System.nanoTime() - deadline >= 0) {
+                return true;
+            }
+        }
+    }
+
+    private void clean(Iterator<Entry> entries, long now) {
+        Entry e = entries.next();
+        if (this.map.get(e.key) != e || e.expires <= now && this.map.remove(e.key, e)) {
+            entries.remove();
+            this.queued.decrementAndGet();
+        }
+    }
+
+    public void clear() {
+        this.map.clear();
+        this.order.clear();
+        this.queued.set(0);
+    }
+
+    public void setTimeSource(TimeSource timeSource) {
+        if (timeSource == null) {
+            throw new IllegalArgumentException("Time source is required");
+        }
+
+        this.timeSource = timeSource;
+    }
+
+    public TimeSource getTimeSource() {
+        return this.timeSource;
+    }
+
+    public void remove(String encoded) {
+        this.map.remove(encoded);
+    }
+
+    public int size() {
+        return this.map.size();
+    }
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    static Jwt copy(Jwt token) {
+        Jwt copy = new Jwt();
+        copy.setHeader(ValidationCache.copy(token.getHeader()));
+        copy.setPayload(ValidationCache.copy(token.getPayload()));
+        copy.setSignature(token.getSignature());
+        return copy;
+    }
+
+    /*
+     * Callers are free to modify the tokens they receive, including nested claim
+     * collections, so entries never share mutable state with them.
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends AbstractJwtMap> T copy(T map) {
+        T copy = (T) map.clone();
+        copy.replaceAll((k, v) -> ValidationCache.copyValue(v));
+        return copy;
+    }
+
+    private static Object copyValue(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                copy.put(e.getKey(), ValidationCache.copyValue(e.getValue()));
+            }
+            return copy;
+        } else if (value instanceof Set) {
+            Set<Object> copy = new HashSet<>();
+            for (Object o : (Set<?>) value) {
+                copy.add(ValidationCache.copyValue(o));
+            }
+            return copy;
+        } else if (value instanceof Collection) {
+            List<Object> copy = new ArrayList<>();
+            for (Object o : (Collection<?>) value) {
+                copy.add(ValidationCache.copyValue(o));
+            }
+            return copy;
+        }
+        return value;
+    }
+}
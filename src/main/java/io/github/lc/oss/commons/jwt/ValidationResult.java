@@ -0,0 +1,68 @@
+package io.github.lc.oss.commons.jwt;
+
+/**
+ * Outcome of {@linkplain JwtService#check(byte[], String, String)}, either the
+ * validated token or the reason it was rejected. <br />
+ * <br />
+ * Rejections carry no token and are shared instances, one per
+ * {@linkplain JwtMetrics.RejectionReason}, so rejecting a token does not
+ * allocate a result.
+ */
+public final class ValidationResult {
+    private static final ValidationResult[] REJECTED;
+
+    static {
+        JwtMetrics.RejectionReason[] reasons = JwtMetrics.RejectionReason.values();
+        REJECTED = new ValidationResult[reasons.length];
+        for (JwtMetrics.RejectionReason reason : reasons) {
+            ValidationResult.REJECTED[reason.ordinal()] = new ValidationResult(null, reason);
+        }
+    }
+
+    public static ValidationResult valid(Jwt token) {
+        if (token == null) {
+            throw new IllegalArgumentException("Token is required");
+        }
+
+        return new ValidationResult(token, null);
+    }
+
+    public static ValidationResult rejected(JwtMetrics.RejectionReason reason) {
+        if (reason == null) {
+            throw new IllegalArgumentException("Reason is required");
+        }
+
+        return ValidationResult.REJECTED[reason.ordinal()];
+    }
+
+    private final Jwt token;
+    private final JwtMetrics.RejectionReason reason;
+
+    private ValidationResult(Jwt token, JwtMetrics.RejectionReason reason) {
+        this.token = token;
+        this.reason = reason;
+    }
+
+    public boolean isValid() {
+        return this.token != null;
+    }
+
+    /**
+     * @return The validated token or <code>null</code> if it was rejected.
+     */
+    public Jwt getToken() {
+        return this.token;
+    }
+
+    /**
+     * @return Why the token was rejected or <code>null</code> if it is valid.
+     */
+    public JwtMetrics.RejectionReason getReason() {
+        return this.reason;
+    }
+
+    @Override
+    public String toString() {
+        return this.isValid() ? "VALID" : this.reason.name();
+    }
+}
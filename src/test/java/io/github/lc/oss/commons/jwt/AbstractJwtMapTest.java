@@ -1,8 +1,13 @@
 package io.github.lc.oss.commons.jwt;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.jupiter.api.Assertions;
@@ -13,6 +18,13 @@ import io.github.lc.oss.commons.testing.AbstractMockTest;
 public class AbstractJwtMapTest extends AbstractMockTest {
     private static class TestMap extends AbstractJwtMap {
         private static final long serialVersionUID = 3251835908172256971L;
+
+        private int modifications;
+
+        @Override
+        protected void beforeModification() {
+            this.modifications++;
+        }
     }
 
     @Test
@@ -102,6 +114,69 @@ public class AbstractJwtMapTest extends AbstractMockTest {
         Assertions.assertTrue(result.contains("A"));
     }
 
+    @Test
+    public void test_getSet_cached() {
+        TestMap map = new TestMap();
+        List<String> list = new ArrayList<>(Arrays.asList("a", "b", "a"));
+        map.put("list", list);
+        map.put("single", "s");
+
+        // memoized on the second lookup
+        Set<String> first = map.getSet("list");
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("a", "b")), first);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> first.add("c"));
+        Set<String> result = map.getSet("list");
+        Assertions.assertNotSame(first, result);
+        Assertions.assertEquals(first, result);
+        Assertions.assertSame(result, map.getSet("list"));
+        Assertions.assertSame(result, map.getSet("list", false));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> result.add("c"));
+
+        // claims are memoized independently
+        map.getSet("single");
+        Set<String> single = map.getSet("single");
+        Assertions.assertEquals(Collections.singleton("s"), single);
+        Assertions.assertSame(single, map.getSet("single"));
+        Assertions.assertNull(map.getSet("single", false));
+        Assertions.assertSame(result, map.getSet("list"));
+        Assertions.assertSame(single, map.getSet("single"));
+
+        // nested modification changing the size
+        list.add("c");
+        Set<String> grown = map.getSet("list");
+        Assertions.assertNotSame(result, grown);
+        Assertions.assertTrue(grown.contains("c"));
+        grown = map.getSet("list");
+        Assertions.assertSame(grown, map.getSet("list"));
+
+        // modification of the map, even when the subclass hook does nothing
+        map.put("other", "o");
+        Assertions.assertNotSame(grown, map.getSet("list"));
+        Set<String> current = map.getSet("list");
+        Assertions.assertSame(current, map.getSet("list"));
+        map.keySet().remove("other");
+        Assertions.assertNotSame(current, map.getSet("list"));
+
+        map.put("list", "x");
+        Assertions.assertEquals(Collections.singleton("x"), map.getSet("list"));
+
+        // alternating claims that map to the same slot
+        map.put("junit-app", "a");
+        map.put("other-audience", "b");
+        map.getSet("junit-app");
+        map.getSet("other-audience");
+        Set<String> a = map.getSet("junit-app");
+        Set<String> b = map.getSet("other-audience");
+        Assertions.assertSame(a, map.getSet("junit-app"));
+        Assertions.assertSame(b, map.getSet("other-audience"));
+
+        // clones do not share views
+        current = map.getSet("list");
+        TestMap clone = (TestMap) map.clone();
+        Assertions.assertNotSame(current, clone.getSet("list"));
+        Assertions.assertEquals(current, clone.getSet("list"));
+    }
+
     @Test
     public void test_getLong() {
         AbstractJwtMap map = new TestMap();
@@ -137,4 +212,82 @@ public class AbstractJwtMapTest extends AbstractMockTest {
         Assertions.assertEquals(0, map.getLong("0"));
         Assertions.assertEquals(1, map.getLong("1"));
     }
+
+    @Test
+    public void test_beforeModification() {
+        TestMap map = new TestMap();
+        Map<String, Object> other = new HashMap<>();
+        other.put("x", "X");
+
+        map.put("a", "A");
+        map.putAll(other);
+        map.putIfAbsent("b", "B");
+        map.replace("b", "C");
+        map.replace("b", "C", "D");
+        map.replaceAll((k, v) -> v);
+        map.compute("c", (k, v) -> "C");
+        map.computeIfAbsent("d", k -> "D");
+        map.computeIfPresent("d", (k, v) -> "E");
+        map.merge("e", "E", (a, b) -> b);
+        map.remove("e");
+        map.remove("d", "E");
+        Assertions.assertEquals(12, map.modifications);
+
+        // reads do not count
+        map.get("a");
+        map.containsKey("a");
+        map.getString("a");
+        map.keySet().contains("a");
+        map.values().contains("A");
+        map.entrySet().contains(null);
+        map.entrySet().iterator().hasNext();
+        for (String key : map.keySet()) {
+            map.get(key);
+        }
+        Assertions.assertEquals(12, map.modifications);
+
+        // modifications through views, handing out entries counts once
+        Iterator<Map.Entry<String, Object>> entries = map.entrySet().iterator();
+        entries.next().setValue("Z");
+        entries.next().setValue("Y");
+        Assertions.assertEquals(13, map.modifications);
+        Iterator<String> keys = map.keySet().iterator();
+        keys.next();
+        keys.remove();
+        Assertions.assertEquals(14, map.modifications);
+        Iterator<Object> values = map.values().iterator();
+        values.next();
+        values.remove();
+        Assertions.assertEquals(15, map.modifications);
+        map.keySet().remove("c");
+        Assertions.assertEquals(16, map.modifications);
+        map.values().clear();
+        Assertions.assertEquals(17, map.modifications);
+        Assertions.assertTrue(map.isEmpty());
+
+        map.put("a", "A");
+        map.entrySet().clear();
+        map.clear();
+        Assertions.assertEquals(20, map.modifications);
+    }
+
+    @Test
+    public void test_views() {
+        TestMap map = new TestMap();
+        map.put("a", "A");
+        map.put("b", "B");
+
+        Map<String, Object> expected = new HashMap<>(map);
+        Assertions.assertEquals(expected, map);
+        Assertions.assertEquals(expected.hashCode(), map.hashCode());
+        Assertions.assertEquals(expected.entrySet(), map.entrySet());
+        Assertions.assertEquals(expected.keySet(), map.keySet());
+        Assertions.assertEquals(2, map.values().size());
+        Assertions.assertEquals(expected.entrySet().iterator().next().hashCode(),
+                map.entrySet().iterator().next().hashCode());
+        Assertions.assertNotNull(map.entrySet().iterator().next().toString());
+
+        TestMap copy = (TestMap) map.clone();
+        Assertions.assertEquals(map, copy);
+    }
 }
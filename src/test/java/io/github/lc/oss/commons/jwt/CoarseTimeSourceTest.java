@@ -0,0 +1,40 @@
+package io.github.lc.oss.commons.jwt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractMockTest;
+
+public class CoarseTimeSourceTest extends AbstractMockTest {
+    @Test
+    public void test_constructor_invalid() {
+        try {
+            new CoarseTimeSource(0);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Tick must be positive number but was 0", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_millis() {
+        try (CoarseTimeSource source = new CoarseTimeSource()) {
+            Assertions.assertEquals(CoarseTimeSource.DEFAULT_TICK_MILLIS, source.getTickMillis());
+
+            long start = source.millis();
+            Assertions.assertTrue(Math.abs(System.currentTimeMillis() - start) < 1000);
+            this.waitUntil(() -> source.millis() > start + 5, 10000);
+        }
+    }
+
+    @Test
+    public void test_close() {
+        CoarseTimeSource source = new CoarseTimeSource(100000);
+        long start = source.millis();
+        source.close();
+
+        // reads the system clock once closed
+        this.waitUntil(() -> source.millis() > start, 10000);
+        Assertions.assertTrue(Math.abs(System.currentTimeMillis() - source.millis()) < 1000);
+    }
+}
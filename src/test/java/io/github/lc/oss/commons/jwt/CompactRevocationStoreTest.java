@@ -0,0 +1,166 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CompactRevocationStoreTest {
+    @Test
+    public void test_constructor() {
+        CompactRevocationStore store = new CompactRevocationStore();
+        Assertions.assertFalse(store.isOffHeap());
+        Assertions.assertEquals(1024, store.getCapacity());
+
+        store = new CompactRevocationStore(1, true);
+        Assertions.assertTrue(store.isOffHeap());
+        Assertions.assertEquals(8, store.getCapacity());
+
+        store = new CompactRevocationStore(100, false);
+        Assertions.assertEquals(128, store.getCapacity());
+
+        try {
+            new CompactRevocationStore(0, false);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Initial capacity must be positive number but was 0", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_putContains() {
+        this.putContains(new CompactRevocationStore(8, false));
+        this.putContains(new CompactRevocationStore(8, true));
+    }
+
+    private void putContains(CompactRevocationStore store) {
+        RevocationDigest a = RevocationDigest.of("a");
+        RevocationDigest b = RevocationDigest.of("b");
+
+        Assertions.assertFalse(store.contains(a));
+        Assertions.assertTrue(store.put(a, 100));
+        Assertions.assertFalse(store.put(a, 100));
+        Assertions.assertTrue(store.put(a, 200));
+        Assertions.assertEquals(1, store.size());
+        Assertions.assertTrue(store.contains(a));
+        Assertions.assertTrue(store.contains(RevocationDigest.of("a")));
+        Assertions.assertFalse(store.contains(b));
+
+        Map<RevocationDigest, Long> entries = new HashMap<>();
+        store.forEach((high, low, expiration) -> entries.put(new RevocationDigest(high, low), expiration));
+        Assertions.assertEquals(Long.valueOf(200), entries.get(a));
+        Assertions.assertEquals(1, entries.size());
+    }
+
+    @Test
+    public void test_grow() {
+        CompactRevocationStore store = new CompactRevocationStore(4, true);
+        for (int i = 0; i < 1000; i++) {
+            store.put(RevocationDigest.of("s-" + i), i);
+        }
+        Assertions.assertEquals(1000, store.size());
+        Assertions.assertEquals(1024, store.getCapacity());
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertTrue(store.contains(RevocationDigest.of("s-" + i)));
+        }
+        Assertions.assertFalse(store.contains(RevocationDigest.of("s-1000")));
+    }
+
+    @Test
+    public void test_clean() {
+        CompactRevocationStore store = new CompactRevocationStore(16, false);
+        for (int i = 0; i < 16; i++) {
+            store.put(RevocationDigest.of("s-" + i), i);
+        }
+
+        store.clean(8);
+        Assertions.assertEquals(7, store.size());
+        for (int i = 0; i < 16; i++) {
+            Assertions.assertEquals(i > 8, store.contains(RevocationDigest.of("s-" + i)));
+        }
+
+        store.clean(100);
+        Assertions.assertEquals(0, store.size());
+        store.forEach((high, low, expiration) -> Assertions.fail("Expected empty store"));
+    }
+
+    @Test
+    public void test_clean_incremental() {
+        CompactRevocationStore store = new CompactRevocationStore(10000, false);
+        for (int i = 0; i < 10000; i++) {
+            store.put(RevocationDigest.of("s-" + i), i % 2 == 0 ? 0 : 100);
+        }
+
+        // deadline already passed, one chunk per call
+        int calls = 1;
+        while (store.clean(50, System.nanoTime())) {
+            calls++;
+        }
+        Assertions.assertEquals(8, calls);
+        Assertions.assertEquals(5000, store.size());
+
+        store.put(RevocationDigest.of("x"), 0);
+        Assertions.assertFalse(store.clean(50, System.nanoTime() + 1000000000L));
+        Assertions.assertEquals(5000, store.size());
+    }
+
+    @Test
+    public void test_clean_collisions() {
+        /* same home slot and wrapping around the end of the table */
+        CompactRevocationStore store = new CompactRevocationStore(8, false);
+        for (int i = 0; i < 6; i++) {
+            store.put(new RevocationDigest(15, i + 1), i % 2 == 0 ? 0 : 100);
+        }
+        store.put(new RevocationDigest(0, 7), 100);
+        store.put(new RevocationDigest(1, 8), 0);
+
+        store.clean(50);
+        Assertions.assertEquals(4, store.size());
+        for (int i = 0; i < 6; i++) {
+            Assertions.assertEquals(i % 2 != 0, store.contains(new RevocationDigest(15, i + 1)));
+        }
+        Assertions.assertTrue(store.contains(new RevocationDigest(0, 7)));
+        Assertions.assertFalse(store.contains(new RevocationDigest(1, 8)));
+    }
+
+    @Test
+    public void test_concurrent() throws Exception {
+        final CompactRevocationStore store = new CompactRevocationStore(4, true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        String id = thread + "-" + i;
+                        store.put(RevocationDigest.of("live-" + id), Long.MAX_VALUE);
+                        store.put(RevocationDigest.of("dead-" + id), i);
+                        if (!store.contains(RevocationDigest.of("live-" + id))) {
+                            throw new IllegalStateException("Lost " + id);
+                        }
+                        if (i % 100 == 0) {
+                            store.clean(i);
+                        }
+                    }
+                }));
+            }
+
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        store.clean(Long.MAX_VALUE - 1);
+        Assertions.assertEquals(8 * 2000, store.size());
+    }
+}
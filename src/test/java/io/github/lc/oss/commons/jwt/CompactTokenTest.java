@@ -0,0 +1,64 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractMockTest;
+
+public class CompactTokenTest extends AbstractMockTest {
+    @Test
+    public void test_parse_invalid() {
+        Assertions.assertNull(CompactToken.parse(null));
+        Assertions.assertNull(CompactToken.parse(""));
+        Assertions.assertNull(CompactToken.parse(" \t \r \n \t "));
+        Assertions.assertNull(CompactToken.parse("a.b"));
+        Assertions.assertNull(CompactToken.parse("a.b.c.d"));
+        Assertions.assertNull(CompactToken.parse(".."));
+        Assertions.assertNull(CompactToken.parse(".b.c"));
+        Assertions.assertNull(CompactToken.parse("a..c"));
+        Assertions.assertNull(CompactToken.parse("a.b."));
+        Assertions.assertNull(CompactToken.parse("a .b.c"));
+        Assertions.assertNull(CompactToken.parse("a.b.c\n"));
+        Assertions.assertNull(CompactToken.parse("a.b!.c"));
+        Assertions.assertNull(CompactToken.parse("a.\u00e9.c"));
+    }
+
+    @Test
+    public void test_parse() {
+        CompactToken token = CompactToken.parse("ab.cde.f-_+/=");
+        Assertions.assertNotNull(token);
+        Assertions.assertEquals("ab.cde.f-_+/=", token.getEncoded());
+        Assertions.assertEquals(2, token.getHeaderLength());
+        Assertions.assertEquals(3, token.getPayloadOffset());
+        Assertions.assertEquals(3, token.getPayloadLength());
+        Assertions.assertEquals(7, token.getSignatureOffset());
+        Assertions.assertEquals("ab", token.getHeader());
+        Assertions.assertEquals("cde", token.getPayload());
+        Assertions.assertEquals("f-_+/=", token.getSignature());
+
+        byte[] signingInput = token.getSigningInput();
+        Assertions.assertArrayEquals("ab.cde".getBytes(StandardCharsets.US_ASCII), signingInput);
+        Assertions.assertSame(signingInput, token.getSigningInput());
+    }
+
+    @Test
+    public void test_signingInput_segments() {
+        Jwt jwt = new Jwt();
+        jwt.getHeader().put(JwtHeader.Keys.TokenType, "JWT");
+        jwt.getPayload().setSubject("junit");
+        jwt.setSignature("sig");
+
+        CompactToken token = CompactToken.parse(Util.toJson(jwt));
+        Assertions.assertNotNull(token);
+
+        byte[] data = token.getSigningInput();
+        JwtHeader header = Util.fromBase64Json(data, 0, token.getHeaderLength(), JwtHeader.class);
+        JwtPayload payload = Util.fromBase64Json(data, token.getPayloadOffset(), token.getPayloadLength(),
+                JwtPayload.class);
+        Assertions.assertEquals("JWT", header.getTokenType());
+        Assertions.assertEquals("junit", payload.getSubject());
+        Assertions.assertEquals("sig", token.getSignature());
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.lc.oss.commons.jwt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractMockTest;
+
+public class CountingJwtMetricsTest extends AbstractMockTest {
+    @Test
+    public void test_counters() {
+        CountingJwtMetrics metrics = new CountingJwtMetrics();
+        Assertions.assertFalse(metrics.isTimingEnabled());
+
+        metrics.accepted();
+        metrics.accepted();
+        metrics.rejected(JwtMetrics.RejectionReason.SIGNATURE);
+        metrics.rejected(JwtMetrics.RejectionReason.CLAIMS);
+        metrics.rejected(JwtMetrics.RejectionReason.CLAIMS);
+
+        Assertions.assertEquals(2, metrics.getAccepted());
+        Assertions.assertEquals(1, metrics.getRejected(JwtMetrics.RejectionReason.SIGNATURE));
+        Assertions.assertEquals(2, metrics.getRejected(JwtMetrics.RejectionReason.CLAIMS));
+        Assertions.assertEquals(0, metrics.getRejected(JwtMetrics.RejectionReason.PARSE));
+        Assertions.assertEquals(3, metrics.getRejected());
+
+        metrics.reset();
+        Assertions.assertEquals(0, metrics.getAccepted());
+        Assertions.assertEquals(0, metrics.getRejected());
+    }
+
+    @Test
+    public void test_timing() {
+        CountingJwtMetrics metrics = new CountingJwtMetrics(true);
+        Assertions.assertTrue(metrics.isTimingEnabled());
+        Assertions.assertEquals(0, metrics.getPercentileNanos(JwtMetrics.Stage.VERIFY, 0.5));
+
+        metrics.timing(JwtMetrics.Stage.VERIFY, -1);
+        metrics.timing(JwtMetrics.Stage.VERIFY, 1);
+        metrics.timing(JwtMetrics.Stage.VERIFY, 1000);
+        metrics.timing(JwtMetrics.Stage.VERIFY, 1023);
+        Assertions.assertEquals(2024, metrics.getTotalNanos(JwtMetrics.Stage.VERIFY));
+        metrics.timing(JwtMetrics.Stage.VERIFY, Long.MAX_VALUE);
+
+        long[] histogram = metrics.getHistogram(JwtMetrics.Stage.VERIFY);
+        Assertions.assertEquals(1, histogram[0]);
+        Assertions.assertEquals(1, histogram[1]);
+        Assertions.assertEquals(2, histogram[10]);
+        Assertions.assertEquals(1, histogram[63]);
+        Assertions.assertEquals(5, metrics.getCount(JwtMetrics.Stage.VERIFY));
+        Assertions.assertEquals(0, metrics.getCount(JwtMetrics.Stage.PARSE));
+
+        Assertions.assertEquals(1, metrics.getPercentileNanos(JwtMetrics.Stage.VERIFY, 0));
+        Assertions.assertEquals(2, metrics.getPercentileNanos(JwtMetrics.Stage.VERIFY, 0.4));
+        Assertions.assertEquals(1024, metrics.getPercentileNanos(JwtMetrics.Stage.VERIFY, 0.8));
+        Assertions.assertEquals(Long.MAX_VALUE, metrics.getPercentileNanos(JwtMetrics.Stage.VERIFY, 1));
+
+        metrics.reset();
+        Assertions.assertEquals(0, metrics.getCount(JwtMetrics.Stage.VERIFY));
+        Assertions.assertEquals(0, metrics.getTotalNanos(JwtMetrics.Stage.VERIFY));
+    }
+
+    @Test
+    public void test_percentile_invalid() {
+        CountingJwtMetrics metrics = new CountingJwtMetrics(true);
+        try {
+            metrics.getPercentileNanos(JwtMetrics.Stage.VERIFY, 1.5);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Fraction must be between 0 and 1 but was 1.5", ex.getMessage());
+        }
+    }
+}
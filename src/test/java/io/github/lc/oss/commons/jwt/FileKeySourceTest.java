@@ -0,0 +1,243 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.lc.oss.commons.signing.Algorithm;
+import io.github.lc.oss.commons.signing.Algorithms;
+import io.github.lc.oss.commons.testing.AbstractMockTest;
+
+public class FileKeySourceTest extends AbstractMockTest {
+    @TempDir
+    private Path dir;
+
+    private static String pem(String type, byte[] der) {
+        return "-----BEGIN " + type + "-----\n" + Base64.getMimeEncoder().encodeToString(der) + "\n-----END " + type
+                + "-----\n";
+    }
+
+    private static String b64(byte[] data) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(data);
+    }
+
+    private static String b64(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return FileKeySourceTest.b64(bytes);
+    }
+
+    private void write(String name, String content) throws IOException {
+        /* written next to the target and moved into place */
+        Path temp = this.dir.resolve("." + name + ".tmp");
+        Files.write(temp, content.getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, this.dir.resolve(name), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Test
+    public void test_constructor_invalid() {
+        try {
+            new FileKeySource(null);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Directory is required", ex.getMessage());
+        }
+
+        try {
+            new FileKeySource(this.dir.resolve("missing"));
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Directory is required", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_pem() throws Exception {
+        KeyPair pair = KeyPairGenerator.getInstance("EC").generateKeyPair();
+        this.write("k-1.pub.pem", FileKeySourceTest.pem("PUBLIC KEY", pair.getPublic().getEncoded()));
+        this.write("k-1.key.pem", FileKeySourceTest.pem("PRIVATE KEY", pair.getPrivate().getEncoded()));
+        this.write("k-2.pem", FileKeySourceTest.pem("CERTIFICATE", new byte[] { 1 })
+                + FileKeySourceTest.pem("PUBLIC KEY", new byte[] { 2 }));
+        this.write("empty.pem", "nothing here");
+        this.write("broken.pem", "-----BEGIN PUBLIC KEY-----\nAAAA");
+        this.write("notes.txt", FileKeySourceTest.pem("PUBLIC KEY", new byte[] { 3 }));
+
+        FileKeySource source = new FileKeySource(this.dir);
+        Assertions.assertEquals(this.dir, source.getDirectory());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("k-1", "k-2")), source.getKeyIds());
+        Assertions.assertArrayEquals(pair.getPublic().getEncoded(), source.getValidateKey("k-1"));
+        Assertions.assertArrayEquals(pair.getPrivate().getEncoded(), source.getSignKey("k-1"));
+        Assertions.assertArrayEquals(new byte[] { 2 }, source.getValidateKey("k-2"));
+        Assertions.assertNull(source.getSignKey("k-2"));
+        Assertions.assertNull(source.getValidateKey("k-3"));
+        Assertions.assertNull(source.getSignKey(null));
+        Assertions.assertNull(source.getKey("k-1").getAlgorithm());
+        Assertions.assertEquals("k-1", source.getKey("k-1").getKeyId());
+
+        Assertions.assertArrayEquals(new byte[] { 2 }, source.load("k-2", Algorithms.ES256));
+        Assertions.assertNull(source.load("k-3", Algorithms.ES256));
+        Assertions.assertNull(source.load("k-2", null));
+        Assertions.assertFalse(source.getKey("k-1").isSymmetric());
+
+        // public keys are never returned as HMAC secrets
+        for (Algorithm a : Algorithms.hmacAlgorithms()) {
+            Assertions.assertNull(source.load("k-1", a));
+            Assertions.assertNull(source.load("k-2", a));
+        }
+        source.close();
+    }
+
+    @Test
+    public void test_jwk() throws Exception {
+        KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+        rsa.initialize(1024);
+        RSAPublicKey rsaKey = (RSAPublicKey) rsa.generateKeyPair().getPublic();
+
+        KeyPairGenerator ec = KeyPairGenerator.getInstance("EC");
+        ec.initialize(new ECGenParameterSpec("secp384r1"));
+        ECPublicKey ecKey = (ECPublicKey) ec.generateKeyPair().getPublic();
+
+        byte[] edKey = KeyPairGenerator.getInstance("Ed25519").generateKeyPair().getPublic().getEncoded();
+        byte[] secret = "JWT-Secrets-Must-Be-At-Least-64-Characters-Long".getBytes(StandardCharsets.UTF_8);
+
+        this.write("set.json", "{\"keys\":[" //
+                + "{\"kty\":\"RSA\",\"kid\":\"rsa\",\"alg\":\"RS256\",\"n\":\"" + FileKeySourceTest.b64(rsaKey.getModulus())
+                + "\",\"e\":\"" + FileKeySourceTest.b64(rsaKey.getPublicExponent()) + "\"}," //
+                + "{\"kty\":\"EC\",\"kid\":\"ec\",\"crv\":\"P-384\",\"x\":\""
+                + FileKeySourceTest.b64(ecKey.getW().getAffineX()) + "\",\"y\":\""
+                + FileKeySourceTest.b64(ecKey.getW().getAffineY()) + "\"}," //
+                + "{\"kty\":\"OKP\",\"kid\":\"ed\",\"crv\":\"Ed25519\",\"x\":\""
+                + FileKeySourceTest.b64(Arrays.copyOfRange(edKey, 12, 44)) + "\"}," //
+                + "{\"kty\":\"unknown\",\"kid\":\"skipped\"}]}");
+        this.write("hmac.jwk", "{\"kty\":\"oct\",\"alg\":\"HS256\",\"k\":\"" + FileKeySourceTest.b64(secret) + "\"}");
+        this.write("bad-curve.jwk", "{\"kty\":\"EC\",\"crv\":\"P-1\",\"x\":\"AA\",\"y\":\"AA\"}");
+        this.write("bad-okp.jwk", "{\"kty\":\"OKP\",\"crv\":\"Ed25519\",\"x\":\"AA\"}");
+        this.write("missing.jwk", "{\"kty\":\"oct\"}");
+        this.write("array.json", "[]");
+
+        FileKeySource source = new FileKeySource(this.dir);
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("rsa", "ec", "ed", "hmac")), source.getKeyIds());
+        Assertions.assertArrayEquals(rsaKey.getEncoded(), source.getValidateKey("rsa"));
+        Assertions.assertNull(source.getSignKey("rsa"));
+        Assertions.assertArrayEquals(ecKey.getEncoded(), source.getValidateKey("ec"));
+        Assertions.assertArrayEquals(edKey, source.getValidateKey("ed"));
+        Assertions.assertArrayEquals(secret, source.getValidateKey("hmac"));
+        Assertions.assertArrayEquals(secret, source.getSignKey("hmac"));
+
+        // restricted to the algorithm of the JWK
+        Assertions.assertArrayEquals(secret, source.load("hmac", Algorithms.HS256));
+        Assertions.assertNull(source.load("hmac", null));
+        Assertions.assertNull(source.load("hmac", Algorithms.HS512));
+        Assertions.assertNotNull(source.load("ec", Algorithms.ES256));
+        Assertions.assertTrue(source.getKey("hmac").isSymmetric());
+        Assertions.assertFalse(source.getKey("rsa").isSymmetric());
+
+        // key types only match their kind of algorithm
+        Assertions.assertNull(source.load("ec", Algorithms.HS256));
+        Assertions.assertNull(source.load("ed", Algorithms.HS512));
+        this.write("oct.jwk", "{\"kty\":\"oct\",\"k\":\"" + FileKeySourceTest.b64(secret) + "\"}");
+        source.reload();
+        Assertions.assertArrayEquals(secret, source.load("oct", Algorithms.HS512));
+        for (Algorithm a : Algorithms.keyAlgorithms()) {
+            Assertions.assertNull(source.load("oct", a));
+        }
+    }
+
+    @Test
+    public void test_reload() throws Exception {
+        this.write("k-1.pem", FileKeySourceTest.pem("PUBLIC KEY", new byte[] { 1 }));
+        this.write("k-2.pem", FileKeySourceTest.pem("PUBLIC KEY", new byte[] { 2 }));
+        FileKeySource source = new FileKeySource(this.dir);
+        long version = source.getVersion();
+
+        // broken files keep their previous keys, missing files are removed
+        this.write("k-1.pem", "-----BEGIN PUBLIC KEY-----\nAQ");
+        Files.delete(this.dir.resolve("k-2.pem"));
+        this.write("k-3.pem", FileKeySourceTest.pem("PUBLIC KEY", new byte[] { 3 }));
+        source.reload(Arrays.asList(this.dir.resolve("k-1.pem"), this.dir.resolve("k-2.pem")));
+        Assertions.assertEquals(version + 1, source.getVersion());
+        Assertions.assertArrayEquals(new byte[] { 1 }, source.getValidateKey("k-1"));
+        Assertions.assertNull(source.getValidateKey("k-2"));
+        Assertions.assertNull(source.getValidateKey("k-3"));
+
+        source.reload();
+        Assertions.assertArrayEquals(new byte[] { 3 }, source.getValidateKey("k-3"));
+    }
+
+    @Test
+    public void test_watch() throws Exception {
+        this.write("k-1.pem", FileKeySourceTest.pem("PUBLIC KEY", new byte[] { 1 }));
+        try (FileKeySource source = new FileKeySource(this.dir, true)) {
+            Assertions.assertArrayEquals(new byte[] { 1 }, source.getValidateKey("k-1"));
+            byte[] before = source.getValidateKey("k-1");
+
+            this.write("k-2.pem", FileKeySourceTest.pem("PUBLIC KEY", new byte[] { 2 }));
+            this.waitUntil(() -> source.getValidateKey("k-2") != null, 10000);
+            Assertions.assertSame(before, source.getValidateKey("k-1"));
+
+            this.write("k-1.pem", FileKeySourceTest.pem("PUBLIC KEY", new byte[] { 9 }));
+            this.waitUntil(() -> source.getValidateKey("k-1")[0] == 9, 10000);
+
+            Files.delete(this.dir.resolve("k-2.pem"));
+            this.waitUntil(() -> source.getValidateKey("k-2") == null, 10000);
+        }
+    }
+
+    @Test
+    public void test_watch_error() throws Exception {
+        AtomicBoolean fail = new AtomicBoolean();
+        AtomicInteger errors = new AtomicInteger();
+        try (FileKeySource source = new FileKeySource(this.dir, true) {
+            @Override
+            public synchronized void reload(Collection<Path> files) {
+                if (fail.getAndSet(false)) {
+                    throw new RuntimeException("Boom!");
+                }
+                super.reload(files);
+            }
+
+            @Override
+            protected void log(String message, Throwable ex) {
+                errors.incrementAndGet();
+            }
+        }) {
+            fail.set(true);
+            this.write("k-1.pem", FileKeySourceTest.pem("PUBLIC KEY", new byte[] { 1 }));
+            this.waitUntil(() -> errors.get() > 0, 10000);
+
+            // the watcher survived
+            this.write("k-2.pem", FileKeySourceTest.pem("PUBLIC KEY", new byte[] { 2 }));
+            this.waitUntil(() -> source.getValidateKey("k-2") != null, 10000);
+        }
+    }
+
+    @Test
+    public void test_keyRing() throws Exception {
+        this.write("k-1.pem", FileKeySourceTest.pem("PUBLIC KEY", new byte[] { 1 }));
+        FileKeySource source = new FileKeySource(this.dir);
+        KeyRing ring = new KeyRing(source, 1000);
+        Assertions.assertArrayEquals(new byte[] { 1 }, ring.get("k-1", Algorithms.RS256));
+        Assertions.assertNull(ring.get("k-2", Algorithms.RS256));
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.signing.Algorithms;
+
+public class HeaderCacheTest {
+    @Test
+    public void test_constructor() {
+        Assertions.assertEquals(1, new HeaderCache(1).getSize());
+        Assertions.assertEquals(128, new HeaderCache(100).getSize());
+
+        try {
+            new HeaderCache(0);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Size must be positive number but was 0", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_getPut() {
+        JwtHeader header = new JwtHeader();
+        header.setAlgorithm(Algorithms.HS256);
+        header.setKeyId("kid-1");
+        header.put(JwtHeader.Keys.X509CertificateChain, new ArrayList<>(Arrays.asList("a")));
+
+        HeaderCache cache = new HeaderCache(8);
+        Assertions.assertNull(cache.get("abc.def.ghi", 3));
+        Assertions.assertEquals(1, cache.getMisses());
+
+        HeaderCache.Entry entry = cache.put("abc", header, Algorithms.HS256, true);
+        header.setKeyId("kid-2");
+
+        Assertions.assertSame(entry, cache.get("abc.def.ghi", 3));
+        Assertions.assertSame(entry, cache.get("abc", 3));
+        Assertions.assertEquals(2, cache.getHits());
+        Assertions.assertNull(cache.get("abcd.def.ghi", 4));
+        Assertions.assertNull(cache.get("abd.def.ghi", 3));
+        Assertions.assertNull(cache.get("ab.def.ghi", 2));
+
+        Assertions.assertSame(Algorithms.HS256, entry.getAlgorithm());
+        Assertions.assertTrue(entry.isAllowed());
+
+        // put copies the header, hits share the cached one
+        Assertions.assertSame(entry.getHeader(), entry.getHeader());
+        Assertions.assertEquals("kid-1", entry.getHeader().getKeyId());
+        ((List<?>) header.get(JwtHeader.Keys.X509CertificateChain)).clear();
+        Assertions.assertEquals(1, ((List<?>) entry.getHeader().get(JwtHeader.Keys.X509CertificateChain)).size());
+
+        cache.clear();
+        Assertions.assertNull(cache.get("abc", 3));
+    }
+
+    @Test
+    public void test_replace() {
+        JwtHeader header = new JwtHeader();
+        HeaderCache cache = new HeaderCache(1);
+        cache.put("abc", header, Algorithms.HS256, true);
+        cache.put("xyz", header, Algorithms.HS512, false);
+
+        Assertions.assertNull(cache.get("abc", 3));
+        Assertions.assertFalse(cache.get("xyz", 3).isAllowed());
+    }
+}
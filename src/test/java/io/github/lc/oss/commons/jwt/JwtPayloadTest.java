@@ -0,0 +1,203 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class JwtPayloadTest {
+    @Test
+    public void test_registeredClaims() {
+        JwtPayload payload = new JwtPayload();
+        Assertions.assertNull(payload.getSubject());
+        Assertions.assertNull(payload.getExpiration());
+        Assertions.assertNull(payload.getExpirationMillis());
+
+        payload.setSubject(" sub ");
+        payload.setIssuer("iss");
+        payload.setTokenId("");
+        payload.setExpiration(100);
+        payload.setNotBefore(50);
+        payload.setIssuedAt(40);
+
+        Assertions.assertEquals("sub", payload.getSubject());
+        Assertions.assertEquals("iss", payload.getIssuer());
+        Assertions.assertNull(payload.getTokenId());
+        Assertions.assertEquals(100, payload.getExpiration());
+        Assertions.assertEquals(100000, payload.getExpirationMillis());
+        Assertions.assertEquals(50, payload.getNotBefore());
+        Assertions.assertEquals(40, payload.getIssuedAt());
+        Assertions.assertSame(payload.getExpiration(), payload.getExpiration());
+    }
+
+    @Test
+    public void test_registeredClaims_modified() {
+        JwtPayload payload = new JwtPayload();
+        payload.setSubject("a");
+        payload.setExpiration(100);
+        Assertions.assertEquals("a", payload.getSubject());
+        Assertions.assertEquals(100, payload.getExpiration());
+
+        payload.setSubject("b");
+        Assertions.assertEquals("b", payload.getSubject());
+
+        payload.put(JwtPayload.Keys.ExpirationDate, -1);
+        Assertions.assertNull(payload.getExpiration());
+
+        for (Map.Entry<String, Object> e : payload.entrySet()) {
+            if (JwtPayload.Keys.Subject.equals(e.getKey())) {
+                e.setValue("c");
+            }
+        }
+        Assertions.assertEquals("c", payload.getSubject());
+
+        payload.remove(JwtPayload.Keys.Subject);
+        Assertions.assertNull(payload.getSubject());
+
+        payload.setSubject("d");
+        JwtPayload copy = (JwtPayload) payload.clone();
+        Assertions.assertEquals("d", copy.getSubject());
+        copy.setSubject("e");
+        Assertions.assertEquals("e", copy.getSubject());
+        Assertions.assertEquals("d", payload.getSubject());
+
+        payload.clear();
+        Assertions.assertNull(payload.getSubject());
+    }
+
+    @Test
+    public void test_decoded() {
+        JwtPayload payload = new JwtPayload();
+        payload.setSubject("sub");
+        payload.setExpiration(100);
+        payload.put("custom", "value");
+
+        JwtPayload decoded = Util.fromBase64Json(Util.toBase64Json(payload), JwtPayload.class);
+        Assertions.assertEquals("sub", decoded.getSubject());
+        Assertions.assertEquals(100, decoded.getExpiration());
+        Assertions.assertEquals("value", decoded.getString("custom"));
+    }
+
+    private JwtPayload lazy(String json) {
+        byte[] bytes = ("[" + json + "]").getBytes(StandardCharsets.UTF_8);
+        return JwtPayload.lazy(bytes, 1, bytes.length - 2);
+    }
+
+    @Test
+    public void test_permissions() {
+        String json = "{\"aud\":[\"a\"],\"x-perm\":{\"a\":[\"read\",\"write\"],\"b\":\"read\"}}";
+        JwtPayload payload = Util.fromJson(json.getBytes(StandardCharsets.UTF_8), 0, json.length(), JwtPayload.class);
+
+        Assertions.assertTrue(payload.hasPermission("a", "read"));
+        Assertions.assertTrue(payload.hasPermission("a", "write"));
+        Assertions.assertFalse(payload.hasPermission("a", "delete"));
+        Assertions.assertFalse(payload.hasPermission("b", "read"));
+        Assertions.assertFalse(payload.hasPermission("c", "read"));
+        Assertions.assertFalse(payload.hasPermission(null, "read"));
+
+        // nested modifications
+        payload.setPermissions("a", "delete");
+        Assertions.assertTrue(payload.hasPermission("a", "delete"));
+        Assertions.assertFalse(payload.hasPermission("a", "read"));
+        payload.getPermissions("a").add("read");
+        Assertions.assertTrue(payload.hasPermission("a", "read"));
+
+        payload.remove(JwtPayload.Keys.Permissions);
+        Assertions.assertFalse(payload.hasPermission("a", "read"));
+
+        // audience
+        payload.getAudience();
+        Assertions.assertSame(payload.getAudience(), payload.getAudience());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> payload.getAudience().add("b"));
+        payload.setAudience("b");
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("b")), payload.getAudience());
+    }
+
+    @Test
+    public void test_lazy() {
+        JwtPayload payload = this.lazy("{\"sub\":\" sub \",\"iss\":\"iss\",\"jti\":\"\",\"exp\":100,"
+                + "\"nbf\":-1,\"iat\":40.5,\"aud\":[\"a\",\"b\"],\"x-perm\":{\"a\":[\"p\"]},\"n\":[1,{\"x\":2}]}");
+
+        Assertions.assertFalse(payload.isInflated());
+        Assertions.assertEquals("sub", payload.getSubject());
+        Assertions.assertEquals("iss", payload.getIssuer());
+        Assertions.assertNull(payload.getTokenId());
+        Assertions.assertEquals(100, payload.getExpiration());
+        Assertions.assertNull(payload.getNotBefore());
+        Assertions.assertEquals(40, payload.getIssuedAt());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("a", "b")), payload.getAudience());
+        Assertions.assertFalse(payload.isInflated());
+
+        Assertions.assertTrue(payload.hasPermission("a", "p"));
+        Assertions.assertTrue(payload.isInflated());
+        Assertions.assertEquals(9, payload.size());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("a", "b")), payload.getAudience());
+        Assertions.assertEquals("sub", payload.getSubject());
+    }
+
+    @Test
+    public void test_lazy_matchesEager() {
+        String[] documents = { "{}", "{\"aud\":\"a\"}", "{\"aud\":[]}", "{\"aud\":null}", "{\"aud\":7}",
+                "{\"aud\":[\"a\",null]}", "{\"aud\":{\"a\":1}}", "{\"sub\":1,\"exp\":\"1\"}",
+                "{\"sub\":{\"a\":[1]},\"exp\":[1]}", "{\"sub\":\"a\",\"sub\":\"b\",\"aud\":\"a\",\"aud\":null}",
+                "{\"exp\":18446744073709551616}" };
+        for (String json : documents) {
+            JwtPayload lazy = this.lazy(json);
+            JwtPayload eager = Util.fromJson(json.getBytes(StandardCharsets.UTF_8), 0, json.length(), JwtPayload.class);
+            Assertions.assertEquals(eager.getSubject(), lazy.getSubject(), json);
+            Assertions.assertEquals(eager.getExpiration(), lazy.getExpiration(), json);
+            Assertions.assertEquals(eager.getAudience(), lazy.getAudience(), json);
+            Assertions.assertEquals(eager, lazy, json);
+        }
+    }
+
+    @Test
+    public void test_lazy_invalid() {
+        for (String json : new String[] { "[]", "{\"a\":1", "{\"a\":}", "" }) {
+            try {
+                this.lazy(json);
+                Assertions.fail("Expected exception for " + json);
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Error deserialzing object.", ex.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void test_lazy_modified() {
+        JwtPayload payload = this.lazy("{\"sub\":\"a\",\"x\":\"y\"}");
+        payload.setSubject("b");
+        Assertions.assertTrue(payload.isInflated());
+        Assertions.assertEquals("b", payload.getSubject());
+        Assertions.assertEquals("y", payload.getString("x"));
+
+        payload = this.lazy("{\"sub\":\"a\",\"x\":\"y\"}");
+        JwtPayload copy = (JwtPayload) payload.clone();
+        Assertions.assertEquals("y", copy.getString("x"));
+        Assertions.assertEquals(payload, copy);
+    }
+
+    @Test
+    public void test_lazy_serializable() throws IOException, ClassNotFoundException {
+        JwtPayload payload = this.lazy("{\"sub\":\"a\",\"x\":\"y\"}");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream o = new ObjectOutputStream(out)) {
+            o.writeObject(payload);
+        }
+        try (ObjectInputStream i = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            JwtPayload copy = (JwtPayload) i.readObject();
+            Assertions.assertTrue(copy.isInflated());
+            Assertions.assertEquals("a", copy.getSubject());
+            Assertions.assertEquals("y", copy.getString("x"));
+        }
+    }
+}
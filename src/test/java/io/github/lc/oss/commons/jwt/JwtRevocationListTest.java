@@ -1,6 +1,12 @@
 package io.github.lc.oss.commons.jwt;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -19,7 +25,7 @@ public class JwtRevocationListTest extends AbstractMockTest {
 
         JwtRevocationList list = new JwtRevocationList();
 
-        final Map<?, ?> map = this.getField("map", list);
+        final Map<?, ?> map = this.getField("map", this.getField("store", list));
 
         Assertions.assertNotNull(map);
         Assertions.assertTrue(map.isEmpty());
@@ -27,7 +33,7 @@ public class JwtRevocationListTest extends AbstractMockTest {
         list.revoke(token1);
         list.revoke(token2);
 
-        Map<?, ?> map2 = this.getField("map", list);
+        Map<?, ?> map2 = this.getField("map", this.getField("store", list));
         Assertions.assertSame(map, map2);
         Assertions.assertEquals(2, map.size());
 
@@ -36,11 +42,288 @@ public class JwtRevocationListTest extends AbstractMockTest {
 
         list.clean();
 
-        map2 = this.getField("map", list);
+        map2 = this.getField("map", this.getField("store", list));
         Assertions.assertSame(map, map2);
         Assertions.assertEquals(1, map.size());
 
         Assertions.assertFalse(list.isRevoked(token1.getSignature()));
         Assertions.assertTrue(list.isRevoked(token2.getSignature()));
     }
+
+    @Test
+    public void test_timeSource() {
+        JwtRevocationList list = new JwtRevocationList();
+        Assertions.assertSame(TimeSource.SYSTEM, list.getTimeSource());
+
+        try {
+            list.setTimeSource(null);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Time source is required", ex.getMessage());
+        }
+
+        long[] now = { System.currentTimeMillis() };
+        list.setTimeSource(() -> now[0]);
+        list.revoke("s", now[0] + 100000);
+        list.clean();
+        Assertions.assertTrue(list.isRevoked("s"));
+
+        now[0] += 300000;
+        list.clean();
+        Assertions.assertFalse(list.isRevoked("s"));
+        Assertions.assertEquals(0, list.size());
+    }
+
+    @Test
+    public void test_constructor_invalid() {
+        try {
+            new JwtRevocationList(0);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Bucket size must be positive number but was 0", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_constructor_nullStore() {
+        try {
+            new JwtRevocationList((RevocationStore) null);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Store is required", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_compactStore() {
+        final long now = System.currentTimeMillis();
+
+        JwtRevocationList list = new JwtRevocationList(new CompactRevocationStore(4, true), 100, 0.01);
+        list.revoke("a", now + 100000);
+        list.revoke("b", now - 100000);
+        list.revoke(RevocationDigest.of("c"), now + 100000);
+        Assertions.assertEquals(3, list.size());
+        Assertions.assertTrue(list.isRevoked("a"));
+        Assertions.assertTrue(list.isRevoked("b"));
+        Assertions.assertTrue(list.isRevoked("c"));
+        Assertions.assertTrue(list.isRevoked(RevocationDigest.of("a")));
+        Assertions.assertFalse(list.isRevoked("d"));
+
+        list.clean();
+        Assertions.assertEquals(2, list.size());
+        Assertions.assertTrue(list.isRevoked("a"));
+        Assertions.assertFalse(list.isRevoked("b"));
+        Assertions.assertTrue(list.isRevoked("c"));
+    }
+
+    @Test
+    public void test_nullSignature() {
+        Jwt token = new Jwt();
+        token.setExpirationMillis(System.currentTimeMillis());
+
+        JwtRevocationList list = new JwtRevocationList();
+        list.revoke(token);
+        list.revoke((String) null, System.currentTimeMillis());
+
+        Assertions.assertEquals(0, list.size());
+        Assertions.assertFalse(list.isRevoked((String) null));
+    }
+
+    @Test
+    public void test_clean_buckets() {
+        final long now = System.currentTimeMillis();
+
+        JwtRevocationList list = new JwtRevocationList(1000);
+        final ConcurrentSkipListMap<Long, ?> buckets = this.getField("buckets", this.getField("store", list));
+
+        // whole buckets in the past
+        list.revoke("a", now - 5000);
+        list.revoke("b", now - 5000);
+        list.revoke("c", now - 3000);
+        // current bucket, one already expired and one not
+        list.revoke("d", now - (now % 1000));
+        list.revoke("e", now - (now % 1000) + 1000 + 999);
+        list.revoke("f", now + 999999);
+        Assertions.assertEquals(6, list.size());
+
+        list.clean();
+
+        Assertions.assertFalse(list.isRevoked("a"));
+        Assertions.assertFalse(list.isRevoked("b"));
+        Assertions.assertFalse(list.isRevoked("c"));
+        Assertions.assertFalse(list.isRevoked("d"));
+        Assertions.assertTrue(list.isRevoked("e"));
+        Assertions.assertTrue(list.isRevoked("f"));
+        Assertions.assertEquals(2, list.size());
+        Assertions.assertTrue(buckets.firstKey() >= now / 1000);
+    }
+
+    @Test
+    public void test_revoke_again() {
+        final long now = System.currentTimeMillis();
+
+        JwtRevocationList list = new JwtRevocationList(1000);
+        final ConcurrentSkipListMap<Long, ?> buckets = this.getField("buckets", this.getField("store", list));
+
+        // extended, the old bucket must not remove it
+        list.revoke("a", now - 5000);
+        list.revoke("a", now + 5000);
+        // same expiration twice only uses one bucket
+        list.revoke("b", now + 100000);
+        list.revoke("b", now + 100000);
+        Assertions.assertEquals(3, buckets.size());
+
+        list.clean();
+
+        Assertions.assertTrue(list.isRevoked("a"));
+        Assertions.assertTrue(list.isRevoked("b"));
+        Assertions.assertEquals(2, buckets.size());
+
+        // shortened into the current bucket, the future bucket entry is stale
+        list.revoke("b", now - 1);
+        list.clean();
+
+        Assertions.assertTrue(list.isRevoked("a"));
+        Assertions.assertFalse(list.isRevoked("b"));
+    }
+
+    @Test
+    public void test_concurrent() throws Exception {
+        final long now = System.currentTimeMillis();
+        final JwtRevocationList list = new JwtRevocationList(10);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        String id = thread + "-" + i;
+                        list.revoke("live-" + id, now + 600000);
+                        list.revoke("dead-" + id, now - i);
+                        if (!list.isRevoked("live-" + id)) {
+                            throw new IllegalStateException("Lost " + id);
+                        }
+                        if (i % 100 == 0) {
+                            list.clean();
+                        }
+                    }
+                }));
+            }
+
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        list.clean();
+        Assertions.assertEquals(8 * 2000, list.size());
+    }
+
+    @Test
+    public void test_filter() {
+        final long now = System.currentTimeMillis();
+
+        JwtRevocationList list = new JwtRevocationList(1000, 100, 0.01);
+        RevocationFilter filter = this.getField("filter", list);
+        Assertions.assertNotNull(filter);
+
+        list.revoke("a", now + 100000);
+        list.revoke("b", now - 100000);
+        Assertions.assertTrue(filter.mightContain(RevocationDigest.of("a")));
+        Assertions.assertTrue(list.isRevoked("a"));
+        Assertions.assertTrue(list.isRevoked("b"));
+        Assertions.assertFalse(list.isRevoked("c"));
+
+        // filter still answers maybe for expired entries, the store decides
+        list.clean();
+        Assertions.assertSame(filter, this.getField("filter", list));
+        Assertions.assertTrue(filter.mightContain(RevocationDigest.of("b")));
+        Assertions.assertFalse(list.isRevoked("b"));
+        Assertions.assertTrue(list.isRevoked("a"));
+    }
+
+    @Test
+    public void test_filter_disabled() {
+        JwtRevocationList list = new JwtRevocationList(1000, 0, 0);
+        Assertions.assertNull(this.getField("filter", list));
+
+        list.revoke("a", System.currentTimeMillis() + 100000);
+        Assertions.assertTrue(list.isRevoked("a"));
+        Assertions.assertFalse(list.isRevoked("b"));
+    }
+
+    @Test
+    public void test_filter_rebuild() {
+        final long now = System.currentTimeMillis();
+
+        JwtRevocationList list = new JwtRevocationList(1000, 10, 0.01);
+        RevocationFilter filter = this.getField("filter", list);
+
+        // mostly expired entries
+        for (int i = 0; i < 10; i++) {
+            list.revoke("expired-" + i, now - 100000);
+        }
+        list.revoke("live", now + 100000);
+
+        list.clean();
+        RevocationFilter rebuilt = this.getField("filter", list);
+        Assertions.assertNotSame(filter, rebuilt);
+        Assertions.assertEquals(10, rebuilt.getExpectedInsertions());
+        Assertions.assertEquals(1, rebuilt.getInsertions());
+        Assertions.assertTrue(list.isRevoked("live"));
+        Assertions.assertNull(this.getField("nextFilter", list));
+
+        // outgrown
+        for (int i = 0; i < 20; i++) {
+            list.revoke("live-" + i, now + 100000);
+        }
+        list.clean();
+        rebuilt = this.getField("filter", list);
+        Assertions.assertEquals(42, rebuilt.getExpectedInsertions());
+        Assertions.assertEquals(21, rebuilt.getInsertions());
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertTrue(list.isRevoked("live-" + i));
+        }
+    }
+
+    @Test
+    public void test_filter_concurrentRebuild() throws Exception {
+        final long now = System.currentTimeMillis();
+        final JwtRevocationList list = new JwtRevocationList(10, 16, 0.01);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        String id = thread + "-" + i;
+                        list.revoke("dead-" + id, now - 1);
+                        list.revoke("live-" + id, now + 600000);
+                        if (!list.isRevoked("live-" + id)) {
+                            throw new IllegalStateException("Lost " + id);
+                        }
+                        list.clean();
+                    }
+                }));
+            }
+
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int t = 0; t < 4; t++) {
+            for (int i = 0; i < 2000; i++) {
+                Assertions.assertTrue(list.isRevoked("live-" + t + "-" + i));
+            }
+        }
+    }
 }
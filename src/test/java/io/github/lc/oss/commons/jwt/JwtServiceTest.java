@@ -3,8 +3,16 @@ package io.github.lc.oss.commons.jwt;
 import java.time.Clock;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -48,7 +56,9 @@ public class JwtServiceTest extends AbstractMockTest {
 
         @Override
         protected long now() {
-            return this.clock.instant().toEpochMilli();
+            /* default implementation unless the clock is stubbed */
+            Instant now = this.clock.instant();
+            return now == null ? super.now() : now.toEpochMilli();
         }
 
         public Clock getClock() {
@@ -56,6 +66,46 @@ public class JwtServiceTest extends AbstractMockTest {
         }
     }
 
+    private static class CachedTestClass extends TestClass {
+        private final ValidationCache cache = new ValidationCache(10, 60000);
+        private boolean allowed = true;
+
+        @Override
+        public boolean isAlgorithmAllowed(Algorithm alg) {
+            return this.allowed && super.isAlgorithmAllowed(alg);
+        }
+
+        @Override
+        protected ValidationCache getValidationCache() {
+            return this.cache;
+        }
+    }
+
+    /*
+     * Changes a full character of the signature, the last one may only hold
+     * padding bits.
+     */
+    private static String tamper(String encoded) {
+        int i = encoded.length() - 2;
+        char c = encoded.charAt(i) == 'A' ? 'B' : 'A';
+        return encoded.substring(0, i) + c + encoded.substring(i + 1);
+    }
+
+    @Test
+    public void test_registerMaintenance() {
+        MaintenanceScheduler scheduler = Mockito.mock(MaintenanceScheduler.class);
+
+        JwtService service = new TestClass();
+        service.registerMaintenance(scheduler);
+        Mockito.verify(scheduler).register(service.getRevocationList());
+        Mockito.verifyNoMoreInteractions(scheduler);
+
+        CachedTestClass cached = new CachedTestClass();
+        cached.registerMaintenance(scheduler);
+        Mockito.verify(scheduler).register(cached.getRevocationList());
+        Mockito.verify(scheduler).register(cached.getValidationCache());
+    }
+
     @Test
     public void test_invalidate_null() {
         JwtService service = new TestClass();
@@ -493,6 +543,791 @@ public class JwtServiceTest extends AbstractMockTest {
         Assertions.assertNull(result);
     }
 
+    @Test
+    public void test_validate_cached() {
+        final ValidationCache cache = new ValidationCache(10, 60000);
+        JwtService service = new TestClass() {
+            @Override
+            protected ValidationCache getValidationCache() {
+                return cache;
+            }
+        };
+
+        Jwt jwt = service.issue(Algorithms.HS256, System.currentTimeMillis() + 100000, "junit", "junit-ca",
+                "junit-app");
+        String encoded = service.signAndEncode(jwt);
+
+        Jwt result = service.validate(encoded);
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(0, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertEquals(1, cache.size());
+
+        Jwt cached = service.validate(encoded);
+        Assertions.assertNotNull(cached);
+        Assertions.assertNotSame(result, cached);
+        Assertions.assertEquals(jwt.getTokenId(), cached.getTokenId());
+        Assertions.assertEquals(jwt.getSignature(), cached.getSignature());
+        Assertions.assertEquals(1, cache.getHits());
+
+        // claims are still checked on a hit
+        Assertions.assertNull(service.validate(encoded, "junit-app-junk"));
+        Assertions.assertEquals(2, cache.getHits());
+
+        // as is revocation
+        service.invalidate(cached);
+        Assertions.assertNull(service.validate(encoded));
+        Assertions.assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void test_validate_cached_algorithmNoLongerAllowed() {
+        CachedTestClass service = new CachedTestClass();
+
+        Jwt jwt = service.issue(Algorithms.HS256, System.currentTimeMillis() + 100000, "junit", "junit-ca",
+                "junit-app");
+        String encoded = service.signAndEncode(jwt);
+
+        Assertions.assertNotNull(service.validate(encoded));
+
+        service.allowed = false;
+        Assertions.assertNull(service.validate(encoded));
+        Assertions.assertEquals(1, service.cache.getHits());
+    }
+
+    @Test
+    public void test_validate_headerCache() {
+        final HeaderCache headers = new HeaderCache(16);
+        final int[] allowedCalls = new int[1];
+        JwtService service = new TestClass() {
+            @Override
+            public boolean isAlgorithmAllowed(Algorithm alg) {
+                allowedCalls[0]++;
+                return super.isAlgorithmAllowed(alg);
+            }
+
+            @Override
+            protected HeaderCache getHeaderCache() {
+                return headers;
+            }
+        };
+
+        Jwt jwt1 = service.issue(Algorithms.HS256, System.currentTimeMillis() + 100000, "junit", "junit-ca",
+                "junit-app");
+        Jwt jwt2 = service.issue(Algorithms.HS256, System.currentTimeMillis() + 100000, "junit2", "junit-ca",
+                "junit-app");
+        String encoded1 = service.signAndEncode(jwt1);
+        String encoded2 = service.signAndEncode(jwt2);
+        final int initialCalls = allowedCalls[0];
+
+        Jwt result = service.validate(encoded1);
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(0, headers.getHits());
+        Assertions.assertEquals(initialCalls + 1, allowedCalls[0]);
+
+        result = service.validate(encoded2);
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals("junit2", result.getSubject());
+        Assertions.assertEquals(Algorithms.HS256, result.getAlgorithm());
+        Assertions.assertEquals(1, headers.getHits());
+        Assertions.assertEquals(initialCalls + 1, allowedCalls[0]);
+
+        // headers are copies
+        result.getHeader().setKeyId("changed");
+        Assertions.assertNull(service.validate(encoded2).getHeader().getKeyId());
+
+        // signature is still checked on a hit
+        Assertions.assertNull(service.validate(JwtServiceTest.tamper(encoded2)));
+        Assertions.assertEquals(3, headers.getHits());
+    }
+
+    @Test
+    public void test_validate_headerCache_denied() {
+        final HeaderCache headers = new HeaderCache(16);
+        JwtService service = new TestClass() {
+            @Override
+            protected HeaderCache getHeaderCache() {
+                return headers;
+            }
+        };
+
+        Jwt jwt = new Jwt();
+        jwt.getHeader().put(JwtHeader.Keys.TokenType, "JWT");
+        jwt.getHeader().setAlgorithm(Algorithms.ED25519);
+        jwt.setSignature("sig");
+        String encoded = Util.toJson(jwt);
+
+        Assertions.assertNull(service.validate(encoded));
+        Assertions.assertNull(service.validate(encoded));
+        Assertions.assertEquals(1, headers.getHits());
+        Assertions.assertFalse(headers.get(encoded, encoded.indexOf('.')).isAllowed());
+    }
+
+    @Test
+    public void test_validate_lazyPayload() {
+        JwtService service = new TestClass() {
+            @Override
+            protected boolean isLazyPayload() {
+                return true;
+            }
+        };
+
+        Jwt jwt = service.issue(Algorithms.HS256, System.currentTimeMillis() + 100000, "junit", "junit-ca",
+                "junit-app");
+        jwt.getPayload().setPermissions("junit-app", "read");
+        String encoded = service.signAndEncode(jwt);
+
+        Jwt result = service.validate(encoded);
+        Assertions.assertNotNull(result);
+        Assertions.assertFalse(result.getPayload().isInflated());
+        Assertions.assertEquals("junit", result.getSubject());
+        Assertions.assertEquals(jwt.getTokenId(), result.getTokenId());
+        Assertions.assertFalse(result.getPayload().isInflated());
+
+        Assertions.assertTrue(result.getPayload().hasPermission("junit-app", "read"));
+        Assertions.assertTrue(result.getPayload().isInflated());
+
+        // still validated
+        Assertions.assertNull(service.validate(encoded, "junit-app-junk"));
+        Assertions.assertNull(service.validate(encoded.replace('.', '.').substring(0, encoded.indexOf('.') + 1)
+                + "%%%%" + encoded.substring(encoded.lastIndexOf('.'))));
+    }
+
+    @Test
+    public void test_validateAll() {
+        AtomicInteger secrets = new AtomicInteger();
+        AtomicInteger executed = new AtomicInteger();
+        JwtService service = new TestClass() {
+            @Override
+            protected byte[] getValidateSecret(JwtHeader header, byte[] defaultSecret) {
+                secrets.incrementAndGet();
+                return super.getValidateSecret(header, defaultSecret);
+            }
+
+            @Override
+            protected Executor getValidationExecutor() {
+                return r -> {
+                    executed.incrementAndGet();
+                    new Thread(r).start();
+                };
+            }
+        };
+
+        long expires = System.currentTimeMillis() + 100000;
+        List<String> encoded = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Jwt jwt = service.issue(i % 2 == 0 ? Algorithms.HS256 : Algorithms.HS512, expires, "user-" + i,
+                    "junit-ca", "junit-app");
+            encoded.add(service.signAndEncode(jwt));
+        }
+        String revoked = encoded.get(3);
+        service.invalidate(service.validate(revoked));
+        String wrongAudience = service.signAndEncode(
+                service.issue(Algorithms.HS256, expires, "other", "junit-ca", "other-app"));
+        String tampered = JwtServiceTest.tamper(encoded.get(4));
+        encoded.add(encoded.get(0));
+        encoded.add(null);
+        encoded.add("junk");
+        encoded.add(wrongAudience);
+        encoded.add(tampered);
+        encoded.add(encoded.get(0));
+        secrets.set(0);
+
+        List<Jwt> results = service.validateAll(encoded);
+        Assertions.assertEquals(encoded.size(), results.size());
+        for (int i = 0; i < 40; i++) {
+            if (i == 3) {
+                Assertions.assertNull(results.get(i));
+            } else {
+                Assertions.assertEquals("user-" + i, results.get(i).getSubject());
+            }
+        }
+        Assertions.assertEquals("user-0", results.get(40).getSubject());
+        Assertions.assertNull(results.get(41));
+        Assertions.assertNull(results.get(42));
+        Assertions.assertNull(results.get(43));
+        Assertions.assertNull(results.get(44));
+        Assertions.assertEquals("user-0", results.get(45).getSubject());
+
+        // duplicates are validated once but never share instances
+        Assertions.assertNotSame(results.get(0), results.get(40));
+        Assertions.assertNotSame(results.get(0).getPayload(), results.get(45).getPayload());
+        Assertions.assertNotSame(results.get(2).getHeader(), results.get(4).getHeader());
+
+        // one secret lookup per distinct header and verified on the executor
+        Assertions.assertEquals(2, secrets.get());
+        Assertions.assertTrue(executed.get() > 1);
+        Assertions.assertEquals(results.get(5).getSubject(), service.validate(encoded.get(5)).getSubject());
+    }
+
+    @Test
+    public void test_validateAll_callingThread() {
+        List<Thread> threads = new ArrayList<>();
+        JwtService service = new CachedTestClass() {
+            @Override
+            protected Executor getValidationExecutor() {
+                return null;
+            }
+
+            @Override
+            protected byte[] getValidateSecret(JwtHeader header, byte[] defaultSecret) {
+                threads.add(Thread.currentThread());
+                return super.getValidateSecret(header, defaultSecret);
+            }
+        };
+
+        String token = service.signAndEncode(
+                service.issue(Algorithms.HS256, System.currentTimeMillis() + 100000, "junit", "junit-ca", "junit-app"));
+        List<Jwt> results = service.validateAll(Arrays.asList(token, token));
+        Assertions.assertEquals("junit", results.get(0).getSubject());
+        Assertions.assertEquals("junit", results.get(1).getSubject());
+        Assertions.assertEquals(Arrays.asList(Thread.currentThread()), threads);
+
+        // served from the validation cache
+        results = service.validateAll(Arrays.asList(token), "junit-app");
+        Assertions.assertEquals("junit", results.get(0).getSubject());
+        Assertions.assertEquals(1, threads.size());
+        Assertions.assertNull(service.validateAll(Arrays.asList(token), "junk").get(0));
+
+        Assertions.assertTrue(service.validateAll(new ArrayList<>()).isEmpty());
+    }
+
+    @Test
+    public void test_validateAll_rejected() {
+        JwtService service = new TestClass() {
+            @Override
+            protected Executor getValidationExecutor() {
+                return r -> {
+                    throw new RejectedExecutionException();
+                };
+            }
+        };
+
+        List<String> encoded = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            encoded.add(service.signAndEncode(service.issue(Algorithms.HS256, System.currentTimeMillis() + 100000,
+                    "user-" + i, "junit-ca", "junit-app")));
+        }
+
+        List<Jwt> results = service.validateAll(encoded);
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertEquals("user-" + i, results.get(i).getSubject());
+        }
+    }
+
+    @Test
+    public void test_validateAsync() {
+        List<String> threads = new ArrayList<>();
+        JwtService service = new TestClass() {
+            @Override
+            protected Executor getValidationExecutor() {
+                return r -> new Thread(r, "junit-async").start();
+            }
+
+            @Override
+            protected byte[] getValidateSecret(JwtHeader header, byte[] defaultSecret) {
+                threads.add(Thread.currentThread().getName());
+                return super.getValidateSecret(header, defaultSecret);
+            }
+        };
+
+        String encoded = service.signAndEncode(
+                service.issue(Algorithms.HS256, System.currentTimeMillis() + 100000, "junit", "junit-ca", "junit-app"));
+
+        Jwt result = service.validateAsync(encoded).toCompletableFuture().join();
+        Assertions.assertEquals("junit", result.getSubject());
+        Assertions.assertEquals(Arrays.asList("junit-async"), threads);
+
+        Assertions.assertNull(service.validateAsync(encoded, "junk").toCompletableFuture().join());
+        Assertions.assertNull(service.validateAsync("junk").toCompletableFuture().join());
+        Assertions.assertNull(service.validateAsync(JwtServiceTest.tamper(encoded))
+                .toCompletableFuture().join());
+
+        service.invalidate(result);
+        Assertions.assertNull(service.validateAsync(encoded).toCompletableFuture().join());
+    }
+
+    @Test
+    public void test_validateAsync_secretHook() {
+        CompletableFuture<byte[]> secret = new CompletableFuture<>();
+        JwtService service = new CachedTestClass() {
+            @Override
+            protected Executor getValidationExecutor() {
+                return null;
+            }
+
+            @Override
+            protected CompletionStage<byte[]> getValidateSecretAsync(JwtHeader header, byte[] defaultSecret) {
+                return secret;
+            }
+        };
+
+        String encoded = service.signAndEncode(
+                service.issue(Algorithms.HS256, System.currentTimeMillis() + 100000, "junit", "junit-ca", "junit-app"));
+
+        CompletionStage<Jwt> stage = service.validateAsync(encoded);
+        Assertions.assertFalse(stage.toCompletableFuture().isDone());
+        secret.complete(service.getSignSecret(null, null));
+        Assertions.assertEquals("junit", stage.toCompletableFuture().join().getSubject());
+
+        // served from the validation cache without resolving the secret
+        Assertions.assertEquals("junit", service.validateAsync(encoded).toCompletableFuture().join().getSubject());
+    }
+
+    @Test
+    public void test_validateAsync_secretErrors() {
+        List<CompletionStage<byte[]>> secrets = new ArrayList<>();
+        secrets.add(CompletableFuture.completedFuture(null));
+        CompletableFuture<byte[]> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new RuntimeException("Boom!"));
+        secrets.add(failed);
+        CompletableFuture<byte[]> thrown = new CompletableFuture<>();
+        secrets.add(thrown);
+        secrets.add(null);
+        CountingJwtMetrics metrics = new CountingJwtMetrics(true);
+        JwtService service = new TestClass() {
+            @Override
+            protected JwtMetrics getMetrics() {
+                return metrics;
+            }
+
+            @Override
+            protected CompletionStage<byte[]> getValidateSecretAsync(JwtHeader header, byte[] defaultSecret) {
+                CompletionStage<byte[]> s = secrets.remove(0);
+                if (s == thrown) {
+                    throw new RuntimeException("Boom!");
+                }
+                return s;
+            }
+        };
+
+        String encoded = service.signAndEncode(
+                service.issue(Algorithms.HS256, System.currentTimeMillis() + 100000, "junit", "junit-ca", "junit-app"));
+
+        Assertions.assertNull(service.validateAsync(encoded).toCompletableFuture().join());
+        Assertions.assertNull(service.validateAsync(encoded).toCompletableFuture().join());
+        Assertions.assertNull(service.validateAsync(encoded).toCompletableFuture().join());
+        // no stage at all is the same as no secret
+        Assertions.assertNull(service.validateAsync(encoded).toCompletableFuture().join());
+        Assertions.assertTrue(secrets.isEmpty());
+        Assertions.assertEquals(2, metrics.getRejected(JwtMetrics.RejectionReason.SECRET));
+        Assertions.assertEquals(2, metrics.getRejected(JwtMetrics.RejectionReason.EXCEPTION));
+    }
+
+    @Test
+    public void test_validateAsync_rejected() {
+        JwtService service = new TestClass() {
+            @Override
+            protected Executor getValidationExecutor() {
+                return r -> {
+                    throw new RejectedExecutionException();
+                };
+            }
+
+            @Override
+            protected CompletionStage<byte[]> getValidateSecretAsync(JwtHeader header, byte[] defaultSecret) {
+                return CompletableFuture.completedFuture(this.getValidateSecret(header, defaultSecret));
+            }
+        };
+
+        String encoded = service.signAndEncode(
+                service.issue(Algorithms.HS256, System.currentTimeMillis() + 100000, "junit", "junit-ca", "junit-app"));
+        Assertions.assertEquals("junit", service.validateAsync(encoded).toCompletableFuture().join().getSubject());
+    }
+
+    @Test
+    public void test_validate_keyRing() {
+        byte[] key = "JWT-Secrets-Must-Be-At-Least-64-Characters-Long-To-Support-512-bit-HMACs".getBytes();
+        List<String> loads = new ArrayList<>();
+        KeyRing ring = new KeyRing((keyId, alg) -> {
+            loads.add(keyId);
+            return "k-1".equals(keyId) ? key : null;
+        }, 10, 60000, 0, 60000, null);
+        JwtService service = new TestClass() {
+            @Override
+            protected KeyRing getKeyRing() {
+                return ring;
+            }
+
+            @Override
+            protected byte[] getValidateSecret(JwtHeader header, byte[] defaultSecret) {
+                /* the ring replaces the fixed secret of the test class */
+                return this.getKeyRing().get(header.getKeyId(), header.getAlgorithm());
+            }
+        };
+
+        Jwt jwt = service.issue(Algorithms.HS256, System.currentTimeMillis() + 100000, "junit", "junit-ca",
+                "junit-app");
+        jwt.getHeader().setKeyId("k-1");
+        String encoded = service.signAndEncode(jwt);
+        jwt.getHeader().setKeyId("k-2");
+        String unknown = service.signAndEncode(jwt);
+
+        Assertions.assertEquals("junit", service.validate(encoded).getSubject());
+        Assertions.assertEquals("junit", service.validate(encoded).getSubject());
+        Assertions.assertEquals("junit", service.validateAsync(encoded).toCompletableFuture().join().getSubject());
+        Assertions.assertNull(service.validate(unknown));
+        Assertions.assertNull(service.validateAsync(unknown).toCompletableFuture().join());
+        Assertions.assertEquals(Arrays.asList("k-1", "k-2"), loads);
+    }
+
+    @Test
+    public void test_getValidateSecret_keyRing() {
+        KeyRing ring = new KeyRing((keyId, alg) -> new byte[] { 1 }, 10, 60000, 0, 60000, null);
+        JwtService service = new JwtService() {
+            @Override
+            public boolean isAlgorithmAllowed(Algorithm alg) {
+                return false;
+            }
+
+            @Override
+            public Set<String> getIssuers() {
+                return null;
+            }
+
+            @Override
+            public String getAudience() {
+                return null;
+            }
+
+            @Override
+            protected long now() {
+                return 0;
+            }
+
+            @Override
+            protected KeyRing getKeyRing() {
+                return ring;
+            }
+        };
+
+        byte[] secret = { 2 };
+        JwtHeader header = new JwtHeader();
+        header.setAlgorithm(Algorithms.HS256);
+        Assertions.assertSame(secret, service.getValidateSecret(header, secret));
+        Assertions.assertSame(secret, service.getValidateSecretAsync(header, secret).toCompletableFuture().join());
+        Assertions.assertSame(secret, service.getValidateSecret(null, secret));
+
+        header.setKeyId("k-1");
+        Assertions.assertArrayEquals(new byte[] { 1 }, service.getValidateSecret(header, secret));
+        Assertions.assertArrayEquals(new byte[] { 1 },
+                service.getValidateSecretAsync(header, secret).toCompletableFuture().join());
+        Assertions.assertEquals(1, ring.getLoads());
+
+        MaintenanceScheduler scheduler = Mockito.mock(MaintenanceScheduler.class);
+        service.registerMaintenance(scheduler);
+        Mockito.verify(scheduler).register(ring);
+    }
+
+    @Test
+    public void test_validate_macPool() {
+        MacPool pool = new MacPool();
+        JwtService pooled = new TestClass() {
+            @Override
+            protected MacPool getMacPool() {
+                return pool;
+            }
+        };
+        JwtService plain = new TestClass();
+
+        for (Algorithm alg : Algorithms.hmacAlgorithms()) {
+            String encoded = pooled.signAndEncode(
+                    pooled.issue(alg, System.currentTimeMillis() + 100000, "junit", "junit-ca", "junit-app"));
+            Assertions.assertEquals("junit", pooled.validate(encoded).getSubject());
+            Assertions.assertEquals("junit", plain.validate(encoded).getSubject());
+            Assertions.assertNull(pooled.validate(JwtServiceTest.tamper(encoded)));
+
+            encoded = plain.signAndEncode(
+                    plain.issue(alg, System.currentTimeMillis() + 100000, "junit", "junit-ca", "junit-app"));
+            Assertions.assertEquals("junit", pooled.validate(encoded).getSubject());
+
+            // other encodings of a revoked signature
+            pooled.invalidate(pooled.validate(encoded));
+            Assertions.assertNull(pooled.validate(encoded));
+            Assertions.assertNull(pooled.validate(encoded + "="));
+            Assertions.assertNull(pooled.validate(MacPoolTest.unusedBit(encoded)));
+        }
+        Assertions.assertEquals(3, pool.size());
+    }
+
+    @Test
+    public void test_tokenIdGenerator() {
+        AtomicInteger ids = new AtomicInteger();
+        JwtService service = new TestClass() {
+            @Override
+            protected TokenIdGenerator getTokenIdGenerator() {
+                return () -> "id-" + ids.incrementAndGet();
+            }
+        };
+
+        Jwt jwt = service.issue(Algorithms.HS256, System.currentTimeMillis() + 100000, "junit", "junit-ca",
+                "junit-app");
+        Assertions.assertEquals("id-1", jwt.getTokenId());
+        Mockito.when(((TestClass) service).getClock().instant()).thenReturn(Instant.now());
+        service.refresh(jwt, 100000, 1000);
+        Assertions.assertEquals("id-2", jwt.getTokenId());
+
+        Assertions.assertNotNull(UUID.fromString(new TestClass().issue(Algorithms.HS256,
+                System.currentTimeMillis() + 100000, "junit", "junit-ca", "junit-app").getTokenId()));
+    }
+
+    @Test
+    public void test_timeSource() {
+        long past = System.currentTimeMillis() - 3600000;
+        JwtService service = new TestClass() {
+            @Override
+            protected TimeSource getTimeSource() {
+                return () -> past;
+            }
+        };
+
+        Jwt jwt = service.issue(Algorithms.HS256, past + 100000, "junit", "junit-ca", "junit-app");
+        Assertions.assertEquals(past / 1000, jwt.getIssuedAt());
+        String encoded = service.signAndEncode(jwt);
+
+        // expired for the system clock only
+        Assertions.assertNotNull(service.validate(encoded));
+        Assertions.assertNull(new TestClass().validate(encoded));
+
+        Assertions.assertEquals(past, service.getRevocationList().getTimeSource().millis());
+        Assertions.assertNotEquals(past, new TestClass().getRevocationList().getTimeSource().millis());
+
+        jwt.getPayload().setIssuedAtMillis(past);
+        service.refresh(jwt, 100000, 1000);
+        Assertions.assertEquals((past + 1000) / 1000, jwt.getExpiration());
+    }
+
+    @Test
+    public void test_metrics() {
+        CountingJwtMetrics metrics = new CountingJwtMetrics(true);
+        TestClass service = new TestClass() {
+            @Override
+            protected JwtMetrics getMetrics() {
+                return metrics;
+            }
+
+            @Override
+            protected byte[] getValidateSecret(JwtHeader header, byte[] defaultSecret) {
+                String keyId = header == null ? null : header.getKeyId();
+                if ("boom".equals(keyId)) {
+                    throw new IllegalStateException("boom");
+                }
+                return "none".equals(keyId) ? null : super.getValidateSecret(header, defaultSecret);
+            }
+        };
+
+        Jwt jwt = service.issue(Algorithms.HS256, System.currentTimeMillis() + 100000, "junit", "junit-ca",
+                "junit-app");
+        String valid = service.signAndEncode(jwt);
+        Assertions.assertNotNull(service.validate(valid));
+        Assertions.assertEquals(1, metrics.getAccepted());
+
+        // one rejection of each kind
+        Assertions.assertNull(service.validate("junk"));
+        Assertions.assertNull(service.validate(valid, "other-app"));
+        Assertions.assertNull(service.validate(valid.substring(0, valid.lastIndexOf('.') + 1) + "c2ln"));
+
+        Jwt wrongType = new Jwt();
+        wrongType.getHeader().put(JwtHeader.Keys.TokenType, "junk");
+        wrongType.setSignature("sig");
+        Assertions.assertNull(service.validate(Util.toJson(wrongType)));
+
+        Jwt wrongAlgorithm = new Jwt();
+        wrongAlgorithm.getHeader().put(JwtHeader.Keys.TokenType, "JWT");
+        wrongAlgorithm.getHeader().setAlgorithm(Algorithms.ES256);
+        wrongAlgorithm.setSignature("sig");
+        Assertions.assertNull(service.validate(Util.toJson(wrongAlgorithm)));
+
+        Jwt noSecret = service.issue(Algorithms.HS256, System.currentTimeMillis() + 100000, "junit", "junit-ca",
+                "junit-app");
+        noSecret.getHeader().setKeyId("none");
+        noSecret.setSignature("sig");
+        Assertions.assertNull(service.validate(Util.toJson(noSecret)));
+        noSecret.getHeader().setKeyId("boom");
+        Assertions.assertNull(service.validate(Util.toJson(noSecret)));
+
+        String header = valid.substring(0, valid.indexOf('.'));
+        byte[] garbage = (header + ".bm90LWpzb24").getBytes();
+        Assertions.assertNull(service.validate(Util.toJson(garbage,
+                Algorithms.HS256.getSignature(service.getValidateSecret(null, null), garbage))));
+
+        service.invalidate(jwt);
+        Assertions.assertNull(service.validate(valid));
+
+        for (JwtMetrics.RejectionReason reason : JwtMetrics.RejectionReason.values()) {
+            Assertions.assertEquals(reason == JwtMetrics.RejectionReason.PARSE ? 2 : 1, metrics.getRejected(reason),
+                    reason.name());
+        }
+        Assertions.assertEquals(9, metrics.getRejected());
+        Assertions.assertEquals(1, metrics.getAccepted());
+
+        Assertions.assertEquals(10, metrics.getCount(JwtMetrics.Stage.PARSE));
+        Assertions.assertEquals(8, metrics.getCount(JwtMetrics.Stage.HEADER));
+        Assertions.assertEquals(6, metrics.getCount(JwtMetrics.Stage.KEY_LOOKUP));
+        Assertions.assertEquals(4, metrics.getCount(JwtMetrics.Stage.VERIFY));
+        Assertions.assertEquals(3, metrics.getCount(JwtMetrics.Stage.PAYLOAD));
+        Assertions.assertEquals(2, metrics.getCount(JwtMetrics.Stage.CLAIMS));
+    }
+
+    @Test
+    public void test_check() {
+        List<Throwable> errors = new ArrayList<>();
+        JwtService service = new TestClass() {
+            @Override
+            protected void log(String message, Throwable ex) {
+                if (ex != null) {
+                    errors.add(ex);
+                }
+            }
+        };
+
+        Jwt jwt = service.issue(Algorithms.HS256, System.currentTimeMillis() + 100000, "junit", "junit-ca",
+                "junit-app");
+        String encoded = service.signAndEncode(jwt);
+        ValidationResult result = service.check(encoded);
+        Assertions.assertTrue(result.isValid());
+        Assertions.assertNull(result.getReason());
+        Assertions.assertEquals("junit", result.getToken().getSubject());
+        Assertions.assertEquals(JwtMetrics.RejectionReason.CLAIMS, service.check(encoded, "other").getReason());
+        Assertions.assertEquals(JwtMetrics.RejectionReason.SIGNATURE,
+                service.check(JwtServiceTest.tamper(encoded)).getReason());
+
+        // malformed input is rejected without exceptions
+        String payload = encoded.substring(encoded.indexOf('.') + 1, encoded.lastIndexOf('.'));
+        for (String malformed : new String[] { null, "", "junk", "a..b", "a.b.c.d", "a b.c.d",
+                "Q.e30.sig", "a-_b.e30.sig", Util.toBase64("junk") + ".e30.sig",
+                Util.toBase64("{\"typ\":") + "." + payload + ".sig", Util.toBase64("[1]") + ".e30.sig" }) {
+            result = service.check(malformed);
+            Assertions.assertFalse(result.isValid(), malformed);
+            Assertions.assertNull(result.getToken());
+            Assertions.assertSame(ValidationResult.rejected(JwtMetrics.RejectionReason.PARSE), result, malformed);
+            Assertions.assertNull(service.validate(malformed));
+        }
+        Assertions.assertEquals(JwtMetrics.RejectionReason.TYPE,
+                service.check(Util.toBase64("{}") + "." + payload + ".sig").getReason());
+        Assertions.assertTrue(errors.isEmpty(), errors.toString());
+
+        // a signed payload that is not JSON
+        String header = encoded.substring(0, encoded.indexOf('.'));
+        byte[] garbage = (header + "." + Util.toBase64("junk")).getBytes();
+        Assertions.assertEquals(JwtMetrics.RejectionReason.PARSE, service.check(Util.toJson(garbage,
+                Algorithms.HS256.getSignature(((TestClass) service).getValidateSecret(null, null), garbage)))
+                .getReason());
+        Assertions.assertTrue(errors.isEmpty(), errors.toString());
+
+        service.invalidate(jwt);
+        Assertions.assertEquals(JwtMetrics.RejectionReason.REVOKED, service.check(encoded).getReason());
+    }
+
+    @Test
+    public void test_claimPreCheck() {
+        CountingJwtMetrics metrics = new CountingJwtMetrics(true);
+        long[] now = { System.currentTimeMillis() };
+        TestClass service = new TestClass() {
+            @Override
+            protected JwtMetrics getMetrics() {
+                return metrics;
+            }
+
+            @Override
+            protected TimeSource getTimeSource() {
+                return () -> now[0];
+            }
+
+            @Override
+            protected boolean isClaimPreCheck() {
+                return true;
+            }
+
+            @Override
+            protected boolean isLazyPayload() {
+                return true;
+            }
+        };
+        Assertions.assertFalse(new TestClass().isClaimPreCheck());
+
+        Jwt jwt = service.issue(Algorithms.HS256, now[0] + 100000, "junit", "junit-ca", "junit-app");
+        jwt.getPayload().setDisplayName("JUnit");
+        String encoded = service.signAndEncode(jwt);
+        Jwt large = service.issue(Algorithms.HS256, now[0] + 100000, "junit", "junit-ca", "junit-app");
+        large.getPayload().put("padding", new String(new char[8192]).replace('\0', 'x'));
+        String largeEncoded = service.signAndEncode(large);
+
+        // valid tokens are verified and the scanned payload is reused
+        ValidationResult result = service.check(encoded);
+        Assertions.assertTrue(result.isValid());
+        Assertions.assertEquals("JUnit", result.getToken().getPayload().getDisplayName());
+        Assertions.assertEquals(1, metrics.getCount(JwtMetrics.Stage.PRE_CHECK));
+        Assertions.assertEquals(1, metrics.getCount(JwtMetrics.Stage.VERIFY));
+
+        // claims that fail anyway are rejected without verifying the signature
+        Assertions.assertEquals(JwtMetrics.RejectionReason.CLAIMS, service.check(encoded, "other-app").getReason());
+        now[0] += 200000;
+        Assertions.assertEquals(JwtMetrics.RejectionReason.CLAIMS, service.check(encoded).getReason());
+        Assertions.assertEquals(3, metrics.getCount(JwtMetrics.Stage.PRE_CHECK));
+        Assertions.assertEquals(1, metrics.getCount(JwtMetrics.Stage.VERIFY));
+        Assertions.assertEquals(2, metrics.getRejected(JwtMetrics.RejectionReason.CLAIMS));
+
+        // too large to be scanned up front
+        Assertions.assertEquals(JwtMetrics.RejectionReason.CLAIMS, service.check(largeEncoded).getReason());
+        Assertions.assertEquals(3, metrics.getCount(JwtMetrics.Stage.PRE_CHECK));
+        Assertions.assertEquals(2, metrics.getCount(JwtMetrics.Stage.VERIFY));
+
+        // plausible claims never replace the signature
+        now[0] -= 200000;
+        Assertions.assertEquals(JwtMetrics.RejectionReason.SIGNATURE,
+                service.check(JwtServiceTest.tamper(encoded)).getReason());
+        Assertions.assertEquals(3, metrics.getCount(JwtMetrics.Stage.VERIFY));
+    }
+
+    @Test
+    public void test_metrics_defaults() {
+        TestClass service = new TestClass();
+        Assertions.assertSame(JwtMetrics.NOOP, service.getMetrics());
+        Assertions.assertFalse(JwtMetrics.NOOP.isTimingEnabled());
+        Assertions.assertFalse(service.isLogEnabled());
+    }
+
+    @Test
+    public void test_log_messages() {
+        List<String> messages = new ArrayList<>();
+        JwtService service = new TestClass() {
+            @Override
+            protected void log(String message, Throwable ex) {
+                messages.add(message);
+            }
+
+            @Override
+            protected boolean isLogEnabled() {
+                return true;
+            }
+        };
+
+        Jwt jwt = new Jwt();
+        jwt.getHeader().put(JwtHeader.Keys.TokenType, "JWT");
+        jwt.getHeader().setAlgorithm(Algorithms.ES256);
+        jwt.setSignature("sig");
+        Assertions.assertNull(service.validate(Util.toJson(jwt)));
+        Assertions.assertEquals(Arrays.asList(Algorithms.ES256 + " algorithm is not allowed"), messages);
+
+        // messages are neither built nor logged when logging is disabled
+        messages.clear();
+        service = new TestClass() {
+            @Override
+            protected void log(String message, Throwable ex) {
+                messages.add(message);
+            }
+        };
+        Assertions.assertNull(service.validate(Util.toJson(jwt)));
+        Assertions.assertTrue(messages.isEmpty());
+
+        // other messages are still logged
+        Assertions.assertNull(service.validate(JwtServiceTest.tamper(service.signAndEncode(service.issue(
+                Algorithms.HS256, System.currentTimeMillis() + 100000, "junit", "junit-ca", "junit-app")))));
+        Assertions.assertEquals(1, messages.size());
+        Assertions.assertNotNull(messages.get(0));
+    }
+
     @Test
     public void test_validate_invalidToken() {
         JwtService service = new TestClass();
@@ -565,6 +1400,7 @@ public class JwtServiceTest extends AbstractMockTest {
     }
 
     @Test
+    @SuppressWarnings("deprecation")
     public void test_parseToken() {
         JwtService service = new TestClass();
 
@@ -601,7 +1437,8 @@ public class JwtServiceTest extends AbstractMockTest {
     public void test_refresh() {
         TestClass service = new TestClass();
 
-        Mockito.when(service.getClock().instant()).thenReturn(Instant.now());
+        Instant now = Instant.now();
+        Mockito.when(service.getClock().instant()).thenReturn(now);
 
         final Jwt oldToken = new Jwt();
         oldToken.getPayload().setIssuedAtMillis(System.currentTimeMillis());
@@ -616,6 +1453,8 @@ public class JwtServiceTest extends AbstractMockTest {
         Assertions.assertNotEquals(oldId, newToken.getTokenId());
         Assertions.assertNotEquals(oldExpiration, newToken.getExpiration());
         Assertions.assertEquals(oldIssuedAt, newToken.getIssuedAt());
+        // overridden now() controls refresh
+        Assertions.assertEquals((now.toEpochMilli() + 1000) / 1000, newToken.getExpiration());
     }
 
     @Test
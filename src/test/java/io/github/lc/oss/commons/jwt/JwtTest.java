@@ -4,6 +4,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.junit.jupiter.api.Assertions;
@@ -305,6 +306,28 @@ public class JwtTest extends AbstractMockTest {
         Assertions.assertTrue(result);
     }
 
+    @Test
+    public void test_validate_explicitTime() {
+        long now = 1600000000000L;
+        Jwt jwt = new Jwt();
+        jwt.getHeader().put(JwtHeader.Keys.TokenType, "JWT");
+        jwt.getHeader().setAlgorithm(Algorithms.HS256);
+        jwt.setExpirationMillis(now + 10000);
+        jwt.getPayload().setNotBeforeMillis(now);
+        jwt.getPayload().setIssuedAtMillis(now);
+        jwt.getPayload().setTokenId(UUID.randomUUID().toString());
+        jwt.getPayload().setSubject("junit");
+        jwt.getPayload().setIssuer("is-a");
+        jwt.getPayload().setAudience("audience");
+
+        Set<String> issuers = new HashSet<>(Arrays.asList("is-a"));
+        Assertions.assertTrue(jwt.validate("audience", issuers, now));
+        Assertions.assertTrue(jwt.validate("audience", issuers, now - 5000));
+        Assertions.assertFalse(jwt.validate("audience", issuers, now - 6000));
+        Assertions.assertFalse(jwt.validate("audience", issuers, now + 10000));
+        Assertions.assertFalse(jwt.validate("audience", issuers));
+    }
+
     @Test
     public void test_validate_valid_clockSkew() {
         Jwt jwt = new Jwt();
@@ -0,0 +1,459 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.signing.Algorithm;
+import io.github.lc.oss.commons.signing.Algorithms;
+import io.github.lc.oss.commons.testing.AbstractMockTest;
+
+public class KeyRingTest extends AbstractMockTest {
+    private static class TestSource implements KeyRing.KeySource {
+        private final Map<String, byte[]> keys = new HashMap<>();
+        private final List<String> loads = new ArrayList<>();
+        private RuntimeException error;
+
+        @Override
+        public synchronized byte[] load(String keyId, Algorithm algorithm) {
+            this.loads.add(keyId + "/" + algorithm.getId());
+            if (this.error != null) {
+                throw this.error;
+            }
+            return this.keys.get(keyId);
+        }
+    }
+
+    private static class TestRing extends KeyRing {
+        private long now = 1000;
+
+        public TestRing(KeySource source, int maxSize, long timeToLive, long refreshAhead, long negativeTimeToLive,
+                Executor executor) {
+            super(source, maxSize, timeToLive, refreshAhead, negativeTimeToLive, executor);
+        }
+
+        public TestRing(KeySource source, int maxSize, int maxUnknown, int maxConcurrentLoads, long timeToLive,
+                long negativeTimeToLive, Executor executor) {
+            super(source, maxSize, maxUnknown, maxConcurrentLoads, timeToLive, 0, negativeTimeToLive, executor);
+        }
+
+        @Override
+        protected long now() {
+            return this.now;
+        }
+    }
+
+    @Test
+    public void test_constructor_invalid() {
+        TestSource source = new TestSource();
+        this.assertInvalid("Source is required", () -> new KeyRing(null, 1000));
+        this.assertInvalid("Max size must be positive number but was 0",
+                () -> new KeyRing(source, 0, 1000, 0, 1000, null));
+        this.assertInvalid("Max unknown must be positive number but was 0",
+                () -> new KeyRing(source, 1, 0, 1, 1000, 0, 1000, null));
+        this.assertInvalid("Max concurrent loads must be positive number but was 0",
+                () -> new KeyRing(source, 1, 1, 0, 1000, 0, 1000, null));
+        this.assertInvalid("Time to live must be positive number but was 0",
+                () -> new KeyRing(source, 1, 0, 0, 1000, null));
+        this.assertInvalid("Refresh ahead must be between 0 and time to live but was -1",
+                () -> new KeyRing(source, 1, 1000, -1, 1000, null));
+        this.assertInvalid("Refresh ahead must be between 0 and time to live but was 1000",
+                () -> new KeyRing(source, 1, 1000, 1000, 1000, null));
+        this.assertInvalid("Negative time to live must be positive number but was 0",
+                () -> new KeyRing(source, 1, 1000, 0, 0, null));
+
+        KeyRing ring = new KeyRing(source, 1000);
+        Assertions.assertEquals(0, ring.size());
+    }
+
+    private void assertInvalid(String message, Runnable r) {
+        try {
+            r.run();
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals(message, ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_get() {
+        TestSource source = new TestSource();
+        source.keys.put("a", new byte[] { 1 });
+        TestRing ring = new TestRing(source, 10, 1000, 0, 100, null);
+
+        Assertions.assertNull(ring.get(null, Algorithms.HS256));
+        Assertions.assertNull(ring.get("a", null));
+        Assertions.assertEquals(0, source.loads.size());
+
+        Assertions.assertArrayEquals(new byte[] { 1 }, ring.get("a", Algorithms.HS256));
+        Assertions.assertSame(ring.get("a", Algorithms.HS256), ring.get("a", Algorithms.HS256));
+        Assertions.assertArrayEquals(new byte[] { 1 }, ring.get("a", Algorithms.HS512));
+        Assertions.assertEquals(2, source.loads.size());
+        Assertions.assertEquals(2, ring.getHits());
+        Assertions.assertEquals(2, ring.getMisses());
+        Assertions.assertEquals(2, ring.getLoads());
+        Assertions.assertEquals(2, ring.size());
+
+        // expired
+        ring.now += 1000;
+        source.keys.put("a", new byte[] { 2 });
+        Assertions.assertArrayEquals(new byte[] { 2 }, ring.get("a", Algorithms.HS256));
+        Assertions.assertEquals(3, source.loads.size());
+
+        ring.invalidate("a");
+        Assertions.assertEquals(0, ring.size());
+        Assertions.assertArrayEquals(new byte[] { 2 }, ring.get("a", Algorithms.HS256));
+        ring.clear();
+        Assertions.assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void test_get_unknown() {
+        TestSource source = new TestSource();
+        TestRing ring = new TestRing(source, 10, 1000, 0, 100, null);
+
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertNull(ring.get("unknown", Algorithms.HS256));
+        }
+        Assertions.assertEquals(1, source.loads.size());
+
+        // remembered for the negative time to live only
+        ring.now += 100;
+        source.keys.put("unknown", new byte[] { 1 });
+        Assertions.assertArrayEquals(new byte[] { 1 }, ring.get("unknown", Algorithms.HS256));
+        Assertions.assertEquals(2, source.loads.size());
+
+        source.error = new RuntimeException("Boom!");
+        Assertions.assertNull(ring.get("other", Algorithms.HS256));
+        Assertions.assertNull(ring.get("other", Algorithms.HS256));
+        Assertions.assertEquals(3, source.loads.size());
+        Assertions.assertEquals(1, ring.getFailures());
+    }
+
+    @Test
+    public void test_get_coalesced() throws InterruptedException {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TestSource source = new TestSource() {
+            @Override
+            public byte[] load(String keyId, Algorithm algorithm) {
+                loading.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException(ex);
+                }
+                return new byte[] { 1 };
+            }
+        };
+        KeyRing ring = new KeyRing(source, 10, 1000, 0, 100, null);
+
+        List<byte[]> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread t = new Thread(() -> {
+                byte[] key = ring.get("a", Algorithms.HS256);
+                synchronized (results) {
+                    results.add(key);
+                }
+            });
+            threads.add(t);
+            t.start();
+            loading.await(10, TimeUnit.SECONDS);
+        }
+        this.waitUntil(() -> ring.getHits() + ring.getMisses() == 4);
+        release.countDown();
+        for (Thread t : threads) {
+            t.join(10000);
+        }
+
+        Assertions.assertEquals(4, results.size());
+        for (byte[] key : results) {
+            Assertions.assertArrayEquals(new byte[] { 1 }, key);
+        }
+        Assertions.assertEquals(1, ring.getLoads());
+    }
+
+    @Test
+    public void test_refreshAhead() {
+        TestSource source = new TestSource();
+        source.keys.put("a", new byte[] { 1 });
+        TestRing ring = new TestRing(source, 10, 1000, 200, 50, null);
+
+        Assertions.assertArrayEquals(new byte[] { 1 }, ring.get("a", Algorithms.HS256));
+        ring.now += 799;
+        Assertions.assertArrayEquals(new byte[] { 1 }, ring.get("a", Algorithms.HS256));
+        Assertions.assertEquals(1, ring.getLoads());
+
+        // current key is served while the refresh runs
+        ring.now += 1;
+        source.keys.put("a", new byte[] { 2 });
+        Assertions.assertArrayEquals(new byte[] { 1 }, ring.get("a", Algorithms.HS256));
+        Assertions.assertEquals(2, ring.getLoads());
+        Assertions.assertArrayEquals(new byte[] { 2 }, ring.get("a", Algorithms.HS256));
+
+        // failed refresh keeps the key and retries later
+        ring.now += 800;
+        source.error = new RuntimeException("Boom!");
+        Assertions.assertArrayEquals(new byte[] { 2 }, ring.get("a", Algorithms.HS256));
+        Assertions.assertArrayEquals(new byte[] { 2 }, ring.get("a", Algorithms.HS256));
+        Assertions.assertEquals(3, ring.getLoads());
+        ring.now += 50;
+        Assertions.assertArrayEquals(new byte[] { 2 }, ring.get("a", Algorithms.HS256));
+        Assertions.assertEquals(4, ring.getLoads());
+
+        // withdrawn key is removed
+        source.error = null;
+        source.keys.remove("a");
+        ring.now += 50;
+        Assertions.assertArrayEquals(new byte[] { 2 }, ring.get("a", Algorithms.HS256));
+        Assertions.assertNull(ring.get("a", Algorithms.HS256));
+    }
+
+    @Test
+    public void test_maxSize() {
+        TestSource source = new TestSource();
+        source.keys.put("a", new byte[] { 1 });
+        source.keys.put("b", new byte[] { 2 });
+        source.keys.put("c", new byte[] { 3 });
+        TestRing ring = new TestRing(source, 2, 1000, 0, 100, null);
+
+        // unknown keys do not take up room
+        Assertions.assertNull(ring.get("x", Algorithms.HS256));
+        Assertions.assertNull(ring.get("y", Algorithms.HS256));
+        Assertions.assertEquals(0, ring.size());
+
+        Assertions.assertArrayEquals(new byte[] { 1 }, ring.get("a", Algorithms.HS256));
+        Assertions.assertArrayEquals(new byte[] { 2 }, ring.get("b", Algorithms.HS256));
+        Assertions.assertEquals(2, ring.size());
+
+        // oldest key is evicted
+        Assertions.assertArrayEquals(new byte[] { 3 }, ring.get("c", Algorithms.HS256));
+        Assertions.assertEquals(2, ring.size());
+        Assertions.assertEquals(1, ring.getEvictions());
+        Assertions.assertArrayEquals(new byte[] { 2 }, ring.get("b", Algorithms.HS256));
+        Assertions.assertEquals(5, source.loads.size());
+        Assertions.assertArrayEquals(new byte[] { 1 }, ring.get("a", Algorithms.HS256));
+        Assertions.assertEquals(6, source.loads.size());
+        Assertions.assertEquals(2, ring.getEvictions());
+
+        // expired keys are removed without counting as evictions
+        ring.now += 1000;
+        Assertions.assertArrayEquals(new byte[] { 2 }, ring.get("b", Algorithms.HS256));
+        Assertions.assertEquals(2, ring.getEvictions());
+
+        ring.now += 1000;
+        Assertions.assertFalse(ring.maintain(0));
+        Assertions.assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void test_replacedEntries() {
+        TestSource source = new TestSource();
+        source.keys.put("a", new byte[] { 1 });
+        TestRing ring = new TestRing(source, 2, 1000, 0, 100, null);
+
+        // every expiration queues a new entry, stale ones are dropped along the way
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertArrayEquals(new byte[] { 1 }, ring.get("a", Algorithms.HS256));
+            ring.now += 1000;
+        }
+        Assertions.assertTrue(((Collection<?>) this.getField("order", ring)).size() <= 4);
+        Assertions.assertTrue(((AtomicInteger) this.getField("queued", ring)).get() <= 4);
+
+        ring.clean();
+        Assertions.assertEquals(0, ring.size());
+        Assertions.assertEquals(0, ((Collection<?>) this.getField("order", ring)).size());
+        Assertions.assertEquals(0, ((AtomicInteger) this.getField("queued", ring)).get());
+    }
+
+    @Test
+    public void test_timeSource() {
+        TestSource source = new TestSource();
+        source.keys.put("a", new byte[] { 1 });
+        KeyRing ring = new KeyRing(source, 10, 1000, 0, 100, null);
+        Assertions.assertSame(TimeSource.SYSTEM, ring.getTimeSource());
+        this.assertInvalid("Time source is required", () -> ring.setTimeSource(null));
+
+        long[] now = { 1000 };
+        ring.setTimeSource(() -> now[0]);
+        Assertions.assertArrayEquals(new byte[] { 1 }, ring.get("a", Algorithms.HS256));
+        now[0] += 999;
+        ring.clean();
+        Assertions.assertEquals(1, ring.size());
+        now[0] += 1;
+        ring.clean();
+        Assertions.assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void test_maintain() {
+        TestSource source = new TestSource() {
+            @Override
+            public synchronized byte[] load(String keyId, Algorithm algorithm) {
+                return new byte[] { 1 };
+            }
+        };
+        TestRing ring = new TestRing(source, 1000, 1000, 0, 100, null);
+        for (int i = 0; i < 600; i++) {
+            ring.get(Integer.toString(i), Algorithms.HS256);
+        }
+        ring.now += 500;
+        ring.get("valid", Algorithms.HS256);
+        ring.now += 500;
+
+        // deadline already passed, one chunk per call
+        Assertions.assertTrue(ring.maintain(System.nanoTime()));
+        Assertions.assertEquals(345, ring.size());
+        Assertions.assertTrue(ring.maintain(System.nanoTime()));
+        Assertions.assertEquals(89, ring.size());
+        Assertions.assertFalse(ring.maintain(System.nanoTime()));
+        Assertions.assertEquals(1, ring.size());
+
+        ring.get("expired", Algorithms.HS256);
+        ring.now += 1000;
+        Assertions.assertFalse(ring.maintain(System.nanoTime() + TimeUnit.SECONDS.toNanos(10)));
+        Assertions.assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void test_maxUnknown() {
+        TestSource source = new TestSource();
+        TestRing ring = new TestRing(source, 10, 1, 1, 1000, 100, null);
+
+        Assertions.assertNull(ring.get("x", Algorithms.HS256));
+        Assertions.assertNull(ring.get("x", Algorithms.HS256));
+        Assertions.assertEquals(1, source.loads.size());
+
+        // replaces x
+        Assertions.assertNull(ring.get("y", Algorithms.HS256));
+        Assertions.assertNull(ring.get("x", Algorithms.HS256));
+        Assertions.assertEquals(3, source.loads.size());
+
+        // invalidated unknown keys are loaded again
+        ring.invalidate("x");
+        source.keys.put("x", new byte[] { 1 });
+        Assertions.assertArrayEquals(new byte[] { 1 }, ring.get("x", Algorithms.HS256));
+        Assertions.assertEquals(4, source.loads.size());
+    }
+
+    @Test
+    public void test_maxConcurrentLoads() {
+        TestSource source = new TestSource();
+        source.keys.put("a", new byte[] { 1 });
+        source.keys.put("b", new byte[] { 2 });
+        List<Runnable> tasks = new ArrayList<>();
+        TestRing ring = new TestRing(source, 10, 10, 1, 1000, 100, tasks::add);
+
+        CompletionStage<byte[]> a = ring.getAsync("a", Algorithms.HS256);
+        // joins the running load
+        CompletionStage<byte[]> a2 = ring.getAsync("a", Algorithms.HS256);
+        // waits for the running load
+        CompletionStage<byte[]> b = ring.getAsync("b", Algorithms.HS256);
+        CompletionStage<byte[]> b2 = ring.getAsync("b", Algorithms.HS256);
+        Assertions.assertFalse(b.toCompletableFuture().isDone());
+        Assertions.assertEquals(0, ring.getThrottled());
+        Assertions.assertEquals(1, tasks.size());
+
+        tasks.remove(0).run();
+        Assertions.assertArrayEquals(new byte[] { 1 }, a.toCompletableFuture().join());
+        Assertions.assertArrayEquals(new byte[] { 1 }, a2.toCompletableFuture().join());
+        Assertions.assertFalse(b.toCompletableFuture().isDone());
+
+        Assertions.assertEquals(1, tasks.size());
+        tasks.remove(0).run();
+        Assertions.assertArrayEquals(new byte[] { 2 }, b.toCompletableFuture().join());
+        Assertions.assertArrayEquals(new byte[] { 2 }, b2.toCompletableFuture().join());
+        Assertions.assertEquals(2, ring.getLoads());
+        Assertions.assertEquals(0, ring.getThrottled());
+        Assertions.assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    public void test_maxConcurrentLoads_flood() {
+        TestSource source = new TestSource();
+        source.keys.put("valid", new byte[] { 1 });
+        List<Runnable> tasks = new ArrayList<>();
+        TestRing ring = new TestRing(source, 4, 10, 1, 1000, 100, tasks::add);
+
+        // unknown key ids occupy the only permit and the waiting loads
+        for (int i = 0; i < 5; i++) {
+            ring.getAsync("unknown-" + i, Algorithms.HS256);
+        }
+        Assertions.assertEquals(1, tasks.size());
+
+        // a valid key id arriving meanwhile waits for its load
+        tasks.remove(0).run();
+        CompletionStage<byte[]> valid = ring.getAsync("valid", Algorithms.HS256);
+        Assertions.assertFalse(valid.toCompletableFuture().isDone());
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+        Assertions.assertArrayEquals(new byte[] { 1 }, valid.toCompletableFuture().join());
+        Assertions.assertEquals(6, ring.getLoads());
+        Assertions.assertEquals(0, ring.getThrottled());
+    }
+
+    @Test
+    public void test_maxConcurrentLoads_waitingBound() {
+        TestSource source = new TestSource();
+        List<Runnable> tasks = new ArrayList<>();
+        TestRing ring = new TestRing(source, 2, 10, 1, 1000, 100, tasks::add);
+
+        ring.getAsync("a", Algorithms.HS256);
+        ring.getAsync("b", Algorithms.HS256);
+        ring.getAsync("c", Algorithms.HS256);
+        Assertions.assertEquals(0, ring.getThrottled());
+
+        // no more waiting loads than the ring holds keys
+        Assertions.assertNull(ring.getAsync("d", Algorithms.HS256).toCompletableFuture().join());
+        Assertions.assertEquals(1, ring.getThrottled());
+        Assertions.assertEquals(1, tasks.size());
+    }
+
+    @Test
+    public void test_getAsync() {
+        TestSource source = new TestSource();
+        source.keys.put("a", new byte[] { 1 });
+        List<Runnable> tasks = new ArrayList<>();
+        KeyRing ring = new KeyRing(source, 10, 1000, 0, 100, tasks::add);
+
+        Assertions.assertNull(ring.getAsync(null, Algorithms.HS256).toCompletableFuture().join());
+
+        CompletionStage<byte[]> first = ring.getAsync("a", Algorithms.HS256);
+        CompletionStage<byte[]> second = ring.getAsync("a", Algorithms.HS256);
+        Assertions.assertFalse(first.toCompletableFuture().isDone());
+        Assertions.assertEquals(1, tasks.size());
+        Assertions.assertEquals(0, ring.getLoads());
+
+        // callers can not complete the shared load
+        second.toCompletableFuture().complete(new byte[] { 9 });
+
+        tasks.remove(0).run();
+        Assertions.assertArrayEquals(new byte[] { 1 }, first.toCompletableFuture().join());
+        Assertions.assertArrayEquals(new byte[] { 1 }, ring.get("a", Algorithms.HS256));
+        Assertions.assertEquals(1, ring.getLoads());
+    }
+
+    @Test
+    public void test_getAsync_rejected() {
+        TestSource source = new TestSource();
+        source.keys.put("a", new byte[] { 1 });
+        KeyRing ring = new KeyRing(source, 10, 1000, 0, 100, r -> {
+            throw new RejectedExecutionException();
+        });
+
+        Assertions.assertArrayEquals(new byte[] { 1 }, ring.getAsync("a", Algorithms.HS256).toCompletableFuture().join());
+    }
+}
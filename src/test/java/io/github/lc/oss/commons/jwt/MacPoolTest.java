@@ -0,0 +1,175 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import io.github.lc.oss.commons.signing.Algorithm;
+import io.github.lc.oss.commons.signing.Algorithms;
+import io.github.lc.oss.commons.testing.AbstractMockTest;
+
+public class MacPoolTest extends AbstractMockTest {
+    private static final byte[] SECRET = "JWT-Secrets-Must-Be-At-Least-64-Characters-Long-To-Support-512-bit-HMACs"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+
+    /*
+     * Sets the lowest bit of the last character, for MAC lengths that are not a
+     * multiple of three this bit is unused and lenient decoders ignore it.
+     */
+    static String unusedBit(String encoded) {
+        int i = encoded.length() - 1;
+        char c = MacPoolTest.ALPHABET.charAt(MacPoolTest.ALPHABET.indexOf(encoded.charAt(i)) ^ 1);
+        return encoded.substring(0, i) + c;
+    }
+
+    @Test
+    public void test_constructor_invalid() {
+        try {
+            new MacPool(0, 1);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Max keys must be positive number but was 0", ex.getMessage());
+        }
+
+        try {
+            new MacPool(1, 0);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Max idle must be positive number but was 0", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_isSupported() {
+        MacPool pool = new MacPool();
+        Assertions.assertFalse(pool.isSupported(null));
+        for (Algorithm a : Algorithms.hmacAlgorithms()) {
+            Assertions.assertTrue(pool.isSupported(a));
+        }
+        for (Algorithm a : Algorithms.keyAlgorithms()) {
+            Assertions.assertFalse(pool.isSupported(a));
+        }
+
+        try {
+            pool.getSignature(Algorithms.RS256, MacPoolTest.SECRET, new byte[0]);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Unsupported algorithm " + Algorithms.RS256, ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_isSupported_differentEncoding() {
+        MacPool pool = new MacPool();
+        Algorithm padded = Mockito.mock(Algorithm.class);
+        Mockito.when(padded.getId()).thenReturn(Algorithms.HS256.getId());
+        Mockito.when(padded.getSignature(Mockito.any(byte[].class), Mockito.any(byte[].class)))
+                .thenAnswer(i -> Base64.getEncoder().encodeToString(
+                        Base64.getUrlDecoder().decode(Algorithms.HS256.getSignature(
+                                (byte[]) i.getArgument(0), (byte[]) i.getArgument(1)))));
+        Assertions.assertFalse(pool.isSupported(padded));
+
+        Algorithm failing = Mockito.mock(Algorithm.class);
+        Mockito.when(failing.getId()).thenReturn(Algorithms.HS256.getId());
+        Mockito.when(failing.getSignature(Mockito.any(byte[].class), Mockito.any(byte[].class)))
+                .thenThrow(new RuntimeException("Boom!"));
+        Assertions.assertFalse(pool.isSupported(failing));
+
+        Assertions.assertTrue(pool.isSupported(Algorithms.HS256));
+        Assertions.assertEquals(0, pool.getCreated());
+    }
+
+    @Test
+    public void test_matchesAlgorithm() {
+        MacPool pool = new MacPool();
+        byte[] data = "header.payload".getBytes(StandardCharsets.US_ASCII);
+        for (Algorithm a : Algorithms.hmacAlgorithms()) {
+            String expected = a.getSignature(MacPoolTest.SECRET, data);
+            Assertions.assertEquals(expected, pool.getSignature(a, MacPoolTest.SECRET, data));
+            Assertions.assertTrue(pool.isSignatureValid(a, MacPoolTest.SECRET, data, expected));
+            Assertions.assertTrue(a.isSignatureValid(MacPoolTest.SECRET, data,
+                    pool.getSignature(a, MacPoolTest.SECRET, data)));
+
+            Assertions.assertFalse(pool.isSignatureValid(a, MacPoolTest.SECRET, data, null));
+            Assertions.assertFalse(pool.isSignatureValid(a, MacPoolTest.SECRET, data, "%%%"));
+            Assertions.assertFalse(pool.isSignatureValid(a, MacPoolTest.SECRET, data, expected.substring(1)));
+            Assertions.assertFalse(pool.isSignatureValid(a, MacPoolTest.SECRET, data, expected + "="));
+            Assertions.assertFalse(pool.isSignatureValid(a, MacPoolTest.SECRET, data, MacPoolTest.unusedBit(expected)));
+            Assertions.assertFalse(
+                    pool.isSignatureValid(a, MacPoolTest.SECRET, "header.other".getBytes(), expected));
+        }
+        Assertions.assertEquals(3, pool.size());
+    }
+
+    @Test
+    public void test_shortSecret() {
+        MacPool pool = new MacPool();
+        for (byte[] secret : new byte[][] { null, new byte[0], new byte[31] }) {
+            try {
+                pool.getSignature(Algorithms.HS256, secret, new byte[0]);
+                Assertions.fail("Expected exception");
+            } catch (IllegalArgumentException ex) {
+                Assertions.assertEquals("Secret must be at least 256 bits", ex.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void test_reuse() {
+        MacPool pool = new MacPool(2, 1);
+        byte[] data = "data".getBytes();
+        byte[] secret = MacPoolTest.SECRET.clone();
+        String signature = pool.getSignature(Algorithms.HS256, secret, data);
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals(signature, pool.getSignature(Algorithms.HS256, secret, data));
+        }
+        /* the prototype and a single pooled engine */
+        Assertions.assertEquals(2, pool.getCreated());
+
+        // secrets are copied
+        secret[0]++;
+        Assertions.assertNotEquals(signature, pool.getSignature(Algorithms.HS256, secret, data));
+        Assertions.assertEquals(signature, pool.getSignature(Algorithms.HS256, MacPoolTest.SECRET, data));
+        Assertions.assertEquals(2, pool.size());
+
+        // exceeding the max keys starts over
+        pool.getSignature(Algorithms.HS384, MacPoolTest.SECRET, data);
+        Assertions.assertEquals(1, pool.size());
+
+        pool.clear();
+        Assertions.assertEquals(0, pool.size());
+    }
+
+    @Test
+    public void test_concurrent() throws InterruptedException {
+        MacPool pool = new MacPool(4, 2);
+        AtomicInteger failures = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    byte[] data = ("data-" + i).getBytes();
+                    String expected = Algorithms.HS512.getSignature(MacPoolTest.SECRET, data);
+                    if (!expected.equals(pool.getSignature(Algorithms.HS512, MacPoolTest.SECRET, data))) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(30000);
+        }
+
+        Assertions.assertEquals(0, failures.get());
+        Assertions.assertEquals(1, pool.size());
+    }
+}
@@ -0,0 +1,178 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractMockTest;
+
+public class MaintenanceSchedulerTest extends AbstractMockTest {
+    @Test
+    public void test_constructor_invalid() {
+        try {
+            new MaintenanceScheduler(0, 1, null);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Cadence must be positive number but was 0", ex.getMessage());
+        }
+
+        try {
+            new MaintenanceScheduler(1, 0, null);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Slice must be positive number but was 0", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_defaults() {
+        try (MaintenanceScheduler scheduler = new MaintenanceScheduler()) {
+            Assertions.assertEquals(MaintenanceScheduler.DEFAULT_CADENCE_MILLIS, scheduler.getCadenceMillis());
+            Assertions.assertEquals(MaintenanceScheduler.DEFAULT_SLICE_MILLIS, scheduler.getSliceMillis());
+            Assertions.assertEquals(0, scheduler.getTaskCount());
+            Assertions.assertEquals(0, scheduler.getBacklog());
+
+            try {
+                scheduler.register(null);
+                Assertions.fail("Expected exception");
+            } catch (IllegalArgumentException ex) {
+                Assertions.assertEquals("Task is required", ex.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void test_run() {
+        final AtomicInteger calls = new AtomicInteger();
+        final Thread[] thread = new Thread[1];
+        MaintenanceTask task = deadline -> {
+            thread[0] = Thread.currentThread();
+            calls.incrementAndGet();
+            return false;
+        };
+
+        try (MaintenanceScheduler scheduler = new MaintenanceScheduler(10, 1, null)) {
+            scheduler.register(task);
+            scheduler.register(task);
+            Assertions.assertEquals(1, scheduler.getTaskCount());
+
+            this.waitUntil(() -> calls.get() >= 3);
+            Assertions.assertTrue(thread[0].isDaemon());
+            Assertions.assertEquals("jwt-maintenance", thread[0].getName());
+            Assertions.assertTrue(scheduler.getRuns() >= 3);
+            Assertions.assertTrue(scheduler.getSlices() >= 3);
+
+            scheduler.unregister(task);
+            Assertions.assertEquals(0, scheduler.getTaskCount());
+        }
+    }
+
+    @Test
+    public void test_backlog() {
+        final AtomicInteger remaining = new AtomicInteger(5);
+        MaintenanceTask task = deadline -> {
+            Assertions.assertTrue(deadline - System.nanoTime() <= 1000000);
+            return remaining.decrementAndGet() > 0;
+        };
+
+        /* the backlog is worked off long before the next regular run */
+        try (MaintenanceScheduler scheduler = new MaintenanceScheduler(1000, 1, r -> new Thread(r, "custom"))) {
+            scheduler.register(task);
+            scheduler.run();
+            Assertions.assertEquals(1, scheduler.getBacklog());
+
+            this.waitUntil(() -> remaining.get() <= 0, 900);
+            this.waitUntil(() -> scheduler.getBacklog() == 0, 900);
+        }
+    }
+
+    @Test
+    public void test_backlog_only() {
+        final AtomicInteger remaining = new AtomicInteger(5);
+        final AtomicInteger others = new AtomicInteger();
+        MaintenanceTask task = deadline -> remaining.decrementAndGet() > 0;
+        MaintenanceTask other = deadline -> {
+            others.incrementAndGet();
+            return false;
+        };
+
+        /* tasks without work left wait for the next regular run */
+        try (MaintenanceScheduler scheduler = new MaintenanceScheduler(1000, 1, null)) {
+            scheduler.register(task);
+            scheduler.register(other);
+            scheduler.run();
+            Assertions.assertEquals(1, scheduler.getBacklog());
+
+            this.waitUntil(() -> scheduler.getBacklog() == 0, 900);
+            Assertions.assertTrue(remaining.get() <= 0);
+            Assertions.assertEquals(1, others.get());
+        }
+    }
+
+    @Test
+    public void test_error() {
+        final AtomicInteger calls = new AtomicInteger();
+        try (MaintenanceScheduler scheduler = new MaintenanceScheduler(10, 1, null)) {
+            scheduler.register(deadline -> {
+                calls.incrementAndGet();
+                throw new StackOverflowError("boom");
+            });
+
+            this.waitUntil(() -> calls.get() >= 3);
+        }
+    }
+
+    @Test
+    public void test_failure() {
+        final AtomicInteger errors = new AtomicInteger();
+        final AtomicInteger calls = new AtomicInteger();
+        try (MaintenanceScheduler scheduler = new MaintenanceScheduler(10, 1, null) {
+            @Override
+            protected void log(String message, Throwable ex) {
+                Assertions.assertEquals("Error running maintenance task", message);
+                errors.incrementAndGet();
+            }
+        }) {
+            scheduler.register(deadline -> {
+                throw new IllegalStateException("boom");
+            });
+            scheduler.register(deadline -> {
+                calls.incrementAndGet();
+                return false;
+            });
+
+            this.waitUntil(() -> calls.get() >= 2);
+            Assertions.assertTrue(scheduler.getFailures() >= 2);
+            Assertions.assertTrue(errors.get() >= 2);
+            Assertions.assertEquals(0, scheduler.getBacklog());
+        }
+    }
+
+    @Test
+    public void test_close() {
+        MaintenanceScheduler scheduler = new MaintenanceScheduler(1, 1, null);
+        scheduler.close();
+        long runs = scheduler.getRuns();
+        // no longer reschedules
+        scheduler.run();
+        Assertions.assertEquals(runs + 1, scheduler.getRuns());
+    }
+
+    @Test
+    public void test_revocationListAndUserCache() {
+        final long now = System.currentTimeMillis();
+        JwtRevocationList list = new JwtRevocationList(new CompactRevocationStore(), 0, 0);
+        list.revoke("a", now - 1);
+        list.revoke("b", now + 100000);
+        DefaultUserCache<User> cache = new DefaultUserCache<>();
+        cache.add(() -> "user", now - 1);
+
+        try (MaintenanceScheduler scheduler = new MaintenanceScheduler(10, 1, null)) {
+            scheduler.register(list);
+            scheduler.register(cache);
+            this.waitUntil(() -> list.size() == 1);
+            Assertions.assertTrue(list.isRevoked("b"));
+        }
+    }
+}
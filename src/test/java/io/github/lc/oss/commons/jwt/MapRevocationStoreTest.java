@@ -0,0 +1,66 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MapRevocationStoreTest {
+    @Test
+    public void test_putContains() {
+        final long now = System.currentTimeMillis();
+        RevocationDigest a = RevocationDigest.of("a");
+        RevocationDigest b = RevocationDigest.of("b");
+
+        MapRevocationStore store = new MapRevocationStore(1000);
+        Assertions.assertTrue(store.put(a, now + 1000));
+        Assertions.assertFalse(store.put(a, now + 1000));
+        Assertions.assertTrue(store.put(b, now - 1000));
+        Assertions.assertEquals(2, store.size());
+        Assertions.assertTrue(store.contains(a));
+        Assertions.assertTrue(store.contains(b));
+
+        Map<RevocationDigest, Long> entries = new HashMap<>();
+        store.forEach((high, low, expiration) -> entries.put(new RevocationDigest(high, low), expiration));
+        Assertions.assertEquals(Long.valueOf(now + 1000), entries.get(a));
+        Assertions.assertEquals(Long.valueOf(now - 1000), entries.get(b));
+
+        store.clean(now);
+        Assertions.assertEquals(1, store.size());
+        Assertions.assertTrue(store.contains(a));
+        Assertions.assertFalse(store.contains(b));
+    }
+
+    @Test
+    public void test_clean_incremental() {
+        final long now = System.currentTimeMillis();
+        MapRevocationStore store = new MapRevocationStore(1000);
+        for (int i = 0; i < 10; i++) {
+            store.put(RevocationDigest.of("s-" + i), now - 5000);
+        }
+        store.put(RevocationDigest.of("live"), now + 5000);
+
+        // deadline already passed, one entry per call
+        int calls = 1;
+        while (store.clean(now, System.nanoTime())) {
+            calls++;
+        }
+        Assertions.assertEquals(10, calls);
+        Assertions.assertEquals(1, store.size());
+        Assertions.assertTrue(store.contains(RevocationDigest.of("live")));
+
+        Assertions.assertFalse(store.clean(now + 10000, System.nanoTime() + 1000000000L));
+        Assertions.assertEquals(0, store.size());
+    }
+
+    @Test
+    public void test_constructor_invalid() {
+        try {
+            new MapRevocationStore(0);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Bucket size must be positive number but was 0", ex.getMessage());
+        }
+    }
+}
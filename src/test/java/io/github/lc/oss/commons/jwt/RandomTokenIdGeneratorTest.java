@@ -0,0 +1,113 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractMockTest;
+
+public class RandomTokenIdGeneratorTest extends AbstractMockTest {
+    @Test
+    public void test_constructor_invalid() {
+        try {
+            new RandomTokenIdGenerator(null);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Format is required", ex.getMessage());
+        }
+
+        try {
+            new RandomTokenIdGenerator(RandomTokenIdGenerator.Format.UUID, 0);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Stripes must be positive number but was 0", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_uuid() {
+        RandomTokenIdGenerator generator = new RandomTokenIdGenerator();
+        Assertions.assertEquals(RandomTokenIdGenerator.Format.UUID, generator.getFormat());
+
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            String id = generator.next();
+            UUID uuid = UUID.fromString(id);
+            Assertions.assertEquals(id, uuid.toString());
+            Assertions.assertEquals(4, uuid.version());
+            Assertions.assertEquals(2, uuid.variant());
+            ids.add(id);
+        }
+        Assertions.assertEquals(1000, ids.size());
+    }
+
+    @Test
+    public void test_uuid_format() {
+        byte[] id = new byte[16];
+        for (int i = 0; i < id.length; i++) {
+            id[i] = (byte) (0xf0 | i);
+        }
+        Assertions.assertEquals("f0f1f2f3-f4f5-46f7-b8f9-fafbfcfdfeff", RandomTokenIdGenerator.uuid(id));
+    }
+
+    @Test
+    public void test_ulid() {
+        long[] now = { 1469918176385L };
+        RandomTokenIdGenerator generator = new RandomTokenIdGenerator(RandomTokenIdGenerator.Format.ULID, 3) {
+            @Override
+            protected long now() {
+                return now[0]++;
+            }
+        };
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String id = generator.next();
+            Assertions.assertTrue(id.matches("[0-9A-HJKMNP-TV-Z]{26}"), id);
+            ids.add(id);
+        }
+        /* the time comes first so ids sort by creation */
+        Assertions.assertTrue(ids.get(0).startsWith("01ARYZ6S41"));
+        List<String> sorted = new ArrayList<>(ids);
+        Collections.sort(sorted);
+        Assertions.assertEquals(ids, sorted);
+    }
+
+    @Test
+    public void test_ulid_format() {
+        byte[] id = new byte[16];
+        Assertions.assertEquals("00000000000000000000000000", RandomTokenIdGenerator.ulid(0, id));
+        Assertions.assertEquals("7ZZZZZZZZZ0000000000000000", RandomTokenIdGenerator.ulid(0xffffffffffffL, id));
+
+        for (int i = 0; i < id.length; i++) {
+            id[i] = (byte) 0xff;
+        }
+        Assertions.assertEquals("0000000000ZZZZZZZZZZZZZZZZ", RandomTokenIdGenerator.ulid(0, id));
+    }
+
+    @Test
+    public void test_concurrent() throws InterruptedException {
+        RandomTokenIdGenerator generator = new RandomTokenIdGenerator(RandomTokenIdGenerator.Format.UUID, 2);
+        Set<String> ids = Collections.synchronizedSet(new HashSet<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    ids.add(generator.next());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(30000);
+        }
+        Assertions.assertEquals(16000, ids.size());
+    }
+}
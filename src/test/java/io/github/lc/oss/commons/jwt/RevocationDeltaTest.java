@@ -0,0 +1,107 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RevocationDeltaTest {
+    @Test
+    public void test_constructor_invalid() {
+        try {
+            new RevocationDelta(null, 0, 1, new long[0]);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Source and entry triples are required", ex.getMessage());
+        }
+
+        try {
+            new RevocationDelta("a", 0, 1, new long[2]);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Source and entry triples are required", ex.getMessage());
+        }
+
+        try {
+            new RevocationDelta("\u00f6".repeat(32768), 0, 1, new long[0]);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Source must be at most 65535 bytes but was 65536", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_entries() {
+        long[] entries = { 1, 2, 3, 4, 5, 6 };
+        RevocationDelta delta = new RevocationDelta("node-1", 0, 7, entries);
+        entries[0] = 100;
+
+        Assertions.assertEquals("node-1", delta.getSource());
+        Assertions.assertEquals(0, delta.getEpoch());
+        Assertions.assertEquals(7, delta.getSequence());
+        Assertions.assertEquals(2, delta.size());
+        Assertions.assertEquals(1, delta.getHigh(0));
+        Assertions.assertEquals(2, delta.getLow(0));
+        Assertions.assertEquals(3, delta.getExpiration(0));
+        Assertions.assertEquals(4, delta.getHigh(1));
+        Assertions.assertEquals(5, delta.getLow(1));
+        Assertions.assertEquals(6, delta.getExpiration(1));
+    }
+
+    @Test
+    public void test_bytes() {
+        RevocationDelta delta = new RevocationDelta("n\u00f6de", -5, Long.MAX_VALUE, new long[] { -1, 2, 3 });
+        RevocationDelta copy = RevocationDelta.fromBytes(delta.toBytes());
+
+        Assertions.assertEquals("n\u00f6de", copy.getSource());
+        Assertions.assertEquals(-5, copy.getEpoch());
+        Assertions.assertEquals(Long.MAX_VALUE, copy.getSequence());
+        Assertions.assertEquals(1, copy.size());
+        Assertions.assertEquals(-1, copy.getHigh(0));
+        Assertions.assertEquals(2, copy.getLow(0));
+        Assertions.assertEquals(3, copy.getExpiration(0));
+
+        RevocationDelta empty = RevocationDelta.fromBytes(new RevocationDelta("", 0, 0, new long[0]).toBytes());
+        Assertions.assertEquals(0, empty.size());
+
+        String longest = "a".repeat(65535);
+        Assertions.assertEquals(longest,
+                RevocationDelta.fromBytes(new RevocationDelta(longest, 0, 0, new long[0]).toBytes()).getSource());
+    }
+
+    @Test
+    public void test_bytes_invalidCount() {
+        byte[] bytes = new RevocationDelta("a", 0, 1, new long[] { 1, 2, 3 }).toBytes();
+        /* version, source length, source, epoch and sequence */
+        int countOffset = 4 + 2 + 1 + 8 + 8;
+        for (int count : new int[] { -1, 2, Integer.MAX_VALUE }) {
+            ByteBuffer.wrap(bytes).putInt(countOffset, count);
+            try {
+                RevocationDelta.fromBytes(bytes);
+                Assertions.fail("Expected exception");
+            } catch (IllegalArgumentException ex) {
+                Assertions.assertEquals("Invalid revocation delta", ex.getMessage());
+                Assertions.assertEquals("Entry count does not match the data", ex.getCause().getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void test_bytes_invalid() {
+        try {
+            RevocationDelta.fromBytes(new byte[] { 0, 0, 0, 2 });
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Invalid revocation delta", ex.getMessage());
+        }
+
+        byte[] bytes = new RevocationDelta("a", 0, 1, new long[] { 1, 2, 3 }).toBytes();
+        try {
+            RevocationDelta.fromBytes(Arrays.copyOf(bytes, bytes.length - 1));
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Invalid revocation delta", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RevocationDigestTest {
+    @Test
+    public void test_of() {
+        RevocationDigest a = RevocationDigest.of("signature");
+        RevocationDigest b = RevocationDigest.of(new String("signature"));
+        Assertions.assertEquals(a, b);
+        Assertions.assertEquals(a.hashCode(), b.hashCode());
+        Assertions.assertEquals(a.toString(), b.toString());
+        Assertions.assertEquals(32, a.toString().length());
+
+        Assertions.assertNotEquals(a, RevocationDigest.of("signaturf"));
+        Assertions.assertNotEquals(a, RevocationDigest.of("signature="));
+        Assertions.assertNotEquals(a, null);
+        Assertions.assertNotEquals(a, "signature");
+        Assertions.assertEquals(a, a);
+    }
+
+    @Test
+    public void test_of_lengths() {
+        Set<RevocationDigest> digests = new HashSet<>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 400; i++) {
+            Assertions.assertTrue(digests.add(RevocationDigest.of(sb.toString())), "Collision at " + i);
+            sb.append('a');
+        }
+    }
+
+    @Test
+    public void test_stable() {
+        /* digests are persisted and exchanged, the value must never change */
+        RevocationDigest digest = RevocationDigest.of("abc");
+        Assertions.assertEquals(digest, new RevocationDigest(digest.getHigh(), digest.getLow()));
+        Assertions.assertEquals(RevocationDigest.of("abc").toString(), digest.toString());
+    }
+
+    @Test
+    public void test_zero() {
+        RevocationDigest digest = new RevocationDigest(0, 0);
+        Assertions.assertEquals(0, digest.getHigh());
+        Assertions.assertEquals(1, digest.getLow());
+        Assertions.assertEquals(new RevocationDigest(0, 1), digest);
+        Assertions.assertEquals("00000000000000000000000000000001", digest.toString());
+
+        digest = new RevocationDigest(0, 5);
+        Assertions.assertEquals(5, digest.getLow());
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractMockTest;
+
+public class RevocationFilterTest extends AbstractMockTest {
+    @Test
+    public void test_constructor_invalid() {
+        try {
+            new RevocationFilter(0, 0.01);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Expected insertions must be positive number but was 0", ex.getMessage());
+        }
+
+        try {
+            new RevocationFilter(1, 0);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("False positive rate must be between 0 and 1 but was 0.0", ex.getMessage());
+        }
+
+        try {
+            new RevocationFilter(1, 1);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("False positive rate must be between 0 and 1 but was 1.0", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_noFalseNegatives() {
+        RevocationFilter filter = new RevocationFilter(1000, 0.01);
+        Assertions.assertEquals(1000, filter.getExpectedInsertions());
+        Assertions.assertEquals(0, filter.getInsertions());
+
+        String[] signatures = new String[1000];
+        for (int i = 0; i < signatures.length; i++) {
+            signatures[i] = UUID.randomUUID().toString();
+            if (i == 0) {
+                Assertions.assertFalse(filter.mightContain(RevocationDigest.of(signatures[i])));
+            }
+            filter.add(RevocationDigest.of(signatures[i]));
+        }
+        Assertions.assertEquals(1000, filter.getInsertions());
+
+        for (String signature : signatures) {
+            Assertions.assertTrue(filter.mightContain(RevocationDigest.of(new String(signature))));
+        }
+    }
+
+    @Test
+    public void test_falsePositiveRate() {
+        RevocationFilter filter = new RevocationFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.add(RevocationDigest.of("revoked-" + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain(RevocationDigest.of("valid-" + i))) {
+                falsePositives++;
+            }
+        }
+        Assertions.assertTrue(falsePositives < 2000, "False positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,204 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class RevocationJournalTest {
+    @TempDir
+    Path directory;
+
+    private Map<RevocationDigest, Long> load(RevocationJournal journal, long now) {
+        Map<RevocationDigest, Long> entries = new HashMap<>();
+        journal.load((high, low, expiration) -> entries.put(new RevocationDigest(high, low), expiration), now);
+        return entries;
+    }
+
+    @Test
+    public void test_constructor_invalid() {
+        try {
+            new RevocationJournal(null);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Directory is required", ex.getMessage());
+        }
+
+        try {
+            new RevocationJournal(this.directory, 0, false);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Log capacity must be positive number but was 0", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_appendReplay() {
+        RevocationDigest a = RevocationDigest.of("a");
+        RevocationDigest b = RevocationDigest.of("b");
+
+        try (RevocationJournal journal = new RevocationJournal(this.directory, 8, true)) {
+            Assertions.assertEquals(this.directory, journal.getDirectory());
+            Assertions.assertEquals(8, journal.getLogCapacity());
+            Assertions.assertTrue(this.load(journal, 0).isEmpty());
+
+            Assertions.assertTrue(journal.append(a, 100));
+            Assertions.assertTrue(journal.append(b, 50));
+            Assertions.assertTrue(journal.append(b, 0));
+            Assertions.assertEquals(2, journal.getLogSize());
+        }
+
+        try (RevocationJournal journal = new RevocationJournal(this.directory, 8, false)) {
+            Assertions.assertEquals(2, journal.getLogSize());
+            Map<RevocationDigest, Long> entries = this.load(journal, 75);
+            Assertions.assertEquals(1, entries.size());
+            Assertions.assertEquals(Long.valueOf(100), entries.get(a));
+        }
+    }
+
+    @Test
+    public void test_full() {
+        try (RevocationJournal journal = new RevocationJournal(this.directory, 2, false)) {
+            Assertions.assertTrue(journal.append(RevocationDigest.of("a"), 100));
+            Assertions.assertTrue(journal.append(RevocationDigest.of("b"), 100));
+            Assertions.assertFalse(journal.hasOverflowed());
+            Assertions.assertFalse(journal.append(RevocationDigest.of("c"), 100));
+            Assertions.assertEquals(2, journal.getLogSize());
+            Assertions.assertTrue(journal.hasOverflowed());
+
+            journal.compact(new MapRevocationStore(1000), 0);
+            Assertions.assertFalse(journal.hasOverflowed());
+            Assertions.assertEquals(0, journal.getLogSize());
+        }
+    }
+
+    @Test
+    public void test_compact() {
+        CompactRevocationStore store = new CompactRevocationStore();
+        for (int i = 0; i < 100; i++) {
+            store.put(RevocationDigest.of("s-" + i), i + 1);
+        }
+
+        try (RevocationJournal journal = new RevocationJournal(this.directory, 4, false)) {
+            journal.append(RevocationDigest.of("s-1"), 2);
+            journal.compact(store, 50);
+            Assertions.assertEquals(0, journal.getLogSize());
+            Assertions.assertTrue(Files.exists(this.directory.resolve(RevocationJournal.SNAPSHOT_FILE)));
+
+            journal.append(RevocationDigest.of("t"), 1000);
+        }
+
+        try (RevocationJournal journal = new RevocationJournal(this.directory, 4, false)) {
+            Assertions.assertEquals(1, journal.getLogSize());
+            Map<RevocationDigest, Long> entries = this.load(journal, 0);
+            Assertions.assertEquals(51, entries.size());
+            Assertions.assertEquals(Long.valueOf(1000), entries.get(RevocationDigest.of("t")));
+            Assertions.assertEquals(Long.valueOf(100), entries.get(RevocationDigest.of("s-99")));
+            Assertions.assertNull(entries.get(RevocationDigest.of("s-48")));
+        }
+    }
+
+    @Test
+    public void test_compact_concurrentAppend() {
+        try (RevocationJournal journal = new RevocationJournal(this.directory, 4, false)) {
+            MapRevocationStore store = new MapRevocationStore(1000) {
+                @Override
+                public void forEach(EntryConsumer consumer) {
+                    super.forEach(consumer);
+                    /* another thread appends while the snapshot is written */
+                    RevocationDigest late = RevocationDigest.of("late");
+                    this.put(late, 300);
+                    try {
+                        Assertions.assertTrue(CompletableFuture.supplyAsync(() -> journal.append(late, 300)) //
+                                .get(5, TimeUnit.SECONDS));
+                    } catch (Exception ex) {
+                        Assertions.fail(ex);
+                    }
+                    /* a nested compaction is skipped */
+                    journal.compact(this, 0);
+                }
+            };
+            store.put(RevocationDigest.of("a"), 100);
+            journal.append(RevocationDigest.of("a"), 100);
+            store.put(RevocationDigest.of("b"), 200);
+            journal.append(RevocationDigest.of("b"), 200);
+
+            journal.compact(store, 0);
+            Assertions.assertEquals(1, journal.getLogSize());
+        }
+
+        try (RevocationJournal journal = new RevocationJournal(this.directory, 4, false)) {
+            Assertions.assertEquals(1, journal.getLogSize());
+            Map<RevocationDigest, Long> entries = this.load(journal, 0);
+            Assertions.assertEquals(3, entries.size());
+            Assertions.assertEquals(Long.valueOf(300), entries.get(RevocationDigest.of("late")));
+            Assertions.assertEquals(Long.valueOf(200), entries.get(RevocationDigest.of("b")));
+        }
+    }
+
+    @Test
+    public void test_compact_empty() {
+        try (RevocationJournal journal = new RevocationJournal(this.directory, 4, false)) {
+            journal.compact(new MapRevocationStore(1000), 0);
+            Assertions.assertTrue(this.load(journal, 0).isEmpty());
+        }
+    }
+
+    @Test
+    public void test_invalidSnapshot() throws IOException {
+        Files.write(this.directory.resolve(RevocationJournal.SNAPSHOT_FILE), new byte[] { 1, 2, 3 });
+        try (RevocationJournal journal = new RevocationJournal(this.directory, 4, false)) {
+            try {
+                this.load(journal, 0);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Invalid revocation snapshot.", ex.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void test_revocationList() {
+        final long now = System.currentTimeMillis();
+
+        try (RevocationJournal journal = new RevocationJournal(this.directory, 4, false)) {
+            JwtRevocationList list = new JwtRevocationList(new MapRevocationStore(1000), 0, 0, journal);
+            for (int i = 0; i < 10; i++) {
+                list.revoke("s-" + i, now + 100000);
+            }
+            list.revoke("expired", now - 1);
+            // the full log is left to maintenance
+            Assertions.assertEquals(4, journal.getLogSize());
+            Assertions.assertTrue(journal.hasOverflowed());
+
+            list.clean();
+            Assertions.assertEquals(0, journal.getLogSize());
+            Assertions.assertFalse(journal.hasOverflowed());
+        }
+
+        try (RevocationJournal journal = new RevocationJournal(this.directory, 4, false)) {
+            JwtRevocationList list = new JwtRevocationList(new CompactRevocationStore(), 16, 0.01, journal);
+            Assertions.assertEquals(10, list.size());
+            for (int i = 0; i < 10; i++) {
+                Assertions.assertTrue(list.isRevoked("s-" + i));
+            }
+            Assertions.assertFalse(list.isRevoked("expired"));
+            Assertions.assertEquals(0, journal.getLogSize());
+
+            list.revoke("s-10", now + 100000);
+            list.clean();
+            Assertions.assertEquals(1, journal.getLogSize());
+
+            list.revoke("s-11", now + 100000);
+            list.clean();
+            Assertions.assertEquals(0, journal.getLogSize());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RevocationReplicatorTest {
+    @Test
+    public void test_constructor_invalid() {
+        JwtRevocationList list = new JwtRevocationList();
+        RevocationTransport transport = new LoopbackRevocationTransport();
+        try {
+            new RevocationReplicator(null, list, transport);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Node id, list and transport are required", ex.getMessage());
+        }
+
+        try {
+            new RevocationReplicator("a", list, transport, 0);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Max batch size must be positive number but was 0", ex.getMessage());
+        }
+        Assertions.assertNull(list.getReplicator());
+    }
+
+    @Test
+    public void test_replicate() {
+        final long now = System.currentTimeMillis();
+        LoopbackRevocationTransport transport = new LoopbackRevocationTransport();
+        List<RevocationDelta> deltas = new ArrayList<>();
+        transport.subscribe(deltas::add);
+
+        JwtRevocationList list1 = new JwtRevocationList();
+        JwtRevocationList list2 = new JwtRevocationList(new CompactRevocationStore(), 16, 0.01);
+        JwtRevocationList list3 = new JwtRevocationList();
+        RevocationReplicator node1 = new RevocationReplicator("node-1", list1, transport, 3);
+        RevocationReplicator node2 = new RevocationReplicator("node-2", list2, transport, 3);
+        new RevocationReplicator("node-3", list3, transport, 3);
+        Assertions.assertSame(node1, list1.getReplicator());
+        Assertions.assertEquals("node-1", node1.getNodeId());
+
+        list1.revoke("a", now + 100000);
+        list1.revoke("b", now + 100000);
+        // unchanged revocations are not replicated
+        list1.revoke("b", now + 100000);
+        Assertions.assertEquals(2, node1.getPending());
+        Assertions.assertTrue(deltas.isEmpty());
+        Assertions.assertFalse(list2.isRevoked("a"));
+
+        // batch full
+        list1.revoke("c", now + 100000);
+        Assertions.assertEquals(0, node1.getPending());
+        Assertions.assertEquals(1, deltas.size());
+        Assertions.assertEquals(3, deltas.get(0).size());
+        Assertions.assertEquals(1, node1.getPublished());
+        for (String s : new String[] { "a", "b", "c" }) {
+            Assertions.assertTrue(list2.isRevoked(s));
+            Assertions.assertTrue(list3.isRevoked(s));
+        }
+
+        // applied revocations are not published again
+        Assertions.assertEquals(0, node2.getPending());
+        Assertions.assertEquals(0, node2.getPublished());
+        Assertions.assertEquals(1, node2.getReceived());
+        Assertions.assertEquals(Long.valueOf(1), node2.getLastApplied("node-1"));
+        Assertions.assertNull(node2.getLastApplied("node-3"));
+
+        // clean flushes partial batches
+        list2.revoke("d", now + 100000);
+        Assertions.assertFalse(list1.isRevoked("d"));
+        list2.clean();
+        Assertions.assertTrue(list1.isRevoked("d"));
+        Assertions.assertTrue(list3.isRevoked("d"));
+        Assertions.assertEquals(2, deltas.size());
+
+        // nothing pending
+        node2.flush();
+        Assertions.assertEquals(2, deltas.size());
+    }
+
+    @Test
+    public void test_outOfOrder() {
+        final long now = System.currentTimeMillis();
+        JwtRevocationList list = new JwtRevocationList();
+        RevocationReplicator node = new RevocationReplicator("node-1", list, new LoopbackRevocationTransport());
+
+        RevocationDigest a = RevocationDigest.of("a");
+        RevocationDigest b = RevocationDigest.of("b");
+        RevocationDigest c = RevocationDigest.of("c");
+        node.receive(new RevocationDelta("node-2", 0, 1, new long[] { a.getHigh(), a.getLow(), now + 100000 }));
+        node.receive(new RevocationDelta("node-2", 0, 4, new long[] { b.getHigh(), b.getLow(), now + 100000 }));
+        node.receive(new RevocationDelta("node-2", 0, 3, new long[] { c.getHigh(), c.getLow(), now + 100000 }));
+        node.receive(new RevocationDelta("node-2", 0, 4, new long[] { c.getHigh(), c.getLow(), now + 100000 }));
+        // own batches are ignored
+        node.receive(new RevocationDelta("node-1", 0, 1, new long[] { c.getHigh(), c.getLow(), now + 100000 }));
+
+        Assertions.assertTrue(list.isRevoked(a));
+        Assertions.assertTrue(list.isRevoked(b));
+        Assertions.assertFalse(list.isRevoked(c));
+        Assertions.assertEquals(2, node.getReceived());
+        Assertions.assertEquals(2, node.getIgnored());
+        Assertions.assertEquals(2, node.getGaps());
+        Assertions.assertEquals(Long.valueOf(4), node.getLastApplied("node-2"));
+        Assertions.assertEquals(0, node.getPending());
+    }
+
+    @Test
+    public void test_restart() {
+        final long now = System.currentTimeMillis();
+        LoopbackRevocationTransport transport = new LoopbackRevocationTransport();
+        JwtRevocationList list = new JwtRevocationList();
+        RevocationReplicator receiver = new RevocationReplicator("node-2", list, transport, 1);
+
+        RevocationReplicator node = new RevocationReplicator("node-1", new JwtRevocationList(), transport, 1);
+        for (String s : new String[] { "a", "b", "c" }) {
+            node.record(RevocationDigest.of(s), now + 100000);
+        }
+        Assertions.assertEquals(Long.valueOf(3), receiver.getLastApplied("node-1"));
+
+        // same node id after a restart, its sequence starts over
+        RevocationReplicator restarted = new RevocationReplicator("node-1", new JwtRevocationList(), transport, 1);
+        Assertions.assertNotEquals(node.getEpoch(), restarted.getEpoch());
+        restarted.record(RevocationDigest.of("d"), now + 100000);
+        Assertions.assertTrue(list.isRevoked("d"));
+        Assertions.assertEquals(Long.valueOf(1), receiver.getLastApplied("node-1"));
+        Assertions.assertEquals(1, receiver.getResets());
+
+        restarted.record(RevocationDigest.of("e"), now + 100000);
+        Assertions.assertTrue(list.isRevoked("e"));
+        Assertions.assertEquals(Long.valueOf(2), receiver.getLastApplied("node-1"));
+        Assertions.assertEquals(1, receiver.getResets());
+        Assertions.assertEquals(0, receiver.getIgnored());
+        Assertions.assertEquals(0, receiver.getGaps());
+        Assertions.assertEquals(5, receiver.getReceived());
+    }
+
+    @Test
+    public void test_invalidate() {
+        LoopbackRevocationTransport transport = new LoopbackRevocationTransport();
+        JwtRevocationList list1 = new JwtRevocationList();
+        JwtRevocationList list2 = new JwtRevocationList();
+        new RevocationReplicator("node-1", list1, transport, 1);
+        new RevocationReplicator("node-2", list2, transport, 1);
+
+        Jwt token = new Jwt();
+        token.setSignature("sig");
+        token.setExpirationMillis(System.currentTimeMillis() + 100000);
+        list1.revoke(token);
+        Assertions.assertTrue(list2.isRevoked("sig"));
+    }
+}
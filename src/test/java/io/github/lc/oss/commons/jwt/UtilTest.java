@@ -1,5 +1,6 @@
 package io.github.lc.oss.commons.jwt;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -100,4 +101,111 @@ public class UtilTest extends AbstractMockTest {
         Assertions.assertEquals(2, parts.length);
         Assertions.assertEquals("eyJraWQiOiJpZC0xIiwiYWxnIjoiSFMyNTYifQ", parts[0]);
     }
+
+    @Test
+    public void test_toSigningInput() {
+        /* every remainder of the Base64 groups for both segments */
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            Jwt token = new Jwt();
+            token.getHeader().setAlgorithm(Algorithms.HS256);
+            token.getHeader().setKeyId(sb.toString());
+            token.getPayload().setSubject("\u00e9" + sb);
+            token.setSignature("sig");
+
+            String expected = Util.toBase64Json(token.getHeader()) + "." + Util.toBase64Json(token.getPayload());
+            byte[] input = Util.toSigningInput(token);
+            Assertions.assertArrayEquals(expected.getBytes(StandardCharsets.US_ASCII), input);
+            Assertions.assertEquals(expected, Util.toJsonNoSignature(token));
+            Assertions.assertEquals(expected + ".sig", Util.toJson(token));
+            Assertions.assertEquals(expected + ".sig", Util.toJson(input, "sig"));
+            sb.append('x');
+        }
+    }
+
+    @Test
+    public void test_fromJson_bytes() {
+        byte[] json = "x{\"typ\":\"JWT\",\"kid\":\"\u00e9\"}y".getBytes(StandardCharsets.UTF_8);
+
+        JwtHeader header = Util.fromJson(json, 1, json.length - 2, JwtHeader.class);
+        Assertions.assertEquals("JWT", header.getTokenType());
+        Assertions.assertEquals("\u00e9", header.getKeyId());
+
+        try {
+            Util.fromJson(json, 0, json.length, JwtHeader.class);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Error deserialzing object.", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_fromBase64Json_invalid() {
+        Assertions.assertNull(Util.fromBase64Json("%%%", JwtHeader.class));
+
+        byte[] data = "x.%%%.y".getBytes(StandardCharsets.US_ASCII);
+        Assertions.assertNull(Util.fromBase64Json(data, 2, 3, JwtHeader.class));
+
+        data = ("x." + Util.toBase64("{\"typ\":\"JWT\"}") + ".y").getBytes(StandardCharsets.US_ASCII);
+        Assertions.assertEquals("JWT", Util.fromBase64Json(data, 2, data.length - 4, JwtHeader.class).getTokenType());
+        Assertions.assertEquals("JWT", Util.fromBase64Json(" " + Util.toBase64("{\"typ\":\"JWT\"}") + " ",
+                JwtHeader.class).getTokenType());
+    }
+
+    @Test
+    public void test_isBase64() {
+        for (String valid : new String[] { "", "QQ", "QUI", "QUJD", "QQ==", "QUI=", "a+/9" }) {
+            byte[] data = ("." + valid + ".").getBytes(StandardCharsets.US_ASCII);
+            Assertions.assertTrue(Util.isBase64(data, 1, data.length - 2), valid);
+        }
+
+        for (String invalid : new String[] { "Q", "QUJDR", "QQ=", "Q===", "QQ==QQ==", "a-_9", "QU I", "QUJé" }) {
+            byte[] data = invalid.getBytes(StandardCharsets.UTF_8);
+            Assertions.assertFalse(Util.isBase64(data, 0, data.length), invalid);
+            Assertions.assertNull(Util.decodeBase64(data, 0, data.length), invalid);
+        }
+    }
+
+    @Test
+    public void test_isJsonObject() {
+        for (String valid : new String[] { "{}", " {\"a\":[1,{\"b\":\"}]\\\"\"}]}\r\n", "{\"a\":\"é\"}" }) {
+            byte[] data = valid.getBytes(StandardCharsets.UTF_8);
+            Assertions.assertTrue(Util.isJsonObject(data, 0, data.length), valid);
+        }
+
+        for (String invalid : new String[] { "", " ", "[]", "junk", "{", "{]", "{\"a\":[}", "{}}", "{} x",
+                "{\"a\":\"b}", "{\"a\":\"\t\"}", "{\"a\":\"\\" }) {
+            byte[] data = invalid.getBytes(StandardCharsets.UTF_8);
+            Assertions.assertFalse(Util.isJsonObject(data, 0, data.length), invalid);
+        }
+
+        StringBuilder deep = new StringBuilder();
+        for (int i = 0; i < 64; i++) {
+            deep.append("{\"a\":");
+        }
+        deep.append("1");
+        for (int i = 0; i < 64; i++) {
+            deep.append("}");
+        }
+        byte[] data = deep.toString().getBytes(StandardCharsets.US_ASCII);
+        Assertions.assertTrue(Util.isJsonObject(data, 0, data.length));
+        data = ("{\"a\":" + deep + "}").getBytes(StandardCharsets.US_ASCII);
+        Assertions.assertFalse(Util.isJsonObject(data, 0, data.length));
+
+        // not an object is not parsed at all
+        data = Util.toBase64("junk").getBytes(StandardCharsets.US_ASCII);
+        Assertions.assertNull(Util.fromBase64Json(data, 0, data.length, JwtHeader.class));
+    }
+
+    @Test
+    public void test_fromBase64_range() {
+        byte[] data = ("x." + Util.toBase64("{\"typ\":\"JWT\"}") + ".y").getBytes();
+
+        Assertions.assertEquals("{\"typ\":\"JWT\"}", Util.fromBase64(data, 2, data.length - 4));
+        Assertions.assertNull(Util.fromBase64(data, 0, data.length));
+
+        JwtHeader header = Util.fromBase64Json(data, 2, data.length - 4, JwtHeader.class);
+        Assertions.assertEquals("JWT", header.getTokenType());
+        Assertions.assertNull(Util.fromBase64Json(data, 0, 1, JwtHeader.class));
+    }
 }
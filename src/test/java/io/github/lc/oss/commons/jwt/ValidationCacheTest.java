@@ -0,0 +1,232 @@
+package io.github.lc.oss.commons.jwt;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.signing.Algorithms;
+import io.github.lc.oss.commons.testing.AbstractMockTest;
+
+public class ValidationCacheTest extends AbstractMockTest {
+    private Jwt token(long expirationMillis) {
+        Jwt jwt = new Jwt();
+        jwt.getHeader().put(JwtHeader.Keys.TokenType, "JWT");
+        jwt.getHeader().setAlgorithm(Algorithms.HS256);
+        jwt.getPayload().setSubject("junit");
+        jwt.getPayload().setPermissions("app", Arrays.asList("a", "b"));
+        jwt.setExpirationMillis(expirationMillis);
+        jwt.setSignature("sig");
+        return jwt;
+    }
+
+    @Test
+    public void test_constructor_invalid() {
+        try {
+            new ValidationCache(0, 1);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Max size must be positive number but was 0", ex.getMessage());
+        }
+
+        try {
+            new ValidationCache(1, 0);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Time to live must be positive number but was 0", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_getPut() {
+        ValidationCache cache = new ValidationCache(10, 60000);
+
+        Assertions.assertNull(cache.get("a.b.c", null, 1000));
+        Assertions.assertEquals(0, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+
+        Jwt jwt = this.token(100000);
+        cache.put("a.b.c", null, jwt, 1000);
+        Assertions.assertEquals(1, cache.size());
+
+        Jwt result = cache.get("a.b.c", null, 1000);
+        Assertions.assertNotNull(result);
+        Assertions.assertNotSame(jwt, result);
+        Assertions.assertEquals("junit", result.getSubject());
+        Assertions.assertEquals("sig", result.getSignature());
+        Assertions.assertSame(Algorithms.HS256, result.getAlgorithm());
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+
+        // copies are independent of each other and of the cached entry
+        result.getPayload().setSubject("changed");
+        result.getPayload().setPermissions("app", "c");
+        jwt.getPayload().setSubject("changed");
+
+        Jwt again = cache.get("a.b.c", null, 1000);
+        Assertions.assertEquals("junit", again.getSubject());
+        Collection<String> permissions = again.getPayload().getPermissions("app");
+        Assertions.assertEquals(2, permissions.size());
+        Assertions.assertTrue(permissions.contains("a"));
+        Assertions.assertTrue(permissions.contains("b"));
+    }
+
+    @Test
+    public void test_secret() {
+        ValidationCache cache = new ValidationCache(10, 60000);
+
+        byte[] secret = { 0x01, 0x02 };
+        cache.put("a.b.c", secret, this.token(100000), 1000);
+        secret[0] = 0x03;
+
+        Assertions.assertNull(cache.get("a.b.c", null, 1000));
+        Assertions.assertNull(cache.get("a.b.c", secret, 1000));
+        Assertions.assertNotNull(cache.get("a.b.c", new byte[] { 0x01, 0x02 }, 1000));
+    }
+
+    @Test
+    public void test_expiration() {
+        ValidationCache cache = new ValidationCache(10, 5000);
+
+        // time to live
+        cache.put("ttl", null, this.token(100000), 1000);
+        Assertions.assertNotNull(cache.get("ttl", null, 5999));
+        Assertions.assertNull(cache.get("ttl", null, 6000));
+        Assertions.assertEquals(0, cache.size());
+
+        // token expiration
+        cache.put("exp", null, this.token(3000), 1000);
+        Assertions.assertNotNull(cache.get("exp", null, 2999));
+        Assertions.assertNull(cache.get("exp", null, 3000));
+
+        // already expired or no expiration
+        cache.put("old", null, this.token(1000), 1000);
+        Jwt noExpiration = this.token(1000);
+        noExpiration.getPayload().remove(JwtPayload.Keys.ExpirationDate);
+        cache.put("none", null, noExpiration, 1000);
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void test_bounded() {
+        ValidationCache cache = new ValidationCache(3, 60000);
+
+        cache.put("1", null, this.token(2000), 1000);
+        cache.put("2", null, this.token(100000), 1000);
+        cache.put("3", null, this.token(100000), 1000);
+        Assertions.assertEquals(3, cache.size());
+
+        // expired entries are evicted first
+        cache.put("4", null, this.token(100000), 3000);
+        Assertions.assertEquals(3, cache.size());
+        Assertions.assertNull(cache.get("1", null, 3000));
+        Assertions.assertNotNull(cache.get("4", null, 3000));
+
+        for (int i = 5; i < 20; i++) {
+            cache.put(Integer.toString(i), null, this.token(100000), 3000);
+            Assertions.assertTrue(cache.size() <= 3);
+        }
+        Assertions.assertNotNull(cache.get("19", null, 3000));
+    }
+
+    @Test
+    public void test_evictOldest() {
+        ValidationCache cache = new ValidationCache(3, 60000);
+
+        cache.put("1", null, this.token(100000), 1000);
+        cache.put("2", null, this.token(100000), 1000);
+        cache.put("3", null, this.token(2000), 1000);
+
+        // no sweep on put, the oldest entry makes room
+        cache.put("4", null, this.token(100000), 3000);
+        Assertions.assertEquals(3, cache.size());
+        Assertions.assertNull(cache.get("1", null, 3000));
+        Assertions.assertNotNull(cache.get("2", null, 3000));
+
+        cache.clean(3000);
+        Assertions.assertEquals(2, cache.size());
+
+        // replaced entries are skipped
+        for (int i = 0; i < 20; i++) {
+            cache.put("2", null, this.token(100000), 3000);
+        }
+        cache.put("5", null, this.token(100000), 3000);
+        cache.put("6", null, this.token(100000), 3000);
+        Assertions.assertEquals(3, cache.size());
+        Assertions.assertNotNull(cache.get("6", null, 3000));
+        Assertions.assertNotNull(cache.get("5", null, 3000));
+    }
+
+    @Test
+    public void test_cleanRemoveClear() {
+        ValidationCache cache = new ValidationCache(10, 60000);
+
+        long now = System.currentTimeMillis();
+        cache.put("1", null, this.token(now + 100000), now);
+        cache.put("2", null, this.token(now - 1000), now - 5000);
+        cache.put("3", null, this.token(now + 100000), now - 70000);
+
+        cache.clean();
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertNotNull(cache.get("1", null, now));
+
+        cache.put("2", null, this.token(now + 2000), now);
+        cache.remove("1");
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertNull(cache.get("1", null, now));
+
+        cache.clear();
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void test_timeSource() {
+        ValidationCache cache = new ValidationCache(10, 60000);
+        Assertions.assertSame(TimeSource.SYSTEM, cache.getTimeSource());
+        try {
+            cache.setTimeSource(null);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Time source is required", ex.getMessage());
+        }
+
+        long now = System.currentTimeMillis();
+        cache.put("1", null, this.token(now + 100000), now);
+        cache.clean();
+        Assertions.assertEquals(1, cache.size());
+
+        cache.setTimeSource(() -> now + 60000);
+        cache.clean();
+        Assertions.assertEquals(0, cache.size());
+
+        cache.put("1", null, this.token(now + 100000), now);
+        Assertions.assertFalse(cache.maintain(System.nanoTime()));
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void test_maintain() {
+        ValidationCache cache = new ValidationCache(1000, 60000);
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 600; i++) {
+            cache.put(Integer.toString(i), null, this.token(now + 100000), now - 70000);
+        }
+
+        // deadline already passed, one chunk per call
+        Assertions.assertTrue(cache.maintain(System.nanoTime()));
+        Assertions.assertEquals(344, cache.size());
+        Assertions.assertTrue(cache.maintain(System.nanoTime()));
+        Assertions.assertEquals(88, cache.size());
+        Assertions.assertFalse(cache.maintain(System.nanoTime()));
+        Assertions.assertEquals(0, cache.size());
+
+        cache.put("valid", null, this.token(now + 100000), now);
+        cache.put("expired", null, this.token(now + 100000), now - 70000);
+        Assertions.assertFalse(cache.maintain(System.nanoTime() + TimeUnit.SECONDS.toNanos(10)));
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertNotNull(cache.get("valid", null, now));
+    }
+}
@@ -0,0 +1,47 @@
+package io.github.lc.oss.commons.jwt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractMockTest;
+
+public class ValidationResultTest extends AbstractMockTest {
+    @Test
+    public void test_invalid() {
+        try {
+            ValidationResult.valid(null);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Token is required", ex.getMessage());
+        }
+
+        try {
+            ValidationResult.rejected(null);
+            Assertions.fail("Expected exception");
+        } catch (IllegalArgumentException ex) {
+            Assertions.assertEquals("Reason is required", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_valid() {
+        Jwt token = new Jwt();
+        ValidationResult result = ValidationResult.valid(token);
+        Assertions.assertTrue(result.isValid());
+        Assertions.assertSame(token, result.getToken());
+        Assertions.assertNull(result.getReason());
+        Assertions.assertEquals("VALID", result.toString());
+    }
+
+    @Test
+    public void test_rejected() {
+        for (JwtMetrics.RejectionReason reason : JwtMetrics.RejectionReason.values()) {
+            ValidationResult result = ValidationResult.rejected(reason);
+            Assertions.assertFalse(result.isValid());
+            Assertions.assertNull(result.getToken());
+            Assertions.assertSame(reason, result.getReason());
+            Assertions.assertEquals(reason.name(), result.toString());
+            Assertions.assertSame(result, ValidationResult.rejected(reason));
+        }
+    }
+}